@@ -0,0 +1,61 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import io.github.mszychiewicz.currencyexchange.api.request.BuyCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.OpenAccountRequest;
+import io.github.mszychiewicz.currencyexchange.api.response.AccountResponse;
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.OpenAccountCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between the web layer and the domain, without JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class AccountApiMapperBenchmark {
+    private final SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+    private final AccountApiMapper accountApiMapper = new AccountApiMapper(supportedCurrencies);
+    private final UUID accountId = UUID.randomUUID();
+    private final OpenAccountRequest openAccountRequest = new OpenAccountRequest("Jane", "Doe", new BigDecimal("100.00"));
+    private BuyCurrencyRequest buyCurrencyRequest;
+    private Account account;
+
+    @Setup
+    public void createRequests() {
+        Currency usd = supportedCurrencies.register(Currency.getInstance("USD")).getCurrency();
+        supportedCurrencies.register(Currency.getInstance("EUR"));
+        buyCurrencyRequest = new BuyCurrencyRequest(usd, 12_550, null);
+        account = new Account(accountId, "Jane", "Doe", 10_000);
+    }
+
+    @Benchmark
+    public OpenAccountCommand toOpenAccountCommand() {
+        return accountApiMapper.toCommand(openAccountRequest);
+    }
+
+    @Benchmark
+    public BuyCurrencyCommand toBuyCurrencyCommand() {
+        return accountApiMapper.toCommand(accountId, buyCurrencyRequest);
+    }
+
+    @Benchmark
+    public AccountResponse toAccountResponse() {
+        return accountApiMapper.toResponse(account);
+    }
+}
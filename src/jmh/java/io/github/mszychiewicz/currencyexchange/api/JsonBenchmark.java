@@ -0,0 +1,97 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import io.github.mszychiewicz.currencyexchange.api.request.BuyCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.OpenAccountRequest;
+import io.github.mszychiewicz.currencyexchange.api.response.AccountResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.CommandResultResponse;
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON decoding of request bodies and encoding of responses with an object mapper configured like Spring Boot's.
+ * Buy requests are also decoded the way they were before their dedicated deserializer, into a String and a
+ * BigDecimal, so the gc profiler shows what that deserializer saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class JsonBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    // Spring Boot adds the parameter names module, which binds the constructors of immutable requests
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new ParameterNamesModule())
+            .build();
+    private final byte[] buyCurrencyBody = ("{\"currencyCode\": \"USD\", \"amount\": \"125.50\", \"quoteId\": \""
+            + UUID.randomUUID() + "\"}").getBytes(StandardCharsets.UTF_8);
+    private final byte[] openAccountBody = "{\"firstName\": \"Jane\", \"lastName\": \"Doe\", \"openingBalance\": \"100.00\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private AccountResponse accountResponse;
+    private List<CommandResultResponse> commandResults;
+
+    @Setup
+    public void createResponses() {
+        SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+        supportedCurrencies.register(Currency.getInstance("USD"));
+        supportedCurrencies.register(Currency.getInstance("EUR"));
+        accountResponse = new AccountApiMapper(supportedCurrencies).toResponse(new Account("Jane", "Doe", 10_000));
+        commandResults = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            commandResults.add(i % 10 == 0
+                    ? new CommandResultResponse(false, 403, "Insufficient funds.")
+                    : new CommandResultResponse(true, 200, null));
+        }
+    }
+
+    @Benchmark
+    public BuyCurrencyRequest readBuyCurrencyRequest() throws IOException {
+        return objectMapper.readValue(buyCurrencyBody, BuyCurrencyRequest.class);
+    }
+
+    @Benchmark
+    public UntypedBuyCurrencyRequest readBuyCurrencyRequestAsStringAndBigDecimal() throws IOException {
+        return objectMapper.readValue(buyCurrencyBody, UntypedBuyCurrencyRequest.class);
+    }
+
+    @Benchmark
+    public OpenAccountRequest readOpenAccountRequest() throws IOException {
+        return objectMapper.readValue(openAccountBody, OpenAccountRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeAccountResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(accountResponse);
+    }
+
+    @Benchmark
+    public byte[] writeCommandResults() throws IOException {
+        return objectMapper.writeValueAsBytes(commandResults);
+    }
+
+    public static class UntypedBuyCurrencyRequest {
+        public String currencyCode;
+        public BigDecimal amount;
+        public UUID quoteId;
+    }
+}
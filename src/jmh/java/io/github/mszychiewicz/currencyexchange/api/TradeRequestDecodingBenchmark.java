@@ -0,0 +1,70 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import io.github.mszychiewicz.currencyexchange.api.request.BuyCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.domain.Money;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the same buy request body into a command through the former pipeline, a BigDecimal DTO checked by bean
+ * validation and converted by the mapper, and through {@link BuyCurrencyRequest}'s deserializer. The gc profiler
+ * shows the bytes each allocates per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class TradeRequestDecodingBenchmark {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new ParameterNamesModule())
+            .build();
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final AccountApiMapper mapper = new AccountApiMapper(new SupportedCurrencies());
+    private final UUID accountId = UUID.randomUUID();
+    private final byte[] body = ("{\"currencyCode\": \"USD\", \"amount\": \"125.50\", \"quoteId\": \""
+            + UUID.randomUUID() + "\"}").getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public BuyCurrencyCommand decodeWithValidation() throws IOException {
+        ValidatedBuyCurrencyRequest request = objectMapper.readValue(body, ValidatedBuyCurrencyRequest.class);
+        if (!validator.validate(request).isEmpty()) {
+            throw new IllegalStateException("Buy request body is invalid");
+        }
+        Currency currency = Currency.getInstance(request.currencyCode);
+        return new BuyCurrencyCommand(accountId, currency, Money.toMinorUnits(request.amount, currency), request.quoteId);
+    }
+
+    @Benchmark
+    public BuyCurrencyCommand decodeWithDeserializer() throws IOException {
+        return mapper.toCommand(accountId, objectMapper.readValue(body, BuyCurrencyRequest.class));
+    }
+
+    public static class ValidatedBuyCurrencyRequest {
+        @NotBlank
+        public String currencyCode;
+        @Positive
+        public BigDecimal amount;
+        public UUID quoteId;
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+
+/**
+ * Balance updates of a single account. Every thread works on its own account, so the variants on all threads
+ * show how the updates scale rather than contend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountBenchmark {
+    private static final SupportedCurrency USD = new SupportedCurrencies().register(Currency.getInstance("USD"));
+
+    private Account account;
+
+    @Setup(Level.Iteration)
+    public void openAccount() {
+        account = new Account("Jane", "Doe", Long.MAX_VALUE / 2);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long depositFunds() {
+        account.depositFunds(USD, 1);
+        return account.getBalance(USD);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long withdrawFunds() {
+        account.withdrawFunds(PLN, 1);
+        return account.getBalance(PLN);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long depositFundsOnAllThreads() {
+        return depositFunds();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long withdrawFundsOnAllThreads() {
+        return withdrawFunds();
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.OpenAccountCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.SellCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.infrastructure.InMemoryAccountRepository;
+import io.github.mszychiewicz.currencyexchange.infrastructure.InMemoryQuoteRepository;
+import io.github.mszychiewicz.currencyexchange.infrastructure.MicrometerTradingMetrics;
+import io.github.mszychiewicz.currencyexchange.infrastructure.PartitionedAccountCommandExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buying and selling through {@link AccountService} with the in-memory repository and the partitioned executor,
+ * rates come from a stub provider and the journal is a no-op, so neither NBP nor the disk is measured. Every
+ * thread trades on its own account, the variants on all threads measure the partitions under load.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountServiceBenchmark {
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        AccountService accountService;
+        PartitionedAccountCommandExecutor accountCommandExecutor;
+
+        @Setup
+        public void createService() {
+            SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+            supportedCurrencies.register(USD);
+            ExchangeRateProvider exchangeRateProvider = new ExchangeRateProvider() {
+                @Override
+                public BigDecimal getAskExchangeRate(Currency currency) {
+                    return new BigDecimal("3.9112");
+                }
+
+                @Override
+                public BigDecimal getBidExchangeRate(Currency currency) {
+                    return new BigDecimal("3.8421");
+                }
+            };
+            Clock clock = Clock.systemUTC();
+            QuoteService quoteService = new QuoteService(new InMemoryQuoteRepository(clock, 1000), exchangeRateProvider,
+                    clock, Duration.ofSeconds(30));
+            accountCommandExecutor = new PartitionedAccountCommandExecutor(0);
+            AccountJournal accountJournal = event -> CompletableFuture.completedFuture(null);
+            accountService = new AccountService(new InMemoryAccountRepository(supportedCurrencies), exchangeRateProvider, quoteService,
+                    accountCommandExecutor, accountJournal, new CrossRateService(exchangeRateProvider, supportedCurrencies, clock,
+                    Duration.ofHours(6)), new MicrometerTradingMetrics(new SimpleMeterRegistry()), supportedCurrencies);
+        }
+
+        @TearDown
+        public void close() {
+            accountCommandExecutor.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Trader {
+        BuyCurrencyCommand buy;
+        SellCurrencyCommand sell;
+
+        @Setup
+        public void openAccount(Service service) {
+            UUID id = service.accountService.openAccount(new OpenAccountCommand("Jane", "Doe", 1_000_000_000_000_000L));
+            // enough dollars for every sale of a run
+            service.accountService.buyCurrency(new BuyCurrencyCommand(id, USD, 100_000_000_000L));
+            buy = new BuyCurrencyCommand(id, USD, 1);
+            sell = new SellCurrencyCommand(id, USD, 1);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void buyCurrency(Service service, Trader trader) {
+        service.accountService.buyCurrency(trader.buy);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void sellCurrency(Service service, Trader trader) {
+        service.accountService.sellCurrency(trader.sell);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void buyCurrencyOnAllThreads(Service service, Trader trader) {
+        service.accountService.buyCurrency(trader.buy);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void sellCurrencyOnAllThreads(Service service, Trader trader) {
+        service.accountService.sellCurrency(trader.sell);
+    }
+}
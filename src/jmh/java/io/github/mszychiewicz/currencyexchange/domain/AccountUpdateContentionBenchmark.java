@@ -0,0 +1,105 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import io.github.mszychiewicz.currencyexchange.infrastructure.InMemoryAccountRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+
+/**
+ * Optimistic compare-and-set saves against per-account locking while eight threads deposit into a few hot
+ * accounts. The optimistic variant counts the saves it lost to a concurrent update and retried.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountUpdateContentionBenchmark {
+    private static final int HOT_ACCOUNTS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Optimistic {
+        InMemoryAccountRepository accountRepository;
+        UUID[] accountIds;
+
+        @Setup
+        public void openAccounts() {
+            accountRepository = new InMemoryAccountRepository(new SupportedCurrencies());
+            accountIds = new UUID[HOT_ACCOUNTS];
+            for (int i = 0; i < HOT_ACCOUNTS; i++) {
+                accountIds[i] = accountRepository.save(new Account("Jane", "Doe", 0));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Locked {
+        Account[] accounts;
+        Map<UUID, ReentrantLock> locks;
+
+        @Setup
+        public void openAccounts() {
+            accounts = new Account[HOT_ACCOUNTS];
+            locks = new ConcurrentHashMap<>();
+            for (int i = 0; i < HOT_ACCOUNTS; i++) {
+                accounts[i] = new Account("Jane", "Doe", 0);
+                locks.put(accounts[i].getId(), new ReentrantLock());
+            }
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Conflicts {
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void updateOptimistically(Optimistic optimistic, Conflicts conflicts) {
+        UUID id = optimistic.accountIds[ThreadLocalRandom.current().nextInt(HOT_ACCOUNTS)];
+        while (true) {
+            Account account = optimistic.accountRepository.findById(id).orElseThrow();
+            account.depositFunds(PLN, 1);
+            try {
+                optimistic.accountRepository.save(account);
+                return;
+            } catch (ConcurrentAccountUpdateException e) {
+                conflicts.conflicts++;
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void updateUnderPerAccountLock(Locked locked) {
+        Account account = locked.accounts[ThreadLocalRandom.current().nextInt(HOT_ACCOUNTS)];
+        ReentrantLock lock = locked.locks.get(account.getId());
+        lock.lock();
+        try {
+            account.depositFunds(PLN, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
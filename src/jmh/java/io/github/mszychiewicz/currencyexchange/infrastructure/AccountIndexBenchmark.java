@@ -0,0 +1,63 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of ids given by their two halves, as parsed from a request path, in the primitive {@link AccountIndex}
+ * and in the ConcurrentHashMap of ids to slots it replaced, which needs a {@link UUID} per lookup. The gc profiler
+ * shows that allocation, {@link AccountIndex#allocatedBytes()} the index's footprint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class AccountIndexBenchmark {
+    @Param({"65536", "1000000"})
+    public int accounts;
+
+    private long[] mostSignificantBits;
+    private long[] leastSignificantBits;
+    private AccountIndex index;
+    private Map<UUID, Integer> map;
+
+    @Setup
+    public void indexIds() {
+        mostSignificantBits = new long[accounts];
+        leastSignificantBits = new long[accounts];
+        index = new AccountIndex();
+        map = new ConcurrentHashMap<>();
+        for (int slot = 0; slot < accounts; slot++) {
+            UUID id = UUID.randomUUID();
+            mostSignificantBits[slot] = id.getMostSignificantBits();
+            leastSignificantBits[slot] = id.getLeastSignificantBits();
+            index.putIfAbsent(id.getMostSignificantBits(), id.getLeastSignificantBits(), slot);
+            map.put(id, slot);
+        }
+    }
+
+    @Benchmark
+    public int getFromAccountIndex() {
+        int account = ThreadLocalRandom.current().nextInt(accounts);
+        return index.get(mostSignificantBits[account], leastSignificantBits[account]);
+    }
+
+    @Benchmark
+    public Integer getFromConcurrentHashMap() {
+        int account = ThreadLocalRandom.current().nextInt(accounts);
+        return map.get(new UUID(mostSignificantBits[account], leastSignificantBits[account]));
+    }
+}
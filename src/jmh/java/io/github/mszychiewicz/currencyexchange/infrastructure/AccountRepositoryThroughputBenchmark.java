@@ -0,0 +1,87 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+
+/**
+ * Read-modify-save of the in-memory repository against the batched JDBC repository on an embedded H2 database,
+ * sixteen threads each depositing into an account of its own, so no save is lost to a concurrent one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountRepositoryThroughputBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Repository {
+        @Param({"in-memory", "jdbc"})
+        public String repository;
+
+        AccountRepository accountRepository;
+        private HikariDataSource dataSource;
+
+        @Setup
+        public void createRepository() {
+            SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+            if (repository.equals("in-memory")) {
+                accountRepository = new InMemoryAccountRepository(supportedCurrencies);
+                return;
+            }
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(4);
+            new ResourceDatabasePopulator(new ClassPathResource("db/accounts-schema.sql")).execute(dataSource);
+            accountRepository = new JdbcAccountRepository(new JdbcTemplate(dataSource), supportedCurrencies,
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource)), Duration.ofMillis(2), 500, 4);
+        }
+
+        @TearDown
+        public void close() throws InterruptedException {
+            if (accountRepository instanceof JdbcAccountRepository) {
+                ((JdbcAccountRepository) accountRepository).close();
+                dataSource.close();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Owner {
+        UUID accountId;
+
+        @Setup
+        public void openAccount(Repository repository) {
+            accountId = repository.accountRepository.save(new Account("Jane", "Doe", 0));
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public UUID deposit(Repository repository, Owner owner) {
+        Account account = repository.accountRepository.findById(owner.accountId).orElseThrow();
+        long[] balances = new long[PLN.ordinal() + 1];
+        balances[PLN.ordinal()] = account.getBalance(PLN) + 1;
+        return repository.accountRepository.save(new Account(owner.accountId, "Jane", "Doe", balances, account.getVersion()));
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a binary snapshot of the in-memory repository and restoring it into an empty one, as on startup before
+ * the journal is replayed. Each operation handles every account, so a single shot is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+public class AccountSnapshotBenchmark {
+    @Param({"1000000"})
+    public int accounts;
+
+    private InMemoryAccountRepository accountRepository;
+    private Path directory;
+    private Path written;
+    private Path restored;
+
+    @Setup
+    public void saveAccounts() throws IOException {
+        accountRepository = new InMemoryAccountRepository(new SupportedCurrencies());
+        for (int i = 0; i < accounts; i++) {
+            accountRepository.save(new Account("Jane", "Doe", i));
+        }
+        directory = Files.createTempDirectory("account-snapshot-benchmark");
+        written = directory.resolve("written.snapshot");
+        restored = directory.resolve("restored.snapshot");
+        accountRepository.writeSnapshot(restored, 0);
+    }
+
+    @TearDown
+    public void deleteSnapshots() throws IOException {
+        Files.deleteIfExists(written);
+        Files.deleteIfExists(restored);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Path writeSnapshot() throws IOException {
+        accountRepository.writeSnapshot(written, 0);
+        return written;
+    }
+
+    @Benchmark
+    public InMemoryAccountRepository restoreSnapshot() throws IOException {
+        InMemoryAccountRepository restoredRepository = new InMemoryAccountRepository(new SupportedCurrencies());
+        restoredRepository.restoreSnapshot(restored);
+        return restoredRepository;
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The on-heap against the off-heap repository with a million accounts live. Reads allocate short-lived views,
+ * the gc profiler shows the collections they cause, and a full collection is timed as a single shot. The heap and
+ * direct bytes each account retains are printed once the repository is filled.
+ */
+@State(Scope.Benchmark)
+@Threads(1)
+public class AccountStoreFootprintBenchmark {
+    @Param({"in-memory", "off-heap"})
+    public String repository;
+
+    @Param({"1000000"})
+    public int accounts;
+
+    private AccountRepository accountRepository;
+    private UUID[] ids;
+
+    @Setup
+    public void fillRepository() {
+        long heapBefore = usedHeapAfterGc();
+        long directBefore = usedDirectMemory();
+        accountRepository = repository.equals("in-memory")
+                ? new InMemoryAccountRepository(new SupportedCurrencies())
+                : new OffHeapAccountRepository(new SupportedCurrencies(), DataSize.ofMegabytes(16), 16);
+        ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            // names arrive as fresh strings from every request, a thousand distinct ones in total
+            ids[i] = accountRepository.save(new Account("First" + i % 1000, "Last" + i % 1000, i));
+        }
+        long heapBytes = usedHeapAfterGc() - heapBefore;
+        long directBytes = Math.max(0, usedDirectMemory() - directBefore);
+        System.out.printf("%s repository, %d accounts: %d heap + %d direct bytes/account%n",
+                repository, accounts, heapBytes / accounts, directBytes / accounts);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Optional<Account> findById() {
+        return accountRepository.findById(ids[ThreadLocalRandom.current().nextInt(accounts)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void fullCollection() {
+        System.gc();
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirectMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and compare-and-set saves of accounts picked at random from a shared set. The fewer accounts, the more
+ * often threads save the same one concurrently, a lost compare-and-set is counted as a completed operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemoryAccountRepositoryBenchmark {
+    @Param({"16", "65536"})
+    public int accounts;
+
+    private InMemoryAccountRepository accountRepository;
+    private UUID[] ids;
+
+    @Setup
+    public void saveAccounts() {
+        accountRepository = new InMemoryAccountRepository(new SupportedCurrencies());
+        ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = accountRepository.save(new Account("Jane", "Doe", 1_000_000));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<Account> findById() {
+        return accountRepository.findById(randomId());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean save() {
+        return findAndSave();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Optional<Account> findByIdOnAllThreads() {
+        return findById();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean saveOnAllThreads() {
+        return findAndSave();
+    }
+
+    private boolean findAndSave() {
+        Account account = accountRepository.findById(randomId()).orElseThrow();
+        try {
+            accountRepository.save(account);
+            return true;
+        } catch (ConcurrentAccountUpdateException e) {
+            return false;
+        }
+    }
+
+    private UUID randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
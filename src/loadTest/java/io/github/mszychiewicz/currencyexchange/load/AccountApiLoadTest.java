@@ -0,0 +1,67 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import io.github.mszychiewicz.currencyexchange.CurrencyExchangeApplication;
+import io.github.mszychiewicz.currencyexchange.load.LoadRecording.Outcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Boots the whole application against {@link NbpStandIn}, opens accounts, warms up with the configured mix and
+ * then measures it at the target rate. The report is printed and written to {@code load.report}, so runs of
+ * different commits can be compared. See {@link LoadTestSettings} for the knobs, run with:
+ * <pre>
+ *     ./gradlew loadTest
+ * </pre>
+ */
+class AccountApiLoadTest {
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void givenNbpStandIn_whenMixedTrafficArrivesAtTargetRate_thenEveryRequestIsAnswered() throws Exception {
+        //given
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        try (NbpStandIn nbp = new NbpStandIn(settings);
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(CurrencyExchangeApplication.class)
+                     .profiles(settings.getProfiles())
+                     .run(arguments(settings, nbp))) {
+            LoadGenerator generator = new LoadGenerator(
+                    "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort(), settings);
+            generator.openAccounts();
+            generator.run(settings.getWarmUp());
+
+            //when
+            LoadRecording recording = generator.run(settings.getDuration());
+
+            //then
+            LoadTestReport report = new LoadTestReport(settings, recording, nbp.tableRequests());
+            report.write(settings.getReport());
+            System.out.println(report);
+            assertEquals(0, recording.count(null, Outcome.FAILED), "requests that failed, see the report");
+        }
+    }
+
+    private String[] arguments(LoadTestSettings settings, NbpStandIn nbp) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--clients.nbp.baseUrl=" + nbp.baseUrl(),
+                "--clients.nbp.snapshot.path=",
+                "--clients.nbp.history.backfillDays=0",
+                // trades are journaled and fsynced as in production, into a directory dropped after the run
+                "--accounts.journal.path=" + dataDirectory.resolve("journal")));
+        if (settings.isNbpRevalidate()) {
+            arguments.add("--clients.nbp.cache.retryInterval=PT0S");
+            arguments.add("--clients.nbp.cache.maxStaleness=PT0S");
+        }
+        return arguments.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.mszychiewicz.currencyexchange.CurrencyExchangeApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares buying currency with one request per command and with batches of commands, over HTTP against the
+ * whole application with cached rates from {@link NbpStandIn}. The best of a few rounds of each is written next
+ * to the load test report as {@code batch-commands.json}, earlier rounds warm the code up.
+ */
+class BatchCommandsLoadTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final int ACCOUNTS = 100;
+    private static final int COMMANDS = 10_000;
+    private static final int SINGLE_COMMANDS = COMMANDS / 10;
+    private static final int ROUNDS = 5;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    @Test
+    void givenAccounts_whenBuyingOnePerRequestOrInBatches_thenEveryCommandSucceeds() throws Exception {
+        //given
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        try (NbpStandIn nbp = new NbpStandIn(settings);
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(CurrencyExchangeApplication.class)
+                     .profiles(settings.getProfiles())
+                     .run("--server.port=0",
+                             "--clients.nbp.baseUrl=" + nbp.baseUrl(),
+                             "--clients.nbp.snapshot.path=",
+                             "--clients.nbp.history.backfillDays=0",
+                             "--accounts.journal.path=")) {
+            String accountsUrl = "http://localhost:"
+                    + ((WebServerApplicationContext) context).getWebServer().getPort() + "/accounts";
+            List<String> accountIds = new ArrayList<>();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                HttpResponse<String> opened = send(accountsUrl, "{\"firstName\": \"Jane\", \"lastName\": \"Doe\", "
+                        + "\"openingBalance\": \"100000.00\"}");
+                assertEquals(200, opened.statusCode());
+                accountIds.add(OBJECT_MAPPER.readTree(opened.body()).get("id").textValue());
+            }
+            String batch = batch(accountIds);
+
+            //when
+            long singleNanos = Long.MAX_VALUE;
+            long batchNanos = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < SINGLE_COMMANDS; i++) {
+                    HttpResponse<String> bought = send(accountsUrl + "/" + accountIds.get(i % ACCOUNTS)
+                            + "/buy-currency-commands", "{\"currencyCode\": \"USD\", \"amount\": \"0.01\"}");
+                    assertEquals(200, bought.statusCode());
+                }
+                singleNanos = Math.min(singleNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                HttpResponse<String> results = send(accountsUrl + "/batch-commands", batch);
+                batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+
+                //then
+                assertEquals(200, results.statusCode());
+                for (JsonNode result : OBJECT_MAPPER.readTree(results.body())) {
+                    assertTrue(result.get("success").booleanValue());
+                }
+            }
+            writeReport(settings.getReport().resolveSibling("batch-commands.json"), singleNanos, batchNanos);
+        }
+    }
+
+    private HttpResponse<String> send(String url, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String batch(List<String> accountIds) throws Exception {
+        ArrayNode commands = OBJECT_MAPPER.createArrayNode();
+        for (int i = 0; i < COMMANDS; i++) {
+            ObjectNode command = commands.addObject();
+            command.put("accountId", accountIds.get(i % ACCOUNTS));
+            command.put("side", "BUY");
+            command.put("currencyCode", "USD");
+            command.put("amount", "0.01");
+        }
+        return OBJECT_MAPPER.writeValueAsString(OBJECT_MAPPER.createObjectNode().set("commands", commands));
+    }
+
+    private static void writeReport(Path path, long singleNanos, long batchNanos) throws Exception {
+        ObjectNode report = OBJECT_MAPPER.createObjectNode();
+        report.put("finishedAt", Instant.now().toString());
+        report.put("rounds", ROUNDS);
+        ObjectNode single = report.putObject("onePerRequest");
+        single.put("commands", SINGLE_COMMANDS);
+        single.put("commandsPerSecond", SINGLE_COMMANDS * 1_000_000_000L / singleNanos);
+        ObjectNode batch = report.putObject("batch");
+        batch.put("commands", COMMANDS);
+        batch.put("commandsPerSecond", COMMANDS * 1_000_000_000L / batchNanos);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        OBJECT_MAPPER.writeValue(path.toFile(), report);
+        System.out.println(report.toPrettyString());
+    }
+}
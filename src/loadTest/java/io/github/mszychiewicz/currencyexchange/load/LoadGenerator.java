@@ -0,0 +1,198 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mszychiewicz.currencyexchange.load.LoadRecording.Outcome;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Sends a mix of account requests at a fixed rate. The schedule is open: a request is sent when its time comes
+ * whether or not earlier ones were answered, and its latency is counted from that time rather than from when it
+ * actually left, so a stalled service shows up in the percentiles instead of slowing the generator down.
+ */
+class LoadGenerator {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int OPENING_CONCURRENCY = 64;
+    private static final int OPENING_ATTEMPTS = 10;
+    private static final String OPENING_BALANCE = "1000000.00";
+    private static final String NEW_ACCOUNT_BALANCE = "1000.00";
+    private static final String HELD_AMOUNT = "1000.00";
+    private static final String TRADED_AMOUNT = "1.00";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String accountsUrl;
+    private final LoadTestSettings settings;
+    private final Operation[] weightedOperations;
+    // accounts opened up front come first, accounts opened by the mix are appended as their responses arrive
+    private final AtomicReferenceArray<String> accountIds;
+    private final AtomicInteger openedAccounts = new AtomicInteger();
+    private final Random random = new Random();
+
+    LoadGenerator(String baseUrl, LoadTestSettings settings) {
+        this.accountsUrl = baseUrl + "/accounts";
+        this.settings = settings;
+        this.weightedOperations = weightedOperations(settings.getMix());
+        this.accountIds = new AtomicReferenceArray<>(settings.getAccounts()
+                + settings.scheduledRequests(settings.getWarmUp()) + settings.scheduledRequests(settings.getDuration()));
+    }
+
+    /**
+     * Opens the configured number of accounts, each buying some of every traded currency so sells have
+     * something to sell. Requests the stand-in fails on purpose are retried. The first account is prepared on
+     * its own, its first buy loads the rate table that registers the currencies the others buy.
+     */
+    void openAccounts() {
+        prepareAccount().join();
+        for (int first = 1; first < settings.getAccounts(); first += OPENING_CONCURRENCY) {
+            List<CompletableFuture<String>> prepared = new ArrayList<>();
+            for (int i = first; i < Math.min(first + OPENING_CONCURRENCY, settings.getAccounts()); i++) {
+                prepared.add(prepareAccount());
+            }
+            prepared.forEach(CompletableFuture::join);
+        }
+    }
+
+    LoadRecording run(Duration phase) {
+        LoadRecording recording = new LoadRecording(settings.scheduledRequests(phase));
+        CompletableFuture<?>[] responses = new CompletableFuture[recording.requests()];
+        long start = System.nanoTime();
+        for (int request = 0; request < recording.requests(); request++) {
+            long scheduledAt = start + (long) (request * 1e9 / settings.getRate());
+            for (long wait = scheduledAt - System.nanoTime(); wait > 0; wait = scheduledAt - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+            int index = request;
+            responses[request] = send(operation).handle((status, failure) -> {
+                recording.record(index, operation, failure == null ? Outcome.of(status) : Outcome.FAILED,
+                        System.nanoTime() - scheduledAt);
+                return null;
+            });
+        }
+        CompletableFuture.allOf(responses).join();
+        recording.finish(System.nanoTime() - start);
+        return recording;
+    }
+
+    private CompletableFuture<Integer> send(Operation operation) {
+        switch (operation) {
+            case OPEN_ACCOUNT:
+                return openAccount(NEW_ACCOUNT_BALANCE).thenApply(response -> {
+                    if (Outcome.of(response.statusCode()) == Outcome.OK) {
+                        register(response);
+                    }
+                    return response.statusCode();
+                });
+            case GET_ACCOUNT:
+                return status(HttpRequest.newBuilder(URI.create(accountsUrl + "/" + randomAccountId()))
+                        .timeout(REQUEST_TIMEOUT)
+                        .GET()
+                        .build());
+            case BUY:
+                return status(trade(randomAccountId(), "buy-currency-commands", randomCurrency(), TRADED_AMOUNT));
+            case SELL:
+                return status(trade(randomAccountId(), "sell-currency-commands", randomCurrency(), TRADED_AMOUNT));
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> openAccount(String openingBalance) {
+        return client.sendAsync(post(accountsUrl, "{\"firstName\": \"Jane\", \"lastName\": \"Doe\", "
+                + "\"openingBalance\": \"" + openingBalance + "\"}"), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<String> prepareAccount() {
+        CompletableFuture<String> prepared = retried(() -> openAccount(OPENING_BALANCE)).thenApply(this::register);
+        for (String currencyCode : NbpStandIn.TRADED_CURRENCIES) {
+            prepared = prepared.thenCompose(accountId -> retried(() -> client.sendAsync(
+                    trade(accountId, "buy-currency-commands", currencyCode, HELD_AMOUNT),
+                    HttpResponse.BodyHandlers.discarding())).thenApply(bought -> accountId));
+        }
+        return prepared;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> retried(Supplier<CompletableFuture<HttpResponse<T>>> request) {
+        CompletableFuture<HttpResponse<T>> response = request.get();
+        for (int attempt = 1; attempt < OPENING_ATTEMPTS; attempt++) {
+            response = response.thenCompose(previous -> Outcome.of(previous.statusCode()) == Outcome.UNAVAILABLE
+                    ? request.get()
+                    : CompletableFuture.completedFuture(previous));
+        }
+        return response.thenApply(last -> {
+            if (Outcome.of(last.statusCode()) != Outcome.OK) {
+                throw new IllegalStateException("Could not prepare an account, " + last.request().uri()
+                        + " answered " + last.statusCode());
+            }
+            return last;
+        });
+    }
+
+    private CompletableFuture<Integer> status(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(HttpResponse::statusCode);
+    }
+
+    private HttpRequest trade(String accountId, String command, String currencyCode, String amount) {
+        return post(accountsUrl + "/" + accountId + "/" + command,
+                "{\"currencyCode\": \"" + currencyCode + "\", \"amount\": \"" + amount + "\"}");
+    }
+
+    private String register(HttpResponse<String> opened) {
+        try {
+            String accountId = objectMapper.readTree(opened.body()).get("id").textValue();
+            accountIds.set(openedAccounts.getAndIncrement(), accountId);
+            return accountId;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String randomAccountId() {
+        String accountId = accountIds.get(random.nextInt(openedAccounts.get()));
+        // claimed by an account whose id is still being stored, the accounts opened up front are always there
+        return accountId != null ? accountId : accountIds.get(random.nextInt(settings.getAccounts()));
+    }
+
+    private String randomCurrency() {
+        return NbpStandIn.TRADED_CURRENCIES[random.nextInt(NbpStandIn.TRADED_CURRENCIES.length)];
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static Operation[] weightedOperations(Map<Operation, Integer> mix) {
+        List<Operation> operations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        return operations.toArray(new Operation[0]);
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import java.util.Arrays;
+
+/**
+ * Operation, outcome and latency of every request scheduled in one phase, indexed by the order they were
+ * scheduled in. Each request writes only its own slot, so recording takes no lock and allocates nothing.
+ */
+class LoadRecording {
+    private final Operation[] operations;
+    private final Outcome[] outcomes;
+    private final long[] latencyNanos;
+    private long elapsedNanos;
+
+    LoadRecording(int requests) {
+        operations = new Operation[requests];
+        outcomes = new Outcome[requests];
+        latencyNanos = new long[requests];
+    }
+
+    void record(int request, Operation operation, Outcome outcome, long latencyNanos) {
+        operations[request] = operation;
+        outcomes[request] = outcome;
+        this.latencyNanos[request] = latencyNanos;
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    int requests() {
+        return operations.length;
+    }
+
+    long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    long count(Operation operation, Outcome outcome) {
+        long count = 0;
+        for (int i = 0; i < operations.length; i++) {
+            if ((operation == null || operations[i] == operation) && outcomes[i] == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sorted latencies of the operation's requests whatever their outcome, of all requests if it is {@code null}.
+     */
+    long[] sortedLatencyNanos(Operation operation) {
+        long[] latencies = new long[operations.length];
+        int count = 0;
+        for (int i = 0; i < operations.length; i++) {
+            if (operation == null || operations[i] == operation) {
+                latencies[count++] = latencyNanos[i];
+            }
+        }
+        latencies = Arrays.copyOf(latencies, count);
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    enum Outcome {
+        OK,
+        // insufficient funds, unsupported currency or a lost race, the answers a healthy service gives
+        REJECTED,
+        // NBP failed, was cut off by the circuit breaker or the bulkhead was full
+        UNAVAILABLE,
+        // anything else, including requests that got no answer at all
+        FAILED;
+
+        static Outcome of(int status) {
+            if (status >= 200 && status < 300) {
+                return OK;
+            }
+            if (status == 403 || status == 409) {
+                return REJECTED;
+            }
+            return status == 503 ? UNAVAILABLE : FAILED;
+        }
+    }
+}
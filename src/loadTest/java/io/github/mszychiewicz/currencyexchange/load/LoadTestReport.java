@@ -0,0 +1,88 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.mszychiewicz.currencyexchange.load.LoadRecording.Outcome;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Summary of a measured phase as JSON: the settings it ran with, then throughput, outcome counts and latency
+ * percentiles of all requests together and of every operation on its own. Latencies are in milliseconds.
+ */
+class LoadTestReport {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final ObjectNode report = OBJECT_MAPPER.createObjectNode();
+
+    LoadTestReport(LoadTestSettings settings, LoadRecording recording, int nbpTableRequests) {
+        report.put("finishedAt", Instant.now().toString());
+        ObjectNode run = report.putObject("settings");
+        run.put("targetRate", settings.getRate());
+        run.put("duration", settings.getDuration().toString());
+        run.put("warmUp", settings.getWarmUp().toString());
+        run.put("accounts", settings.getAccounts());
+        run.put("profiles", String.join(",", settings.getProfiles()));
+        ObjectNode mix = run.putObject("mix");
+        settings.getMix().forEach((operation, weight) -> mix.put(operation.label(), weight));
+        ObjectNode nbp = run.putObject("nbp");
+        nbp.put("latencyMillis", settings.getNbpLatencyMillis());
+        nbp.put("latencySigma", settings.getNbpLatencySigma());
+        nbp.put("errorRate", settings.getNbpErrorRate());
+        nbp.put("faultRate", settings.getNbpFaultRate());
+        nbp.put("revalidate", settings.isNbpRevalidate());
+        nbp.put("tableRequests", nbpTableRequests);
+
+        summarize(report.putObject("all"), recording, null);
+        ObjectNode operations = report.putObject("operations");
+        for (Operation operation : Operation.values()) {
+            if (settings.getMix().getOrDefault(operation, 0) > 0) {
+                summarize(operations.putObject(operation.label()), recording, operation);
+            }
+        }
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        OBJECT_MAPPER.writeValue(path.toFile(), report);
+    }
+
+    @Override
+    public String toString() {
+        return report.toPrettyString();
+    }
+
+    private static void summarize(ObjectNode summary, LoadRecording recording, Operation operation) {
+        long[] latencies = recording.sortedLatencyNanos(operation);
+        summary.put("requests", latencies.length);
+        summary.put("throughput", round(latencies.length * 1e9 / recording.elapsedNanos()));
+        ObjectNode outcomes = summary.putObject("outcomes");
+        Arrays.stream(Outcome.values()).forEach(outcome ->
+                outcomes.put(outcome.name().toLowerCase(Locale.ROOT), recording.count(operation, outcome)));
+        ObjectNode latency = summary.putObject("latencyMillis");
+        latency.put("p50", millis(percentile(latencies, 0.5)));
+        latency.put("p99", millis(percentile(latencies, 0.99)));
+        latency.put("p999", millis(percentile(latencies, 0.999)));
+        latency.put("max", millis(latencies.length == 0 ? 0 : latencies[latencies.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted.length == 0 ? 0 : sorted[Math.max((int) Math.ceil(quantile * sorted.length) - 1, 0)];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
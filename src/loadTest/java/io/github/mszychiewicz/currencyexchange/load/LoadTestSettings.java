@@ -0,0 +1,78 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Knobs of a load test run, read from {@code load.*} system properties so the Gradle task can pass them on:
+ * <pre>
+ *     ./gradlew loadTest -Pload.rate=500 -Pload.duration=PT1M -Pload.nbp.latencyMillis=150 -Pload.nbp.errorRate=0.05
+ * </pre>
+ */
+@Value
+class LoadTestSettings {
+    // requests per second the generator schedules, whether or not earlier ones have been answered
+    double rate;
+    Duration warmUp;
+    Duration duration;
+    // accounts opened before the run, each holding PLN and some of every traded currency
+    int accounts;
+    Map<Operation, Integer> mix;
+    String[] profiles;
+    long nbpLatencyMillis;
+    // sigma of the log-normal NBP delay around the median above, 0 delays every response exactly that long
+    double nbpLatencySigma;
+    double nbpErrorRate;
+    double nbpFaultRate;
+    // the stand-in serves an outdated table and the cache keeps nothing, so every trade waits for NBP
+    boolean nbpRevalidate;
+    Path report;
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Double.parseDouble(property("load.rate", "200")),
+                Duration.parse(property("load.warmUp", "PT10S")),
+                Duration.parse(property("load.duration", "PT30S")),
+                Integer.parseInt(property("load.accounts", "1000")),
+                mix(property("load.mix", "open-account=5,get-account=45,buy=25,sell=25")),
+                Arrays.stream(property("load.profiles", "").split(","))
+                        .filter(profile -> !profile.isBlank())
+                        .toArray(String[]::new),
+                Long.parseLong(property("load.nbp.latencyMillis", "50")),
+                Double.parseDouble(property("load.nbp.latencySigma", "0.5")),
+                Double.parseDouble(property("load.nbp.errorRate", "0")),
+                Double.parseDouble(property("load.nbp.faultRate", "0")),
+                Boolean.parseBoolean(property("load.nbp.revalidate", "false")),
+                Path.of(property("load.report", "build/reports/load-test/load-test.json"))
+        );
+    }
+
+    int scheduledRequests(Duration phase) {
+        return (int) Math.ceil(rate * phase.toNanos() / 1e9);
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    private static Map<Operation, Integer> mix(String weights) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String weight : weights.split(",")) {
+            String[] nameAndWeight = weight.split("=");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in load.mix, got " + weight);
+            }
+            mix.put(Operation.named(nameAndWeight[0].trim()), Integer.parseInt(nameAndWeight[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("load.mix needs a positive weight");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * In-process WireMock server answering the NBP rate table request the way the settings describe: every answer is
+ * delayed around the configured median, a share of them fails with 503 and another share drops the connection.
+ */
+class NbpStandIn implements AutoCloseable {
+    static final String[] TRADED_CURRENCIES = {"USD", "EUR", "GBP", "CHF"};
+
+    private static final String TABLES_PATH = "/api/exchangerates/tables/c/";
+    private static final int CONTAINER_THREADS = 64;
+    private static final int OUTDATED_DAYS = 30;
+
+    private final WireMockServer server;
+
+    NbpStandIn(LoadTestSettings settings) {
+        server = new WireMockServer(options()
+                .dynamicPort()
+                .containerThreads(CONTAINER_THREADS)
+                .extensions(new ErrorProfile(settings.getNbpErrorRate(), settings.getNbpFaultRate())));
+        server.start();
+
+        ResponseDefinitionBuilder table = aResponse()
+                .withStatus(HttpStatus.OK.value())
+                .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .withBody(table(settings.isNbpRevalidate() ? LocalDate.now().minusDays(OUTDATED_DAYS) : LocalDate.now()));
+        if (settings.getNbpLatencySigma() > 0) {
+            table.withLogNormalRandomDelay(settings.getNbpLatencyMillis(), settings.getNbpLatencySigma());
+        } else {
+            table.withFixedDelay((int) settings.getNbpLatencyMillis());
+        }
+        server.stubFor(get(urlEqualTo(TABLES_PATH)).willReturn(table));
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    int tableRequests() {
+        return server.countRequestsMatching(getRequestedFor(urlEqualTo(TABLES_PATH)).build()).getCount();
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+
+    private static String table(LocalDate effectiveDate) {
+        StringBuilder rates = new StringBuilder();
+        for (int i = 0; i < TRADED_CURRENCIES.length; i++) {
+            rates.append(i == 0 ? "" : ", ")
+                    .append("{\"currency\": \"").append(TRADED_CURRENCIES[i])
+                    .append("\", \"code\": \"").append(TRADED_CURRENCIES[i])
+                    .append("\", \"bid\": ").append(3.8 + i * 0.4)
+                    .append(", \"ask\": ").append(3.9 + i * 0.4).append("}");
+        }
+        return "[{\"table\": \"C\", \"no\": \"001/C/NBP/" + effectiveDate.getYear() + "\", "
+                + "\"tradingDate\": \"" + effectiveDate.minusDays(1) + "\", "
+                + "\"effectiveDate\": \"" + effectiveDate + "\", \"rates\": [" + rates + "]}]";
+    }
+
+    /**
+     * Applied to every stubbed answer, the delay of the stub is kept so failures take as long as NBP would.
+     */
+    private static class ErrorProfile extends ResponseDefinitionTransformer {
+        private final double errorRate;
+        private final double faultRate;
+
+        ErrorProfile(double errorRate, double faultRate) {
+            this.errorRate = errorRate;
+            this.faultRate = faultRate;
+        }
+
+        @Override
+        public ResponseDefinition transform(Request request, ResponseDefinition response, FileSource files,
+                                            Parameters parameters) {
+            double draw = ThreadLocalRandom.current().nextDouble();
+            if (draw < faultRate) {
+                return ResponseDefinitionBuilder.like(response)
+                        .withFault(Fault.CONNECTION_RESET_BY_PEER)
+                        .build();
+            }
+            if (draw < faultRate + errorRate) {
+                return ResponseDefinitionBuilder.like(response)
+                        .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+                        .withBody("")
+                        .build();
+            }
+            return response;
+        }
+
+        @Override
+        public String getName() {
+            return "nbp-error-profile";
+        }
+    }
+}
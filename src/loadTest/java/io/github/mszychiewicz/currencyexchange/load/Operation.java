@@ -0,0 +1,27 @@
+package io.github.mszychiewicz.currencyexchange.load;
+
+import java.util.Arrays;
+
+enum Operation {
+    OPEN_ACCOUNT("open-account"),
+    GET_ACCOUNT("get-account"),
+    BUY("buy"),
+    SELL("sell");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    String label() {
+        return label;
+    }
+
+    static Operation named(String label) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.label.equals(label))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + label));
+    }
+}
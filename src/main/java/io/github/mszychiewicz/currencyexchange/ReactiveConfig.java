@@ -0,0 +1,21 @@
+package io.github.mszychiewicz.currencyexchange;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Serves the reactive profile with WebFlux on Netty, whose event loop threads are never held by a request
+ * waiting for rates, its account or the journal. Tomcat stays on the classpath for the MVC stack and Spring Boot
+ * would pick it for a reactive application too, so the Netty server is declared here.
+ */
+@Profile("reactive")
+@Configuration
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
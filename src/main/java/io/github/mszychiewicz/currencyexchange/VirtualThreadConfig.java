@@ -0,0 +1,46 @@
+package io.github.mszychiewicz.currencyexchange;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs Tomcat request handling and NBP client callbacks on virtual threads, one per task, so requests waiting
+ * for rates or the journal are no longer limited by a bounded pool. Virtual threads need Java 21 while the build
+ * targets Java 11, so their executor is looked up reflectively and the profile fails on startup on older runtimes.
+ * <p>
+ * A virtual thread blocked inside a {@code synchronized} block stays pinned to its carrier thread, so the locks
+ * taken on the trade path, where a holder may map files, force the journal or wait for a direct allocation, are
+ * {@link java.util.concurrent.locks.ReentrantLock}s rather than monitors.
+ */
+@Profile("virtual-threads")
+@Configuration
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean
+    public ExecutorService nbpClientExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("The virtual-threads profile needs Java 21 or later, running on "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+}
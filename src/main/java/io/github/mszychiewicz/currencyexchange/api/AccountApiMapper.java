@@ -1,71 +1,229 @@
 package io.github.mszychiewicz.currencyexchange.api;
 
+import io.github.mszychiewicz.currencyexchange.api.request.BatchCommandRequest;
 import io.github.mszychiewicz.currencyexchange.api.request.BuyCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.CurrencyCommandRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.ExchangeCurrencyRequest;
 import io.github.mszychiewicz.currencyexchange.api.request.OpenAccountRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.QuoteRequest;
 import io.github.mszychiewicz.currencyexchange.api.request.SellCurrencyRequest;
 import io.github.mszychiewicz.currencyexchange.api.response.AccountResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.CommandResultResponse;
 import io.github.mszychiewicz.currencyexchange.api.response.OpenAccountResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.QuoteResponse;
 import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.CommandResult;
+import io.github.mszychiewicz.currencyexchange.domain.Money;
+import io.github.mszychiewicz.currencyexchange.domain.Quote;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
 import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.CurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.ExchangeCurrencyCommand;
 import io.github.mszychiewicz.currencyexchange.domain.command.OpenAccountCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.RequestQuoteCommand;
 import io.github.mszychiewicz.currencyexchange.domain.command.SellCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.exception.AccountNotFoundException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.CurrencyNotSupportedException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ExchangeRateUnavailableException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InsufficientFundsException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidAmountException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidQuoteException;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Currency;
-import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
 
 @Component
+@RequiredArgsConstructor
 class AccountApiMapper {
+    private final SupportedCurrencies supportedCurrencies;
+
     public OpenAccountCommand toCommand(OpenAccountRequest request) {
         return new OpenAccountCommand(
                 request.getFirstName(),
                 request.getLastName(),
-                request.getOpeningBalance()
+                toMinorUnits(request.getOpeningBalance(), PLN.getCurrency())
         );
     }
 
+    // buy and sell requests arrive decoded and validated, see CurrencyTradeRequestDeserializer
     public BuyCurrencyCommand toCommand(UUID id, BuyCurrencyRequest request) {
-        validateCurrencyCode(request.getCurrencyCode());
-        return new BuyCurrencyCommand(
+        return new BuyCurrencyCommand(id, request.getCurrency(), request.getAmount(), request.getQuoteId());
+    }
+
+    public SellCurrencyCommand toCommand(UUID id, SellCurrencyRequest request) {
+        return new SellCurrencyCommand(id, request.getCurrency(), request.getAmount(), request.getQuoteId());
+    }
+
+    public ExchangeCurrencyCommand toCommand(UUID id, ExchangeCurrencyRequest request) {
+        validateCurrencyCode(request.getFromCurrencyCode());
+        validateCurrencyCode(request.getToCurrencyCode());
+        if (request.getFromCurrencyCode().equals(request.getToCurrencyCode())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+        Currency from = Currency.getInstance(request.getFromCurrencyCode());
+        return new ExchangeCurrencyCommand(
                 id,
-                Currency.getInstance(request.getCurrencyCode()),
-                request.getAmount()
+                from,
+                Currency.getInstance(request.getToCurrencyCode()),
+                toMinorUnits(request.getAmount(), from)
         );
     }
 
-    public SellCurrencyCommand toCommand(UUID id, SellCurrencyRequest request) {
+    public RequestQuoteCommand toCommand(UUID id, QuoteRequest request) {
         validateCurrencyCode(request.getCurrencyCode());
-        return new SellCurrencyCommand(
+        Currency currency = Currency.getInstance(request.getCurrencyCode());
+        return new RequestQuoteCommand(
                 id,
-                Currency.getInstance(request.getCurrencyCode()),
-                request.getAmount()
+                request.getSide(),
+                currency,
+                toMinorUnits(request.getAmount(), currency)
         );
     }
 
+    /**
+     * Reads both halves of an account id in its canonical text form with a single validation and looks the account
+     * up by them, lookups by both halves need no {@link UUID} to be allocated for a path variable.
+     */
+    public <T> T findByAccountId(String id, AccountIdLookup<T> lookup) {
+        validateAccountId(id);
+        return lookup.find(hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18),
+                hex(id, 19, 23) << 48 | hex(id, 24, 36));
+    }
+
+    private static void validateAccountId(String id) {
+        if (id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static long hex(String id, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(id.charAt(i), 16);
+            if (digit < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Maps a batch of commands, a malformed command has already failed the whole batch while it was decoded.
+     */
+    public List<CurrencyCommand> toCommands(BatchCommandRequest request) {
+        List<CurrencyCommand> commands = new ArrayList<>(request.getCommands().size());
+        for (CurrencyCommandRequest command : request.getCommands()) {
+            commands.add(command.getSide() == QuoteSide.SELL
+                    ? new SellCurrencyCommand(command.getAccountId(), command.getCurrency(), command.getAmount(),
+                    command.getQuoteId())
+                    : new BuyCurrencyCommand(command.getAccountId(), command.getCurrency(), command.getAmount(),
+                    command.getQuoteId()));
+        }
+        return commands;
+    }
+
     private void validateCurrencyCode(String code) {
-        Set<String> currencyCodes = Currency.getAvailableCurrencies()
-                .stream()
-                .map(Currency::getCurrencyCode)
-                .collect(Collectors.toSet());
-        if (!currencyCodes.contains(code)) {
+        if (!SupportedCurrencies.isCurrencyCode(code)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private long toMinorUnits(BigDecimal amount, Currency currency) {
+        try {
+            return Money.toMinorUnits(amount, currency);
+        } catch (ArithmeticException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
         }
     }
 
+    // PLN, the account base currency, and every currency the account holds, not each registered one at zero
     public AccountResponse toResponse(Account account) {
+        Map<Currency, BigDecimal> balances = new LinkedHashMap<>();
+        for (SupportedCurrency currency : supportedCurrencies.values()) {
+            long balance = account.getBalance(currency);
+            if (balance != 0 || currency == PLN) {
+                balances.put(currency.getCurrency(), Money.toBigDecimal(balance, currency.getCurrency()));
+            }
+        }
         return new AccountResponse(
                 account.getId(),
                 account.getFirstName(),
                 account.getLastName(),
-                account.getBalances()
+                balances
         );
     }
 
     public OpenAccountResponse toResponse(UUID accountId) {
         return new OpenAccountResponse(accountId);
     }
+
+    public List<CommandResultResponse> toResponse(List<CommandResult> results) {
+        List<CommandResultResponse> responses = new ArrayList<>(results.size());
+        for (CommandResult result : results) {
+            if (result.isSuccess()) {
+                responses.add(new CommandResultResponse(true, HttpStatus.OK.value(), null));
+            } else {
+                HttpStatus status = statusOf(result.getError());
+                String error = status.is5xxServerError() || result.getError() instanceof ResponseStatusException
+                        ? status.getReasonPhrase()
+                        : result.getError().getMessage();
+                responses.add(new CommandResultResponse(false, status.value(), error));
+            }
+        }
+        return responses;
+    }
+
+    // same statuses AccountExceptionHandler answers commands sent on their own with
+    private static HttpStatus statusOf(RuntimeException error) {
+        if (error instanceof AccountNotFoundException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (error instanceof InsufficientFundsException || error instanceof CurrencyNotSupportedException) {
+            return HttpStatus.FORBIDDEN;
+        }
+        if (error instanceof InvalidQuoteException || error instanceof ConcurrentAccountUpdateException) {
+            return HttpStatus.CONFLICT;
+        }
+        if (error instanceof ExchangeRateUnavailableException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        if (error instanceof InvalidAmountException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (error instanceof ResponseStatusException) {
+            return ((ResponseStatusException) error).getStatus();
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    public QuoteResponse toResponse(Quote quote) {
+        return new QuoteResponse(
+                quote.getId(),
+                quote.getSide(),
+                quote.getCurrency(),
+                Money.toBigDecimal(quote.getAmount(), quote.getCurrency()),
+                quote.getExchangeRate(),
+                quote.getExpiresAt()
+        );
+    }
+
+    @FunctionalInterface
+    public interface AccountIdLookup<T> {
+        T find(long mostSignificantBits, long leastSignificantBits);
+    }
 }
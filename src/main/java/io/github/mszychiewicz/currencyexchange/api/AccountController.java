@@ -1,12 +1,18 @@
 package io.github.mszychiewicz.currencyexchange.api;
 
+import io.github.mszychiewicz.currencyexchange.api.request.BatchCommandRequest;
 import io.github.mszychiewicz.currencyexchange.api.request.BuyCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.ExchangeCurrencyRequest;
 import io.github.mszychiewicz.currencyexchange.api.request.OpenAccountRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.QuoteRequest;
 import io.github.mszychiewicz.currencyexchange.api.request.SellCurrencyRequest;
 import io.github.mszychiewicz.currencyexchange.api.response.AccountResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.CommandResultResponse;
 import io.github.mszychiewicz.currencyexchange.api.response.OpenAccountResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.QuoteResponse;
 import io.github.mszychiewicz.currencyexchange.domain.AccountService;
 import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,8 +24,10 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 import javax.validation.Valid;
+import java.util.List;
 import java.util.UUID;
 
+@Profile("!reactive")
 @Controller
 @AllArgsConstructor
 @RequestMapping("/accounts")
@@ -29,8 +37,8 @@ public class AccountController {
 
     @GetMapping("/{id}")
     public @ResponseBody
-    AccountResponse getById(@PathVariable("id") UUID id) {
-        return accountApiMapper.toResponse(accountService.getById(id));
+    AccountResponse getById(@PathVariable("id") String id) {
+        return accountApiMapper.toResponse(accountApiMapper.findByAccountId(id, accountService::getById));
     }
 
     @PostMapping
@@ -40,17 +48,37 @@ public class AccountController {
         return accountApiMapper.toResponse(accountId);
     }
 
+    @PostMapping("/{id}/exchange-currency-commands")
+    @ResponseStatus(HttpStatus.OK)
+    public void exchangeCurrency(@PathVariable("id") UUID id,
+                                 @Valid @RequestBody ExchangeCurrencyRequest request) {
+        accountService.exchangeCurrency(accountApiMapper.toCommand(id, request));
+    }
+
+    @PostMapping("/batch-commands")
+    public @ResponseBody
+    List<CommandResultResponse> executeCommands(@Valid @RequestBody BatchCommandRequest request) {
+        return accountApiMapper.toResponse(accountService.executeCommands(accountApiMapper.toCommands(request)));
+    }
+
+    @PostMapping("/{id}/quotes")
+    public @ResponseBody
+    QuoteResponse requestQuote(@PathVariable("id") UUID id,
+                               @Valid @RequestBody QuoteRequest request) {
+        return accountApiMapper.toResponse(accountService.requestQuote(accountApiMapper.toCommand(id, request)));
+    }
+
     @PostMapping("/{id}/buy-currency-commands")
     @ResponseStatus(HttpStatus.OK)
     public void buyCurrency(@PathVariable("id") UUID id,
-                            @Valid @RequestBody BuyCurrencyRequest request) {
+                            @RequestBody BuyCurrencyRequest request) {
         accountService.buyCurrency(accountApiMapper.toCommand(id, request));
     }
 
     @PostMapping("/{id}/sell-currency-commands")
     @ResponseStatus(HttpStatus.OK)
     public void sellCurrency(@PathVariable("id") UUID id,
-                             @Valid @RequestBody SellCurrencyRequest request) {
+                             @RequestBody SellCurrencyRequest request) {
         accountService.sellCurrency(accountApiMapper.toCommand(id, request));
     }
 }
@@ -1,16 +1,20 @@
 package io.github.mszychiewicz.currencyexchange.api;
 
 import io.github.mszychiewicz.currencyexchange.domain.exception.AccountNotFoundException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.CurrencyNotSupportedException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ExchangeRateUnavailableException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.InsufficientFundsException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidAmountException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidDateRangeException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidQuoteException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
-class AccountExceptionHandler extends ResponseEntityExceptionHandler {
+class AccountExceptionHandler {
 
     @ExceptionHandler(AccountNotFoundException.class)
     public ResponseEntity<Object> handleAccountNotFoundException(
@@ -32,4 +36,39 @@ class AccountExceptionHandler extends ResponseEntityExceptionHandler {
         String body = ex.getMessage();
         return new ResponseEntity<>(body, HttpStatus.FORBIDDEN);
     }
+
+    @ExceptionHandler(InvalidQuoteException.class)
+    public ResponseEntity<Object> handleInvalidQuoteException(
+            InvalidQuoteException ex) {
+        String body = ex.getMessage();
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InvalidAmountException.class)
+    public ResponseEntity<Object> handleInvalidAmountException(
+            InvalidAmountException ex) {
+        String body = ex.getMessage();
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidDateRangeException.class)
+    public ResponseEntity<Object> handleInvalidDateRangeException(
+            InvalidDateRangeException ex) {
+        String body = ex.getMessage();
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ExchangeRateUnavailableException.class)
+    public ResponseEntity<Object> handleExchangeRateUnavailableException(
+            ExchangeRateUnavailableException ex) {
+        String body = ex.getMessage();
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(ConcurrentAccountUpdateException.class)
+    public ResponseEntity<Object> handleConcurrentAccountUpdateException(
+            ConcurrentAccountUpdateException ex) {
+        String body = ex.getMessage();
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
 }
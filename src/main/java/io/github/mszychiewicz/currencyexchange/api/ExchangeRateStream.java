@@ -0,0 +1,308 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import io.github.mszychiewicz.currencyexchange.api.response.ExchangeRateResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.RateUpdateResponse;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fans rate table refreshes out to SSE subscribers. Connections are held by the servlet container's async
+ * support or, in the reactive profile, by a {@link Flux} WebFlux writes. Reactive writes never block and happen
+ * on a small shared pool, servlet writes block until the client takes the bytes and each runs on a thread of its
+ * own, so a slow client holds up nobody else.
+ * <p>
+ * Each subscriber has at most one pending update: refreshes arriving while a write is still in flight, or before
+ * a reactive subscriber requests more, are merged into it. A subscriber whose write fails, or is still unfinished
+ * after the send timeout, is dropped.
+ */
+@Component
+class ExchangeRateStream {
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String DELTA_EVENT = "delta";
+
+    private final Duration timeout;
+    private final long sendTimeoutNanos;
+    private final ExecutorService sender;
+    private final ExecutorService writer;
+    private final ScheduledExecutorService watchdog;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private volatile ExchangeRateTable latest;
+
+    public ExchangeRateStream(@Value("${rates.stream.timeout}") Duration timeout,
+                              @Value("${rates.stream.sendTimeout}") Duration sendTimeout,
+                              @Value("${rates.stream.threads}") int threads) {
+        this.timeout = timeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.sender = Executors.newFixedThreadPool(threads, daemon("rate-stream"));
+        this.writer = Executors.newCachedThreadPool(daemon("rate-stream-writer"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemon("rate-stream-watchdog"));
+        long period = Math.max(1, sendTimeout.toMillis() / 2);
+        watchdog.scheduleAtFixedRate(this::dropStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = subscribe(new EmitterSink(emitter));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Subscribes a sink whose writes block, each of its writes runs on the writer pool.
+     */
+    Subscriber subscribe(Sink sink) {
+        Subscriber subscriber = new Subscriber(sink, writer);
+        add(subscriber);
+        return subscriber;
+    }
+
+    public Flux<ServerSentEvent<RateUpdateResponse>> subscribeReactive() {
+        return Flux.<ServerSentEvent<RateUpdateResponse>>create(sink -> {
+            Subscriber subscriber = new Subscriber(new FluxSinkAdapter(sink), sender);
+            sink.onDispose(() -> subscribers.remove(subscriber));
+            sink.onRequest(requested -> subscriber.schedule());
+            add(subscriber);
+        }).take(timeout);
+    }
+
+    private void add(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        ExchangeRateTable table = latest;
+        if (table != null) {
+            subscriber.offer(new Update(SNAPSHOT_EVENT, table.getEffectiveDate(), table.getRates()));
+        }
+    }
+
+    @EventListener
+    public void onExchangeRateTableRefreshed(ExchangeRateTableRefreshedEvent event) {
+        ExchangeRateTable previous = latest;
+        ExchangeRateTable table = event.getTable();
+        latest = table;
+        Update update = previous == null
+                ? new Update(SNAPSHOT_EVENT, table.getEffectiveDate(), table.getRates())
+                : new Update(DELTA_EVENT, table.getEffectiveDate(), changedRates(previous, table));
+        if (update.rates.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(update);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        watchdog.shutdownNow();
+        sender.shutdownNow();
+        writer.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.sink.complete());
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isSendingSince(now - sendTimeoutNanos) && subscribers.remove(subscriber)) {
+                // completing waits for the stuck write to give up, which must not hold up the watchdog
+                writer.execute(() -> subscriber.sink.completeWithError(
+                        new TimeoutException("Rate update not written within the send timeout")));
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Map<Currency, ExchangeRate> changedRates(ExchangeRateTable previous, ExchangeRateTable table) {
+        Map<Currency, ExchangeRate> changed = new HashMap<>();
+        table.getRates().forEach((currency, rate) -> {
+            if (!Objects.equals(previous.getRates().get(currency), rate)) {
+                changed.put(currency, rate);
+            }
+        });
+        return changed;
+    }
+
+    static final class Update {
+        final String name;
+        final LocalDate effectiveDate;
+        final Map<Currency, ExchangeRate> rates;
+
+        Update(String name, LocalDate effectiveDate, Map<Currency, ExchangeRate> rates) {
+            this.name = name;
+            this.effectiveDate = effectiveDate;
+            this.rates = rates;
+        }
+
+        Update coalesce(Update next) {
+            Map<Currency, ExchangeRate> rates = new HashMap<>(this.rates);
+            rates.putAll(next.rates);
+            // a snapshot that was never delivered stays a snapshot
+            String coalescedName = SNAPSHOT_EVENT.equals(name) ? name : next.name;
+            return new Update(coalescedName, next.effectiveDate, rates);
+        }
+
+        RateUpdateResponse toResponse() {
+            Map<Currency, ExchangeRateResponse> response = new HashMap<>();
+            rates.forEach((currency, rate) -> response.put(currency, new ExchangeRateResponse(rate.getAsk(), rate.getBid())));
+            return new RateUpdateResponse(effectiveDate, response);
+        }
+    }
+
+    /**
+     * Connection a subscriber's updates are written to.
+     */
+    interface Sink {
+        /**
+         * Whether an update can be written now, updates wait in the pending one until it can.
+         */
+        boolean isReady();
+
+        void send(Update update) throws IOException;
+
+        void completeWithError(Throwable failure);
+
+        void complete();
+    }
+
+    private static final class EmitterSink implements Sink {
+        final SseEmitter emitter;
+
+        EmitterSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public boolean isReady() {
+            // the write itself blocks, updates merge into the pending one while it does
+            return true;
+        }
+
+        @Override
+        public void send(Update update) throws IOException {
+            emitter.send(SseEmitter.event().name(update.name).data(update.toResponse()));
+        }
+
+        @Override
+        public void completeWithError(Throwable failure) {
+            emitter.completeWithError(failure);
+        }
+
+        @Override
+        public void complete() {
+            emitter.complete();
+        }
+    }
+
+    private static final class FluxSinkAdapter implements Sink {
+        final FluxSink<ServerSentEvent<RateUpdateResponse>> sink;
+
+        FluxSinkAdapter(FluxSink<ServerSentEvent<RateUpdateResponse>> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public boolean isReady() {
+            return sink.requestedFromDownstream() > 0;
+        }
+
+        @Override
+        public void send(Update update) {
+            sink.next(ServerSentEvent.builder(update.toResponse()).event(update.name).build());
+        }
+
+        @Override
+        public void completeWithError(Throwable failure) {
+            sink.error(failure);
+        }
+
+        @Override
+        public void complete() {
+            sink.complete();
+        }
+    }
+
+    final class Subscriber {
+        final Sink sink;
+        final Executor writes;
+        final AtomicReference<Update> pending = new AtomicReference<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        // System.nanoTime() at which the write in progress started, read only while sending
+        volatile long sendingSince;
+        volatile boolean sending;
+
+        Subscriber(Sink sink, Executor writes) {
+            this.sink = sink;
+            this.writes = writes;
+        }
+
+        void offer(Update update) {
+            pending.accumulateAndGet(update, (current, next) -> current == null ? next : current.coalesce(next));
+            schedule();
+        }
+
+        void schedule() {
+            if (pending.get() != null && draining.compareAndSet(false, true)) {
+                writes.execute(this::drain);
+            }
+        }
+
+        boolean isSendingSince(long nanos) {
+            return sending && sendingSince - nanos < 0;
+        }
+
+        private void drain() {
+            do {
+                Update update;
+                while (sink.isReady() && (update = pending.getAndSet(null)) != null) {
+                    sendingSince = System.nanoTime();
+                    sending = true;
+                    try {
+                        sink.send(update);
+                    } catch (IOException | IllegalStateException e) {
+                        if (subscribers.remove(this)) {
+                            sink.completeWithError(e);
+                        }
+                        return;
+                    } finally {
+                        sending = false;
+                    }
+                }
+                draining.set(false);
+            } while (sink.isReady() && pending.get() != null && draining.compareAndSet(false, true));
+        }
+    }
+}
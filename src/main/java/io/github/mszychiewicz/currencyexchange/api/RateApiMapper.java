@@ -0,0 +1,36 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import io.github.mszychiewicz.currencyexchange.api.response.ExchangeRateHistoryResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.HistoricalExchangeRateResponse;
+import io.github.mszychiewicz.currencyexchange.domain.HistoricalExchangeRate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Currency;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+class RateApiMapper {
+    public Currency toCurrency(String code) {
+        try {
+            return Currency.getInstance(code);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    public ExchangeRateHistoryResponse toResponse(Currency currency, List<HistoricalExchangeRate> rates) {
+        return new ExchangeRateHistoryResponse(
+                currency,
+                rates.stream()
+                        .map(rate -> new HistoricalExchangeRateResponse(
+                                rate.getEffectiveDate(),
+                                rate.getAsk(),
+                                rate.getBid()
+                        ))
+                        .collect(Collectors.toList())
+        );
+    }
+}
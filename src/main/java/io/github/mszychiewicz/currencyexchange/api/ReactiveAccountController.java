@@ -0,0 +1,92 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import io.github.mszychiewicz.currencyexchange.api.request.BatchCommandRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.BuyCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.ExchangeCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.OpenAccountRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.QuoteRequest;
+import io.github.mszychiewicz.currencyexchange.api.request.SellCurrencyRequest;
+import io.github.mszychiewicz.currencyexchange.api.response.AccountResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.CommandResultResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.OpenAccountResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.QuoteResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves the routes of {@link AccountController} in the reactive profile on WebFlux. Handlers return as soon as
+ * the request is decoded, the response is written when the returned {@link Mono} completes, so requests waiting
+ * for their account, NBP or the journal hold a connection but no event loop thread.
+ */
+@Profile("reactive")
+@Controller
+@AllArgsConstructor
+@RequestMapping("/accounts")
+public class ReactiveAccountController {
+    private final ReactiveAccountService accountService;
+    private final AccountApiMapper accountApiMapper;
+
+    @GetMapping("/{id}")
+    public @ResponseBody
+    Mono<AccountResponse> getById(@PathVariable("id") String id) {
+        return accountApiMapper.findByAccountId(id, accountService::getById)
+                .map(account -> accountApiMapper.toResponse(account));
+    }
+
+    @PostMapping
+    public @ResponseBody
+    Mono<OpenAccountResponse> post(@Valid @RequestBody OpenAccountRequest request) {
+        return accountService.openAccount(accountApiMapper.toCommand(request))
+                .map(accountId -> accountApiMapper.toResponse(accountId));
+    }
+
+    @PostMapping("/{id}/exchange-currency-commands")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> exchangeCurrency(@PathVariable("id") UUID id,
+                                       @Valid @RequestBody ExchangeCurrencyRequest request) {
+        return accountService.exchangeCurrency(accountApiMapper.toCommand(id, request));
+    }
+
+    @PostMapping("/batch-commands")
+    public @ResponseBody
+    Mono<List<CommandResultResponse>> executeCommands(@Valid @RequestBody BatchCommandRequest request) {
+        return accountService.executeCommands(accountApiMapper.toCommands(request))
+                .map(results -> accountApiMapper.toResponse(results));
+    }
+
+    @PostMapping("/{id}/quotes")
+    public @ResponseBody
+    Mono<QuoteResponse> requestQuote(@PathVariable("id") UUID id,
+                                     @Valid @RequestBody QuoteRequest request) {
+        return accountService.requestQuote(accountApiMapper.toCommand(id, request))
+                .map(quote -> accountApiMapper.toResponse(quote));
+    }
+
+    @PostMapping("/{id}/buy-currency-commands")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> buyCurrency(@PathVariable("id") UUID id,
+                                  @RequestBody BuyCurrencyRequest request) {
+        return accountService.buyCurrency(accountApiMapper.toCommand(id, request));
+    }
+
+    @PostMapping("/{id}/sell-currency-commands")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> sellCurrency(@PathVariable("id") UUID id,
+                                   @RequestBody SellCurrencyRequest request) {
+        return accountService.sellCurrency(accountApiMapper.toCommand(id, request));
+    }
+}
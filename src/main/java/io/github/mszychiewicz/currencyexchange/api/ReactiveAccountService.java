@@ -0,0 +1,65 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountService;
+import io.github.mszychiewicz.currencyexchange.domain.CommandResult;
+import io.github.mszychiewicz.currencyexchange.domain.Quote;
+import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.CurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.ExchangeCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.OpenAccountCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.RequestQuoteCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.SellCurrencyCommand;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Adapts the asynchronous {@link AccountService} operations to {@link Mono} for the reactive profile. Every
+ * operation completes when its lookup, rate, partition task and journal entry do, so no thread waits for them,
+ * and failures thrown before a future is returned are signalled as errors too.
+ */
+@Profile("reactive")
+@Component
+@AllArgsConstructor
+class ReactiveAccountService {
+    private final AccountService accountService;
+
+    Mono<UUID> openAccount(OpenAccountCommand openAccountCommand) {
+        return fromFuture(() -> accountService.openAccountAsync(openAccountCommand));
+    }
+
+    Mono<Account> getById(long mostSignificantBits, long leastSignificantBits) {
+        return fromFuture(() -> accountService.getByIdAsync(mostSignificantBits, leastSignificantBits));
+    }
+
+    Mono<Quote> requestQuote(RequestQuoteCommand requestQuoteCommand) {
+        return fromFuture(() -> accountService.requestQuoteAsync(requestQuoteCommand));
+    }
+
+    Mono<Void> buyCurrency(BuyCurrencyCommand buyCurrencyCommand) {
+        return fromFuture(() -> accountService.buyCurrencyAsync(buyCurrencyCommand));
+    }
+
+    Mono<Void> sellCurrency(SellCurrencyCommand sellCurrencyCommand) {
+        return fromFuture(() -> accountService.sellCurrencyAsync(sellCurrencyCommand));
+    }
+
+    Mono<Void> exchangeCurrency(ExchangeCurrencyCommand exchangeCurrencyCommand) {
+        return fromFuture(() -> accountService.exchangeCurrencyAsync(exchangeCurrencyCommand));
+    }
+
+    Mono<List<CommandResult>> executeCommands(List<? extends CurrencyCommand> commands) {
+        return fromFuture(() -> accountService.executeCommandsAsync(commands));
+    }
+
+    private static <T> Mono<T> fromFuture(Supplier<CompletableFuture<T>> operation) {
+        return Mono.defer(() -> Mono.fromFuture(operation.get()));
+    }
+}
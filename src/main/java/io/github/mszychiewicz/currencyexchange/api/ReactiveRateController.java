@@ -0,0 +1,49 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import io.github.mszychiewicz.currencyexchange.api.response.ExchangeRateHistoryResponse;
+import io.github.mszychiewicz.currencyexchange.api.response.RateUpdateResponse;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateHistoryService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.Currency;
+
+/**
+ * Serves the routes of {@link RateController} in the reactive profile, the rate stream is a {@link Flux} of
+ * server-sent events rather than a servlet emitter.
+ */
+@Profile("reactive")
+@Controller
+@AllArgsConstructor
+@RequestMapping("/rates")
+public class ReactiveRateController {
+    private final ExchangeRateHistoryService exchangeRateHistoryService;
+    private final RateApiMapper rateApiMapper;
+    private final ExchangeRateStream exchangeRateStream;
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public @ResponseBody
+    Flux<ServerSentEvent<RateUpdateResponse>> stream() {
+        return exchangeRateStream.subscribeReactive();
+    }
+
+    @GetMapping("/{code}")
+    public @ResponseBody
+    ExchangeRateHistoryResponse getHistory(@PathVariable("code") String code,
+                                           @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Currency currency = rateApiMapper.toCurrency(code);
+        return rateApiMapper.toResponse(currency, exchangeRateHistoryService.getRates(currency, from, to));
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.mszychiewicz.currencyexchange.api.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCommandRequest {
+    public static final int MAX_COMMANDS = 10_000;
+
+    @NotEmpty
+    @Size(max = MAX_COMMANDS)
+    // commands are checked while they are decoded, see CurrencyTradeRequestDeserializer
+    List<@NotNull CurrencyCommandRequest> commands;
+}
@@ -1,15 +1,33 @@
 package io.github.mszychiewicz.currencyexchange.api.request;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
 import lombok.Value;
 
-import javax.validation.constraints.NotBlank;
-import javax.validation.constraints.Positive;
-import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
 
+/**
+ * Read from {@code currencyCode}, {@code amount} and an optional {@code quoteId}, see
+ * {@link CurrencyTradeRequestDeserializer}.
+ */
 @Value
+@JsonDeserialize(using = BuyCurrencyRequest.Deserializer.class)
 public class BuyCurrencyRequest {
-    @NotBlank
-    String currencyCode;
-    @Positive
-    BigDecimal amount;
+    Currency currency;
+    // minor units of the currency
+    long amount;
+    UUID quoteId;
+
+    public static class Deserializer extends CurrencyTradeRequestDeserializer<BuyCurrencyRequest> {
+        public Deserializer() {
+            super(BuyCurrencyRequest.class);
+        }
+
+        @Override
+        protected BuyCurrencyRequest create(UUID accountId, QuoteSide side, Currency currency, long amount,
+                                            UUID quoteId) {
+            return new BuyCurrencyRequest(currency, amount, quoteId);
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package io.github.mszychiewicz.currencyexchange.api.request;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import lombok.Value;
+
+import java.util.Currency;
+import java.util.UUID;
+
+/**
+ * Read from {@code accountId}, {@code side}, {@code currencyCode}, {@code amount} and an optional {@code quoteId},
+ * see {@link CurrencyTradeRequestDeserializer}.
+ */
+@Value
+@JsonDeserialize(using = CurrencyCommandRequest.Deserializer.class)
+public class CurrencyCommandRequest {
+    UUID accountId;
+    QuoteSide side;
+    Currency currency;
+    // minor units of the currency
+    long amount;
+    UUID quoteId;
+
+    public static class Deserializer extends CurrencyTradeRequestDeserializer<CurrencyCommandRequest> {
+        public Deserializer() {
+            super(CurrencyCommandRequest.class, true);
+        }
+
+        @Override
+        protected CurrencyCommandRequest create(UUID accountId, QuoteSide side, Currency currency, long amount,
+                                                UUID quoteId) {
+            return new CurrencyCommandRequest(accountId, side, currency, amount, quoteId);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package io.github.mszychiewicz.currencyexchange.api.request;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import io.github.mszychiewicz.currencyexchange.domain.Money;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+
+import java.io.IOException;
+import java.util.Currency;
+import java.util.UUID;
+
+/**
+ * Decodes a buy or sell request, or a command of a batch, straight from the parser's buffers. The currency code is
+ * resolved among the ISO 4217 currencies {@link SupportedCurrencies} knows, and the amount is converted to minor
+ * units of that currency without going through a String or BigDecimal. The checks bean validation did are applied
+ * while decoding, any violation fails the request as unreadable, which is answered with 400 like a failed
+ * validation.
+ * <p>
+ * Valid codes of currencies that are not supported are decoded, so the domain rejects them as before.
+ */
+public abstract class CurrencyTradeRequestDeserializer<T> extends StdDeserializer<T> {
+    private static final String CURRENCY_CODE = "currencyCode";
+    private static final String AMOUNT = "amount";
+    private static final String QUOTE_ID = "quoteId";
+    private static final String ACCOUNT_ID = "accountId";
+    private static final String SIDE = "side";
+    private static final QuoteSide[] SIDES = QuoteSide.values();
+    private static final int MAXIMUM_EXPONENT = 100;
+    private static final int UUID_LENGTH = 36;
+
+    private final boolean command;
+
+    protected CurrencyTradeRequestDeserializer(Class<T> type) {
+        this(type, false);
+    }
+
+    /**
+     * @param command whether {@code accountId} and {@code side} are read and required as well, as in a batch command
+     */
+    protected CurrencyTradeRequestDeserializer(Class<T> type, boolean command) {
+        super(type);
+        this.command = command;
+    }
+
+    /**
+     * @param accountId null unless commands are read
+     * @param side      null unless commands are read
+     */
+    protected abstract T create(UUID accountId, QuoteSide side, Currency currency, long amount, UUID quoteId);
+
+    @Override
+    public T deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartObjectToken()) {
+            return context.reportInputMismatch(this, "Expected a JSON object");
+        }
+        Currency currency = null;
+        boolean hasAmount = false;
+        long unscaledAmount = 0;
+        int amountScale = 0;
+        UUID quoteId = null;
+        UUID accountId = null;
+        QuoteSide side = null;
+        for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case CURRENCY_CODE:
+                    currency = token == JsonToken.VALUE_STRING ? currency(parser, context) : null;
+                    break;
+                case AMOUNT:
+                    hasAmount = token == JsonToken.VALUE_STRING || token.isNumeric();
+                    if (hasAmount) {
+                        unscaledAmount = unscaledValue(parser, context);
+                        amountScale = scale(parser);
+                    }
+                    break;
+                case QUOTE_ID:
+                    quoteId = token == JsonToken.VALUE_STRING ? uuid(parser, context, "Malformed quote id") : null;
+                    break;
+                case ACCOUNT_ID:
+                    if (command && token == JsonToken.VALUE_STRING) {
+                        accountId = uuid(parser, context, "Malformed account id");
+                    }
+                    break;
+                case SIDE:
+                    if (command && token == JsonToken.VALUE_STRING) {
+                        side = side(parser, context);
+                    }
+                    break;
+            }
+            // objects and arrays are skipped whole, a known field holding one is treated as missing
+            parser.skipChildren();
+        }
+        if (command && accountId == null) {
+            return context.reportInputMismatch(this, "Missing account id");
+        }
+        if (command && side == null) {
+            return context.reportInputMismatch(this, "Missing side");
+        }
+        if (currency == null) {
+            return context.reportInputMismatch(this, "Missing currency code");
+        }
+        if (!hasAmount || unscaledAmount <= 0) {
+            return context.reportInputMismatch(this, "Amount must be positive");
+        }
+        try {
+            long amount = Money.toMinorUnits(unscaledAmount, amountScale, currency);
+            return create(accountId, side, currency, amount, quoteId);
+        } catch (ArithmeticException e) {
+            return context.reportInputMismatch(this, "Amount does not fit the currency");
+        }
+    }
+
+    private Currency currency(JsonParser parser, DeserializationContext context) throws IOException {
+        char[] code = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        Currency currency = SupportedCurrencies.currency(code, offset, length);
+        if (currency == null) {
+            return context.reportInputMismatch(this, "Unknown currency code");
+        }
+        return currency;
+    }
+
+    /**
+     * Digits of the amount as one long, sign included and the decimal point and exponent left out.
+     */
+    private long unscaledValue(JsonParser parser, DeserializationContext context) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int end = parser.getTextOffset() + parser.getTextLength();
+        int i = parser.getTextOffset();
+        boolean negative = i < end && chars[i] == '-';
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        boolean point = false;
+        try {
+            for (; i < end && chars[i] != 'e' && chars[i] != 'E'; i++) {
+                char c = chars[i];
+                if (c == '.' && !point) {
+                    point = true;
+                } else if (c >= '0' && c <= '9') {
+                    value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+                    digits++;
+                } else {
+                    return context.reportInputMismatch(this, "Malformed amount");
+                }
+            }
+        } catch (ArithmeticException e) {
+            return context.reportInputMismatch(this, "Amount out of range");
+        }
+        if (digits == 0 || (i < end && exponent(chars, i + 1, end) == Integer.MIN_VALUE)) {
+            return context.reportInputMismatch(this, "Malformed amount");
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decimal places of the amount, only called after {@link #unscaledValue} accepted it.
+     */
+    private static int scale(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int end = parser.getTextOffset() + parser.getTextLength();
+        int scale = 0;
+        boolean point = false;
+        for (int i = parser.getTextOffset(); i < end; i++) {
+            char c = chars[i];
+            if (c == 'e' || c == 'E') {
+                return scale - exponent(chars, i + 1, end);
+            }
+            if (point) {
+                scale++;
+            }
+            point |= c == '.';
+        }
+        return scale;
+    }
+
+    /**
+     * @return the exponent, or {@link Integer#MIN_VALUE} if it is malformed or too large to be a sane amount
+     */
+    private static int exponent(char[] chars, int from, int end) {
+        boolean negative = from < end && chars[from] == '-';
+        int i = from < end && (chars[from] == '-' || chars[from] == '+') ? from + 1 : from;
+        if (i == end) {
+            return Integer.MIN_VALUE;
+        }
+        int exponent = 0;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9' || (exponent = exponent * 10 + c - '0') > MAXIMUM_EXPONENT) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private QuoteSide side(JsonParser parser, DeserializationContext context) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        for (QuoteSide side : SIDES) {
+            if (matches(side.name(), chars, offset, length)) {
+                return side;
+            }
+        }
+        return context.reportInputMismatch(this, "Unknown side");
+    }
+
+    private static boolean matches(String name, char[] chars, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private UUID uuid(JsonParser parser, DeserializationContext context, String malformed) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (parser.getTextLength() != UUID_LENGTH || chars[offset + 8] != '-' || chars[offset + 13] != '-'
+                || chars[offset + 18] != '-' || chars[offset + 23] != '-') {
+            return context.reportInputMismatch(this, malformed);
+        }
+        long timeLow = hex(chars, offset, 8);
+        long timeMid = hex(chars, offset + 9, 4);
+        long timeHigh = hex(chars, offset + 14, 4);
+        long clockSequence = hex(chars, offset + 19, 4);
+        long node = hex(chars, offset + 24, 12);
+        if ((timeLow | timeMid | timeHigh | clockSequence | node) < 0) {
+            return context.reportInputMismatch(this, malformed);
+        }
+        return new UUID(timeLow << 32 | timeMid << 16 | timeHigh, clockSequence << 48 | node);
+    }
+
+    /**
+     * @return the value of at most 12 hex digits, or -1 if any of them is not a hex digit
+     */
+    private static long hex(char[] chars, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = Character.digit(chars[i], 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+}
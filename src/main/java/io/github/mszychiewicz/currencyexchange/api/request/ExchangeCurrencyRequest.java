@@ -0,0 +1,18 @@
+package io.github.mszychiewicz.currencyexchange.api.request;
+
+import lombok.Value;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Positive;
+import java.math.BigDecimal;
+
+@Value
+public class ExchangeCurrencyRequest {
+    @NotBlank
+    String fromCurrencyCode;
+    @NotBlank
+    String toCurrencyCode;
+    // amount of the currency sold
+    @Positive
+    BigDecimal amount;
+}
@@ -0,0 +1,19 @@
+package io.github.mszychiewicz.currencyexchange.api.request;
+
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import lombok.Value;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.math.BigDecimal;
+
+@Value
+public class QuoteRequest {
+    @NotNull
+    QuoteSide side;
+    @NotBlank
+    String currencyCode;
+    @Positive
+    BigDecimal amount;
+}
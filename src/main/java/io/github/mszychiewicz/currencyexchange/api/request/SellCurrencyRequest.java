@@ -1,15 +1,33 @@
 package io.github.mszychiewicz.currencyexchange.api.request;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
 import lombok.Value;
 
-import javax.validation.constraints.NotBlank;
-import javax.validation.constraints.Positive;
-import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
 
+/**
+ * Read from {@code currencyCode}, {@code amount} and an optional {@code quoteId}, see
+ * {@link CurrencyTradeRequestDeserializer}.
+ */
 @Value
+@JsonDeserialize(using = SellCurrencyRequest.Deserializer.class)
 public class SellCurrencyRequest {
-    @NotBlank
-    String currencyCode;
-    @Positive
-    BigDecimal amount;
+    Currency currency;
+    // minor units of the currency
+    long amount;
+    UUID quoteId;
+
+    public static class Deserializer extends CurrencyTradeRequestDeserializer<SellCurrencyRequest> {
+        public Deserializer() {
+            super(SellCurrencyRequest.class);
+        }
+
+        @Override
+        protected SellCurrencyRequest create(UUID accountId, QuoteSide side, Currency currency, long amount,
+                                             UUID quoteId) {
+            return new SellCurrencyRequest(currency, amount, quoteId);
+        }
+    }
 }
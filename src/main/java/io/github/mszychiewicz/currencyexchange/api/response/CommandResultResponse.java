@@ -0,0 +1,15 @@
+package io.github.mszychiewicz.currencyexchange.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandResultResponse {
+    boolean success;
+    // status the command would have been answered with on its own
+    int status;
+    String error;
+}
@@ -0,0 +1,16 @@
+package io.github.mszychiewicz.currencyexchange.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Currency;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExchangeRateHistoryResponse {
+    Currency currency;
+    List<HistoricalExchangeRateResponse> rates;
+}
@@ -0,0 +1,15 @@
+package io.github.mszychiewicz.currencyexchange.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExchangeRateResponse {
+    BigDecimal ask;
+    BigDecimal bid;
+}
@@ -0,0 +1,17 @@
+package io.github.mszychiewicz.currencyexchange.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoricalExchangeRateResponse {
+    LocalDate effectiveDate;
+    BigDecimal ask;
+    BigDecimal bid;
+}
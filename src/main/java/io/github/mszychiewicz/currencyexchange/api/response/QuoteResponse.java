@@ -0,0 +1,23 @@
+package io.github.mszychiewicz.currencyexchange.api.response;
+
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuoteResponse {
+    UUID id;
+    QuoteSide side;
+    Currency currency;
+    BigDecimal amount;
+    BigDecimal exchangeRate;
+    Instant expiresAt;
+}
@@ -0,0 +1,17 @@
+package io.github.mszychiewicz.currencyexchange.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateUpdateResponse {
+    LocalDate effectiveDate;
+    Map<Currency, ExchangeRateResponse> rates;
+}
@@ -3,64 +3,146 @@ package io.github.mszychiewicz.currencyexchange.domain;
 import io.github.mszychiewicz.currencyexchange.domain.exception.InsufficientFundsException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidAmountException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidNameException;
+import lombok.AccessLevel;
 import lombok.Getter;
 
-import java.math.BigDecimal;
-import java.util.Currency;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.UUID;
 
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+
 @Getter
 public class Account {
     private final UUID id;
     private final String firstName;
     private final String lastName;
-    private final Map<Currency, BigDecimal> balances;
+    // minor units indexed by SupportedCurrency ordinal, currencies past the end of the array hold 0
+    @Getter(AccessLevel.NONE)
+    private long[] balances;
+    // balances of the snapshot this account was copied from, null when not known, so saves write only what changed
+    @Getter(AccessLevel.NONE)
+    private final long[] readBalances;
+    // version of the stored snapshot this account was read from, 0 if it was never saved
+    private final long version;
 
     public static final String INSUFFICIENT_FUNDS_MESSAGE = "Insufficient funds on account.";
     public static final String INVALID_AMOUNT_MESSAGE = "Negative amount operations are not allowed.";
     public static final String INVALID_NAME_MESSAGE = "Name must not be blank.";
-    public static final Currency PLN = Currency.getInstance("PLN");
 
-    public Account(String firstName, String lastName, BigDecimal openingBalance) {
+    private static final long[] NO_BALANCES = new long[0];
+
+    public Account(String firstName, String lastName, long openingBalance) {
+        this(UUID.randomUUID(), firstName, lastName, openingBalance);
+    }
+
+    public Account(UUID id, String firstName, String lastName, long openingBalance) {
         validateName(firstName);
         validateName(lastName);
         validateAmount(openingBalance);
 
-        this.id = UUID.randomUUID();
+        this.id = id;
         this.firstName = firstName;
         this.lastName = lastName;
-        Map<Currency, BigDecimal> balances = new HashMap<>();
-        balances.put(PLN, openingBalance);
+        this.balances = new long[PLN.ordinal() + 1];
+        this.balances[PLN.ordinal()] = openingBalance;
+        this.readBalances = NO_BALANCES;
+        this.version = 0;
+    }
+
+    /**
+     * Restores a saved account, balances are in minor units indexed by {@link SupportedCurrency} ordinal.
+     */
+    public Account(UUID id, String firstName, String lastName, long[] balances, long version) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.balances = balances;
+        this.readBalances = null;
+        this.version = version;
+    }
+
+    private Account(Account account, long[] balances, long[] readBalances, long version) {
+        this.id = account.id;
+        this.firstName = account.firstName;
+        this.lastName = account.lastName;
         this.balances = balances;
+        this.readBalances = readBalances;
+        this.version = version;
+    }
+
+    public Account copy() {
+        return new Account(this, balances.clone(), balances, version);
     }
 
-    void depositFunds(Currency currency, BigDecimal amount) {
+    public Account nextVersion() {
+        long[] snapshot = balances.clone();
+        return new Account(this, snapshot, snapshot, version + 1);
+    }
+
+    public long getBalance(SupportedCurrency currency) {
+        return currency.ordinal() < balances.length ? balances[currency.ordinal()] : 0;
+    }
+
+    /**
+     * Whether the balance differs from the snapshot this account was copied from. Every balance of an account
+     * restored from given balances counts as changed.
+     */
+    public boolean isBalanceChanged(SupportedCurrency currency) {
+        if (readBalances == null) {
+            return true;
+        }
+        long readBalance = currency.ordinal() < readBalances.length ? readBalances[currency.ordinal()] : 0;
+        return getBalance(currency) != readBalance;
+    }
+
+    void depositFunds(SupportedCurrency currency, long amount) {
         validateAmount(amount);
-        balances.put(currency, balances.getOrDefault(currency, BigDecimal.ZERO).add(amount));
+        long balance = Money.add(getBalance(currency), amount);
+        ensureCapacity(currency);
+        balances[currency.ordinal()] = balance;
     }
 
-    void withdrawFunds(Currency currency, BigDecimal amount) {
+    void withdrawFunds(SupportedCurrency currency, long amount) {
         validateAmount(amount);
         validateHasSufficientFunds(currency, amount);
-        balances.put(currency, balances.get(currency).subtract(amount));
+        ensureCapacity(currency);
+        balances[currency.ordinal()] -= amount;
     }
 
-    void validateHasSufficientFunds(Currency currency, BigDecimal amount) {
-        if (balances.getOrDefault(currency, BigDecimal.ZERO).compareTo(amount) < 0) {
+    /**
+     * Withdraws one currency and deposits another as a single change, neither balance changes if either leg fails.
+     */
+    void exchangeFunds(SupportedCurrency from, long amount, SupportedCurrency to, long exchangedAmount) {
+        validateAmount(amount);
+        validateAmount(exchangedAmount);
+        validateHasSufficientFunds(from, amount);
+        long toBalance = Money.add(getBalance(to) - (from == to ? amount : 0), exchangedAmount);
+        ensureCapacity(from);
+        ensureCapacity(to);
+        balances[from.ordinal()] -= amount;
+        balances[to.ordinal()] = toBalance;
+    }
+
+    void validateHasSufficientFunds(SupportedCurrency currency, long amount) {
+        if (getBalance(currency) < amount) {
             throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MESSAGE);
         }
     }
 
+    private void ensureCapacity(SupportedCurrency currency) {
+        if (currency.ordinal() >= balances.length) {
+            balances = Arrays.copyOf(balances, currency.ordinal() + 1);
+        }
+    }
+
     private void validateName(String name) {
         if (name.isBlank()) {
             throw new InvalidNameException(INVALID_NAME_MESSAGE);
         }
     }
 
-    private void validateAmount(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
+    private void validateAmount(long amount) {
+        if (amount < 0) {
             throw new InvalidAmountException(INVALID_AMOUNT_MESSAGE);
         }
     }
@@ -0,0 +1,13 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public interface AccountCommandExecutor {
+    /**
+     * Runs the command after all commands previously submitted for the same account and never concurrently
+     * with them, so it may read and mutate the account without locking.
+     */
+    <T> CompletableFuture<T> execute(UUID accountId, Supplier<T> command);
+}
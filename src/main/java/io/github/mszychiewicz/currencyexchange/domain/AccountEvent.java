@@ -0,0 +1,21 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import java.util.UUID;
+
+/**
+ * A change already applied to an account, recorded in the {@link AccountJournal} so the account can be rebuilt.
+ */
+public interface AccountEvent {
+    UUID getAccountId();
+
+    /**
+     * Version of the account after the change, replay skips events a restored snapshot already contains.
+     */
+    long getVersion();
+
+    /**
+     * Applies the recorded change again during replay. The account is {@code null} for the event opening it.
+     * Replay runs before the first rate table is fetched, so recorded currencies are registered as they are met.
+     */
+    Account replay(Account account, SupportedCurrencies supportedCurrencies);
+}
@@ -0,0 +1,11 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AccountJournal {
+    /**
+     * Appends the event after the events previously appended by the calling thread. The returned future
+     * completes once the event is durable, callers should not acknowledge the change before that.
+     */
+    CompletableFuture<Void> append(AccountEvent event);
+}
@@ -0,0 +1,19 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+public class AccountOpenedEvent implements AccountEvent {
+    UUID accountId;
+    long version;
+    String firstName;
+    String lastName;
+    long openingBalance;
+
+    @Override
+    public Account replay(Account account, SupportedCurrencies supportedCurrencies) {
+        return new Account(accountId, firstName, lastName, openingBalance);
+    }
+}
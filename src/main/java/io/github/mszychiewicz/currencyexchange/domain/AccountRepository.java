@@ -2,9 +2,60 @@ package io.github.mszychiewicz.currencyexchange.domain;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface AccountRepository {
+    String CONCURRENT_UPDATE_MESSAGE = "Account was updated concurrently.";
+
+    /**
+     * Stores the account as a new snapshot if the stored one still has the version the account was read from.
+     * The new snapshot gets the next version, a newly opened account is stored with version 1.
+     *
+     * @throws io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException
+     * if another update was saved in between
+     */
     UUID save(Account account);
 
+    /**
+     * Same as {@link #save(Account)} without waiting for the snapshot to be stored. The returned future completes
+     * with the id once it is, or with the exception the save would have thrown.
+     */
+    default CompletableFuture<UUID> saveAsync(Account account) {
+        try {
+            return CompletableFuture.completedFuture(save(account));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns a private copy of the latest snapshot, changes to it are only visible to others once saved.
+     */
     Optional<Account> findById(UUID id);
+
+    /**
+     * Same as {@link #findById(UUID)} for an id given by its two halves, so callers that parse ids themselves
+     * need no {@link UUID} to look an account up.
+     */
+    default Optional<Account> findById(long mostSignificantBits, long leastSignificantBits) {
+        return findById(new UUID(mostSignificantBits, leastSignificantBits));
+    }
+
+    /**
+     * Same as {@link #findById(long, long)} without waiting for the lookup. Repositories answering from memory
+     * return a completed future, one waiting for I/O, such as a database round trip, completes it from another
+     * thread.
+     */
+    default CompletableFuture<Optional<Account>> findByIdAsync(long mostSignificantBits, long leastSignificantBits) {
+        try {
+            return CompletableFuture.completedFuture(findById(mostSignificantBits, leastSignificantBits));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Number of stored accounts, cheap enough to read on every metrics scrape.
+     */
+    int size();
 }
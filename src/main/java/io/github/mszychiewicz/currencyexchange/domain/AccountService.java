@@ -1,33 +1,76 @@
 package io.github.mszychiewicz.currencyexchange.domain;
 
 import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.CurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.ExchangeCurrencyCommand;
 import io.github.mszychiewicz.currencyexchange.domain.command.OpenAccountCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.RequestQuoteCommand;
 import io.github.mszychiewicz.currencyexchange.domain.command.SellCurrencyCommand;
 import io.github.mszychiewicz.currencyexchange.domain.exception.AccountNotFoundException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-import static io.github.mszychiewicz.currencyexchange.domain.Account.PLN;
-import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.validateCurrencySupport;
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
 
 @Service
 @RequiredArgsConstructor
 public class AccountService {
     private final AccountRepository accountRepository;
     private final ExchangeRateProvider exchangeRateProvider;
+    private final QuoteService quoteService;
+    private final AccountCommandExecutor accountCommandExecutor;
+    private final AccountJournal accountJournal;
+    private final CrossRateService crossRateService;
+    private final TradingMetrics tradingMetrics;
+    private final SupportedCurrencies supportedCurrencies;
+    // states applied and journaled but not saved yet, commands on the account's partition build on them
+    private final Map<UUID, PendingUpdate> unpublished = new ConcurrentHashMap<>();
 
     public static final String ACCOUNT_NOT_FOUND_MESSAGE = "Account not found.";
+    static final int MAX_UPDATE_ATTEMPTS = 5;
+    static final Duration INITIAL_UPDATE_BACKOFF = Duration.ofMillis(1);
 
     public UUID openAccount(OpenAccountCommand openAccountCommand) {
+        return await(openAccountAsync(openAccountCommand));
+    }
+
+    /**
+     * Opens the account without waiting for its journal entry, the returned future completes with its id once
+     * the entry is durable.
+     */
+    public CompletableFuture<UUID> openAccountAsync(OpenAccountCommand openAccountCommand) {
+        return tradingMetrics.timeAsync(TradingOperation.OPEN_ACCOUNT, () -> open(openAccountCommand));
+    }
+
+    private CompletableFuture<UUID> open(OpenAccountCommand openAccountCommand) {
         Account newAccount = new Account(
                 openAccountCommand.getFirstName(),
                 openAccountCommand.getLastName(),
                 openAccountCommand.getOpeningBalance()
         );
-        return accountRepository.save(newAccount);
+        return accountJournal.append(new AccountOpenedEvent(newAccount.getId(), 1,
+                        newAccount.getFirstName(), newAccount.getLastName(), openAccountCommand.getOpeningBalance()))
+                .thenCompose(durable -> accountRepository.saveAsync(newAccount));
     }
 
     public Account getById(UUID id) {
@@ -35,30 +78,419 @@ public class AccountService {
                 .orElseThrow(() -> new AccountNotFoundException(ACCOUNT_NOT_FOUND_MESSAGE));
     }
 
+    public Account getById(long mostSignificantBits, long leastSignificantBits) {
+        return tradingMetrics.time(TradingOperation.GET_ACCOUNT, () -> accountRepository
+                .findById(mostSignificantBits, leastSignificantBits)
+                .orElseThrow(() -> new AccountNotFoundException(ACCOUNT_NOT_FOUND_MESSAGE)));
+    }
+
+    /**
+     * Looks the account up without blocking the calling thread on a repository that waits for I/O.
+     */
+    public CompletableFuture<Account> getByIdAsync(long mostSignificantBits, long leastSignificantBits) {
+        return tradingMetrics.timeAsync(TradingOperation.GET_ACCOUNT,
+                () -> findAsync(mostSignificantBits, leastSignificantBits));
+    }
+
+    private CompletableFuture<Account> findAsync(UUID id) {
+        return findAsync(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    private CompletableFuture<Account> findAsync(long mostSignificantBits, long leastSignificantBits) {
+        return accountRepository.findByIdAsync(mostSignificantBits, leastSignificantBits)
+                .thenApply(account -> account.orElseThrow(() -> new AccountNotFoundException(ACCOUNT_NOT_FOUND_MESSAGE)));
+    }
+
+    public Quote requestQuote(RequestQuoteCommand requestQuoteCommand) {
+        return await(requestQuoteAsync(requestQuoteCommand));
+    }
+
+    /**
+     * Quotes without blocking the calling thread on the account lookup or the exchange rate.
+     */
+    public CompletableFuture<Quote> requestQuoteAsync(RequestQuoteCommand requestQuoteCommand) {
+        return tradingMetrics.timeAsync(TradingOperation.REQUEST_QUOTE, () -> {
+            supportedCurrencies.tradable(requestQuoteCommand.getCurrency());
+            // the rate is fetched while the account is looked up, a quote is only saved once the account is found
+            CompletableFuture<BigDecimal> exchangeRate = quoteService.fetchExchangeRateAsync(requestQuoteCommand);
+            return findAsync(requestQuoteCommand.getAccountId()).thenCombine(settled(exchangeRate),
+                    (account, fetched) -> quoteService.createQuote(requestQuoteCommand, await(exchangeRate)));
+        });
+    }
+
     public void buyCurrency(BuyCurrencyCommand buyCurrencyCommand) {
-        validateCurrencySupport(buyCurrencyCommand.getCurrency());
+        await(buyCurrencyAsync(buyCurrencyCommand));
+    }
+
+    /**
+     * Buys without blocking the calling thread on the account lookup, the exchange rate, the account's partition
+     * or the journal. An unsupported currency is thrown right away, every other failure completes the returned
+     * future.
+     */
+    public CompletableFuture<Void> buyCurrencyAsync(BuyCurrencyCommand buyCurrencyCommand) {
+        return tradingMetrics.timeAsync(TradingOperation.BUY, () -> buy(buyCurrencyCommand));
+    }
 
-        Account account = getById(buyCurrencyCommand.getId());
+    private CompletableFuture<Void> buy(BuyCurrencyCommand buyCurrencyCommand) {
+        SupportedCurrency currency = supportedCurrencies.tradable(buyCurrencyCommand.getCurrency());
 
-        BigDecimal exchangeRate = exchangeRateProvider.getAskExchangeRate(buyCurrencyCommand.getCurrency());
-        BigDecimal costAmount = buyCurrencyCommand.getAmount().multiply(exchangeRate);
+        // the rate is fetched while the account is looked up, an invalid quote fails only once the account is found
+        CompletableFuture<Quote> quote = findQuoteAsync(buyCurrencyCommand, QuoteSide.BUY);
+        CompletableFuture<BigDecimal> askExchangeRate = quote.thenCompose(found -> found != null
+                ? CompletableFuture.completedFuture(found.getExchangeRate())
+                : exchangeRateProvider.getAskExchangeRateAsync(buyCurrencyCommand.getCurrency()));
 
-        account.withdrawFunds(PLN, costAmount);
-        account.depositFunds(buyCurrencyCommand.getCurrency(), buyCurrencyCommand.getAmount());
-        accountRepository.save(account);
+        return findAsync(buyCurrencyCommand.getId()).thenCombine(settled(askExchangeRate), (account, fetched) -> {
+            long costAmount = Money.exchange(buyCurrencyCommand.getAmount(), currency, await(askExchangeRate), PLN);
+            // appended on the partition so the journal keeps each account's order, awaited off it for group commit
+            return accountCommandExecutor.execute(buyCurrencyCommand.getId(),
+                    () -> applyBuy(buyCurrencyCommand, currency, costAmount, quote.join()));
+        }).thenCompose(applied -> applied).thenCompose(durable -> durable);
     }
 
     public void sellCurrency(SellCurrencyCommand sellCurrencyCommand) {
-        validateCurrencySupport(sellCurrencyCommand.getCurrency());
+        await(sellCurrencyAsync(sellCurrencyCommand));
+    }
+
+    public CompletableFuture<Void> sellCurrencyAsync(SellCurrencyCommand sellCurrencyCommand) {
+        return tradingMetrics.timeAsync(TradingOperation.SELL, () -> sell(sellCurrencyCommand));
+    }
+
+    private CompletableFuture<Void> sell(SellCurrencyCommand sellCurrencyCommand) {
+        SupportedCurrency currency = supportedCurrencies.tradable(sellCurrencyCommand.getCurrency());
+
+        CompletableFuture<Quote> quote = findQuoteAsync(sellCurrencyCommand, QuoteSide.SELL);
+        CompletableFuture<BigDecimal> bidExchangeRate = quote.thenCompose(found -> found != null
+                ? CompletableFuture.completedFuture(found.getExchangeRate())
+                : exchangeRateProvider.getBidExchangeRateAsync(sellCurrencyCommand.getCurrency()));
+
+        return findAsync(sellCurrencyCommand.getId()).thenCombine(settled(bidExchangeRate), (account, fetched) -> {
+            // checked before the quote, withdrawFunds checks again on the account's partition
+            account.validateHasSufficientFunds(currency, sellCurrencyCommand.getAmount());
+            long exchangedAmount = Money.exchange(sellCurrencyCommand.getAmount(), currency, await(bidExchangeRate), PLN);
+            return accountCommandExecutor.execute(sellCurrencyCommand.getId(),
+                    () -> applySell(sellCurrencyCommand, currency, exchangedAmount, quote.join()));
+        }).thenCompose(applied -> applied).thenCompose(durable -> durable);
+    }
+
+    /**
+     * Looks the quote of the command up, completes with {@code null} when the command has none and with the
+     * validation failure when the quote cannot be used.
+     */
+    private CompletableFuture<Quote> findQuoteAsync(CurrencyCommand currencyCommand, QuoteSide side) {
+        if (currencyCommand.getQuoteId() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.completedFuture(quoteService.findQuote(currencyCommand, side));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Exchanges between any two supported currencies at the cross rate of the latest rate table, a single
+     * account update replacing a sale for PLN followed by a purchase.
+     */
+    public void exchangeCurrency(ExchangeCurrencyCommand exchangeCurrencyCommand) {
+        await(exchangeCurrencyAsync(exchangeCurrencyCommand));
+    }
+
+    public CompletableFuture<Void> exchangeCurrencyAsync(ExchangeCurrencyCommand exchangeCurrencyCommand) {
+        return tradingMetrics.timeAsync(TradingOperation.EXCHANGE, () -> exchange(exchangeCurrencyCommand));
+    }
 
-        Account account = getById(sellCurrencyCommand.getId());
-        account.validateHasSufficientFunds(sellCurrencyCommand.getCurrency(), sellCurrencyCommand.getAmount());
+    private CompletableFuture<Void> exchange(ExchangeCurrencyCommand exchangeCurrencyCommand) {
+        SupportedCurrency from = supportedCurrencies.supported(exchangeCurrencyCommand.getFrom());
+        SupportedCurrency to = supportedCurrencies.supported(exchangeCurrencyCommand.getTo());
+
+        CompletableFuture<CrossRateMatrix> crossRates = crossRateService.currentMatrix();
+
+        return findAsync(exchangeCurrencyCommand.getId()).thenCompose(account -> {
+            account.validateHasSufficientFunds(from, exchangeCurrencyCommand.getAmount());
+            return crossRates;
+        }).thenCompose(crossRateMatrix -> {
+            long exchangedAmount = crossRateMatrix.exchange(exchangeCurrencyCommand.getAmount(), from, to);
+            return accountCommandExecutor.execute(exchangeCurrencyCommand.getId(), () -> update(exchangeCurrencyCommand.getId(), account -> {
+                account.exchangeFunds(from, exchangeCurrencyCommand.getAmount(), to, exchangedAmount);
+                return new CurrencyExchangedEvent(exchangeCurrencyCommand.getId(), account.getVersion() + 1,
+                        exchangeCurrencyCommand.getFrom(), exchangeCurrencyCommand.getAmount(), exchangeCurrencyCommand.getTo(), exchangedAmount);
+            }).thenRun(() -> {
+                tradingMetrics.recordTraded(from, exchangeCurrencyCommand.getAmount());
+                tradingMetrics.recordTraded(to, exchangedAmount);
+            }));
+        }).thenCompose(durable -> durable);
+    }
+
+    /**
+     * Executes buy and sell commands of many accounts at once. Exchange rates are fetched once per currency and
+     * side for all commands without a quote, and each account's commands are applied in the given order on its
+     * partition in a single task. A failing command does not stop the others, its error is returned at its
+     * position in the results.
+     */
+    public List<CommandResult> executeCommands(List<? extends CurrencyCommand> commands) {
+        return await(executeCommandsAsync(commands));
+    }
+
+    /**
+     * Executes the commands without blocking the calling thread, the returned future completes with the results
+     * once every command has failed or is durable.
+     */
+    public CompletableFuture<List<CommandResult>> executeCommandsAsync(List<? extends CurrencyCommand> commands) {
+        return tradingMetrics.timeAsync(TradingOperation.EXECUTE_COMMANDS, () -> execute(commands));
+    }
+
+    private CompletableFuture<List<CommandResult>> execute(List<? extends CurrencyCommand> commands) {
+        int size = commands.size();
+        RuntimeException[] errors = new RuntimeException[size];
+        SupportedCurrency[] currencies = new SupportedCurrency[size];
+        Quote[] quotes = new Quote[size];
+        long[] exchangedAmounts = new long[size];
+
+        List<CompletableFuture<BigDecimal>> exchangeRates = new ArrayList<>(size);
+        Map<Currency, CompletableFuture<BigDecimal>> askExchangeRates = new HashMap<>();
+        Map<Currency, CompletableFuture<BigDecimal>> bidExchangeRates = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            CurrencyCommand command = commands.get(i);
+            CompletableFuture<BigDecimal> exchangeRate = null;
+            try {
+                currencies[i] = supportedCurrencies.tradable(command.getCurrency());
+                QuoteSide side = command instanceof SellCurrencyCommand ? QuoteSide.SELL : QuoteSide.BUY;
+                if (command.getQuoteId() != null) {
+                    quotes[i] = quoteService.findQuote(command, side);
+                    exchangeRate = CompletableFuture.completedFuture(quotes[i].getExchangeRate());
+                } else if (side == QuoteSide.BUY) {
+                    exchangeRate = askExchangeRates.computeIfAbsent(command.getCurrency(), exchangeRateProvider::getAskExchangeRateAsync);
+                } else {
+                    exchangeRate = bidExchangeRates.computeIfAbsent(command.getCurrency(), exchangeRateProvider::getBidExchangeRateAsync);
+                }
+            } catch (RuntimeException e) {
+                errors[i] = e;
+            }
+            exchangeRates.add(exchangeRate);
+        }
+
+        // all rates are fetched concurrently before any is used, partitions never wait for them
+        return settled(exchangeRates).thenCompose(fetched -> {
+            Map<UUID, List<Integer>> commandsByAccount = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (errors[i] != null) {
+                    continue;
+                }
+                try {
+                    exchangedAmounts[i] = Money.exchange(commands.get(i).getAmount(), currencies[i], await(exchangeRates.get(i)), PLN);
+                    commandsByAccount.computeIfAbsent(commands.get(i).getId(), id -> new ArrayList<>()).add(i);
+                } catch (RuntimeException e) {
+                    errors[i] = e;
+                }
+            }
+
+            CompletableFuture<?>[] durables = new CompletableFuture<?>[size];
+            List<CompletableFuture<Void>> applied = new ArrayList<>(commandsByAccount.size());
+            commandsByAccount.forEach((accountId, indexes) -> applied.add(accountCommandExecutor.execute(accountId, () -> {
+                for (int i : indexes) {
+                    CurrencyCommand command = commands.get(i);
+                    try {
+                        durables[i] = command instanceof SellCurrencyCommand
+                                ? applySell((SellCurrencyCommand) command, currencies[i], exchangedAmounts[i], quotes[i])
+                                : applyBuy((BuyCurrencyCommand) command, currencies[i], exchangedAmounts[i], quotes[i]);
+                    } catch (RuntimeException e) {
+                        errors[i] = e;
+                    }
+                }
+                return null;
+            })));
+
+            // completion of the partition tasks publishes the errors and durables they set
+            return CompletableFuture.allOf(applied.toArray(CompletableFuture[]::new))
+                    .thenCompose(appliedAll -> settled(Arrays.asList(durables)))
+                    .thenApply(durableAll -> {
+                        List<CommandResult> results = new ArrayList<>(size);
+                        for (int i = 0; i < size; i++) {
+                            if (errors[i] == null) {
+                                try {
+                                    await(durables[i]);
+                                } catch (RuntimeException e) {
+                                    errors[i] = e;
+                                }
+                            }
+                            results.add(errors[i] == null ? CommandResult.success() : CommandResult.failure(errors[i]));
+                        }
+                        return results;
+                    });
+        });
+    }
+
+    /**
+     * Completes once the given future has, whether it failed or not.
+     */
+    private static CompletableFuture<Void> settled(CompletableFuture<?> future) {
+        return future.handle((value, failure) -> null);
+    }
+
+    /**
+     * Completes once every given future has, whether it failed or not. Missing futures are skipped.
+     */
+    private static CompletableFuture<Void> settled(List<? extends CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.stream()
+                .filter(Objects::nonNull)
+                .map(future -> future.handle((value, failure) -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> applyBuy(BuyCurrencyCommand buyCurrencyCommand, SupportedCurrency currency, long costAmount,
+                                             Quote quote) {
+        return update(buyCurrencyCommand.getId(), account -> {
+            account.withdrawFunds(PLN, costAmount);
+            account.depositFunds(currency, buyCurrencyCommand.getAmount());
+            return new CurrencyBoughtEvent(buyCurrencyCommand.getId(), account.getVersion() + 1,
+                    buyCurrencyCommand.getCurrency(), buyCurrencyCommand.getAmount(), costAmount);
+        }, quote, 1).thenRun(() -> {
+            tradingMetrics.recordTraded(currency, buyCurrencyCommand.getAmount());
+            tradingMetrics.recordTraded(PLN, costAmount);
+        });
+    }
+
+    private CompletableFuture<Void> applySell(SellCurrencyCommand sellCurrencyCommand, SupportedCurrency currency, long exchangedAmount,
+                                              Quote quote) {
+        return update(sellCurrencyCommand.getId(), account -> {
+            account.withdrawFunds(currency, sellCurrencyCommand.getAmount());
+            account.depositFunds(PLN, exchangedAmount);
+            return new CurrencySoldEvent(sellCurrencyCommand.getId(), account.getVersion() + 1,
+                    sellCurrencyCommand.getCurrency(), sellCurrencyCommand.getAmount(), exchangedAmount);
+        }, quote, 1).thenRun(() -> {
+            tradingMetrics.recordTraded(currency, sellCurrencyCommand.getAmount());
+            tradingMetrics.recordTraded(PLN, exchangedAmount);
+        });
+    }
+
+    /**
+     * Applies the change to the latest state of the account on its partition and journals the event the change
+     * returns. The new state is saved to the repository only once the event is durable, so readers never see a
+     * change a restart would lose, while later commands on the partition already build on it. Neither the journal
+     * nor the save is waited for on the partition. An account with no change pending is read without blocking the
+     * partition, the change is applied on the partition once it is read, and commands submitted meanwhile build on
+     * it rather than reading on their own, so each account's changes keep their order. A quote the trade is made
+     * with is consumed once the change has been applied and given back when the change was not journaled or saved,
+     * so a trade that did not happen leaves the quote usable.
+     * When another writer saved the account in between, the change is applied again after an exponential backoff.
+     * The partition is the only writer of this process, so only another instance sharing the database conflicts,
+     * and the database needs no journal.
+     */
+    private CompletableFuture<Void> update(UUID id, Function<Account, AccountEvent> change) {
+        return update(id, change, null, 1);
+    }
+
+    private CompletableFuture<Void> update(UUID id, Function<Account, AccountEvent> change, Quote quote, int attempt) {
+        PendingUpdate previous = unpublished.get(id);
+        CompletableFuture<Account> read = previous != null ? previous.state : findAsync(id);
+        // registered before the state is read, later commands on the partition then build on this one
+        PendingUpdate next = new PendingUpdate();
+        unpublished.put(id, next);
+        next.published.whenComplete((saved, failure) -> unpublished.remove(id, next));
+        if (read.isDone()) {
+            return apply(id, change, quote, attempt, read, previous, next);
+        }
+        return settled(read)
+                .thenCompose(readAll -> accountCommandExecutor.execute(id,
+                        () -> apply(id, change, quote, attempt, read, previous, next)))
+                .thenCompose(applied -> applied);
+    }
+
+    /**
+     * Applies the change to the read state on the account's partition and completes the pending update with the
+     * state later commands build on and the save they wait for.
+     */
+    private CompletableFuture<Void> apply(UUID id, Function<Account, AccountEvent> change, Quote quote, int attempt,
+                                          CompletableFuture<Account> read, PendingUpdate previous, PendingUpdate next) {
+        Account account;
+        CompletableFuture<Void> durable;
+        try {
+            // the read state is handed on unchanged when the change fails, so the change is applied to a copy
+            account = await(read).copy();
+            AccountEvent event = change.apply(account);
+            if (quote != null && attempt == 1) {
+                quoteService.consumeQuote(quote);
+            }
+            try {
+                // a journal that could not force an earlier append refuses this one, nothing is saved then
+                durable = accountJournal.append(event);
+            } catch (RuntimeException e) {
+                if (quote != null) {
+                    quoteService.releaseQuote(quote);
+                }
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            // nothing changed, later commands build on the state this one read
+            next.completeWith(read, previous != null ? previous.published : null);
+            return CompletableFuture.failedFuture(e);
+        }
+        // a state is saved after the one it was built on, so a failed save fails the saves built on it
+        CompletableFuture<Void> published = (previous != null ? durable.thenCombine(previous.published, (appended, saved) -> null) : durable)
+                .thenCompose(appended -> accountRepository.saveAsync(account))
+                .thenApply(savedId -> null);
+        next.completeWith(CompletableFuture.completedFuture(account.nextVersion()), published);
+        return published.handle((saved, failure) -> {
+            if (failure == null) {
+                return published;
+            }
+            if (attempt == MAX_UPDATE_ATTEMPTS || !(unwrap(failure) instanceof ConcurrentAccountUpdateException)) {
+                if (quote != null) {
+                    quoteService.releaseQuote(quote);
+                }
+                return CompletableFuture.<Void>failedFuture(unwrap(failure));
+            }
+            long backoffNanos = INITIAL_UPDATE_BACKOFF.toNanos() << (attempt - 1);
+            Executor afterBackoff = CompletableFuture.delayedExecutor(
+                    ThreadLocalRandom.current().nextLong(backoffNanos / 2, backoffNanos + 1), TimeUnit.NANOSECONDS);
+            return CompletableFuture.runAsync(() -> { }, afterBackoff)
+                    // the quote stays consumed by the first attempt while the change is retried
+                    .thenCompose(waited -> accountCommandExecutor.execute(id, () -> update(id, change, quote, attempt + 1)))
+                    .thenCompose(retried -> retried);
+        }).thenCompose(result -> result);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
 
-        BigDecimal exchangeRate = exchangeRateProvider.getBidExchangeRate(sellCurrencyCommand.getCurrency());
-        BigDecimal exchangedAmount = sellCurrencyCommand.getAmount().multiply(exchangeRate);
+    private static final class PendingUpdate {
+        // the state after the change, or the state it read when the change was not applied
+        final CompletableFuture<Account> state = new CompletableFuture<>();
+        // completes once the event is durable and the state saved
+        final CompletableFuture<Void> published = new CompletableFuture<>();
 
-        account.withdrawFunds(sellCurrencyCommand.getCurrency(), sellCurrencyCommand.getAmount());
-        account.depositFunds(PLN, exchangedAmount);
-        accountRepository.save(account);
+        void completeWith(CompletableFuture<Account> state, CompletableFuture<Void> published) {
+            state.whenComplete((account, failure) -> {
+                if (failure == null) {
+                    this.state.complete(account);
+                } else {
+                    this.state.completeExceptionally(unwrap(failure));
+                }
+            });
+            if (published == null) {
+                this.published.complete(null);
+                return;
+            }
+            published.whenComplete((saved, failure) -> {
+                if (failure == null) {
+                    this.published.complete(null);
+                } else {
+                    this.published.completeExceptionally(unwrap(failure));
+                }
+            });
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+/**
+ * Outcome of one command of a batch, the error is the exception the command would have failed with on its own.
+ */
+@Value
+public class CommandResult {
+    private static final CommandResult SUCCESS = new CommandResult(null);
+
+    RuntimeException error;
+
+    public static CommandResult success() {
+        return SUCCESS;
+    }
+
+    public static CommandResult failure(RuntimeException error) {
+        return new CommandResult(error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
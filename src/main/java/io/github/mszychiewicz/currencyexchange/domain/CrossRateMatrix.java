@@ -0,0 +1,79 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.ExchangeRateUnavailableException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+
+/**
+ * Rates between every pair of supported currencies, crossed through PLN: a unit of the sold currency is worth its
+ * bid in PLN, which buys the other currency at its ask. Rates are fixed-point longs of {@link #SCALE} decimal
+ * places indexed by both {@link SupportedCurrency} ordinals, rounded down so a cross trade never pays out more
+ * than its two legs would.
+ */
+public final class CrossRateMatrix {
+    public static final int SCALE = 8;
+    public static final String EXCHANGE_RATE_UNAVAILABLE_MESSAGE = "Exchange rate unavailable.";
+
+    private static final long MISSING = 0;
+
+    // currencies registered after the matrix was crossed lie outside of it and have no rates
+    private final int size;
+    private final long[] rates;
+
+    private CrossRateMatrix(List<SupportedCurrency> currencies, Map<Currency, ExchangeRate> exchangeRates) {
+        size = currencies.size();
+        rates = new long[size * size];
+        for (SupportedCurrency from : currencies) {
+            BigDecimal bid = from == PLN ? BigDecimal.ONE : rate(exchangeRates, from, ExchangeRate::getBid);
+            for (SupportedCurrency to : currencies) {
+                BigDecimal ask = to == PLN ? BigDecimal.ONE : rate(exchangeRates, to, ExchangeRate::getAsk);
+                if (bid != null && ask != null) {
+                    rates[from.ordinal() * size + to.ordinal()] = from == to
+                            ? BigDecimal.ONE.movePointRight(SCALE).longValueExact()
+                            : bid.divide(ask, SCALE, RoundingMode.DOWN).unscaledValue().longValueExact();
+                }
+            }
+        }
+    }
+
+    /**
+     * Crosses the rates of a table for the given currencies in ordinal order, currencies missing from the table
+     * cannot be exchanged.
+     */
+    public static CrossRateMatrix of(List<SupportedCurrency> currencies, Map<Currency, ExchangeRate> exchangeRates) {
+        return new CrossRateMatrix(currencies, exchangeRates);
+    }
+
+    /**
+     * Units of {@code to} per unit of {@code from}, scaled by {@link #SCALE} decimal places.
+     */
+    public long getRate(SupportedCurrency from, SupportedCurrency to) {
+        long rate = from.ordinal() < size && to.ordinal() < size ? rates[from.ordinal() * size + to.ordinal()] : MISSING;
+        if (rate == MISSING) {
+            throw new ExchangeRateUnavailableException(EXCHANGE_RATE_UNAVAILABLE_MESSAGE);
+        }
+        return rate;
+    }
+
+    /**
+     * Converts minor units of {@code from} to minor units of {@code to}, rounded with the rounding mode of {@code to}.
+     */
+    public long exchange(long amount, SupportedCurrency from, SupportedCurrency to) {
+        return Money.exchange(amount, from, getRate(from, to), SCALE, to);
+    }
+
+    private static BigDecimal rate(Map<Currency, ExchangeRate> exchangeRates,
+                                   SupportedCurrency currency,
+                                   Function<ExchangeRate, BigDecimal> side) {
+        ExchangeRate exchangeRate = exchangeRates.get(currency.getCurrency());
+        BigDecimal rate = exchangeRate == null ? null : side.apply(exchangeRate);
+        return rate == null || rate.signum() <= 0 ? null : rate;
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link CrossRateMatrix} of the latest rate table, crossed once per refresh instead of on every trade.
+ */
+@Service
+public class CrossRateService {
+    private final ExchangeRateProvider exchangeRateProvider;
+    private final SupportedCurrencies supportedCurrencies;
+    private final Clock clock;
+    private final Duration maxStaleness;
+
+    private volatile CrossedTable crossed;
+    private final AtomicReference<Fallback> fallback = new AtomicReference<>();
+
+    @Autowired
+    public CrossRateService(ExchangeRateProvider exchangeRateProvider,
+                            SupportedCurrencies supportedCurrencies,
+                            Clock clock,
+                            @Value("${clients.nbp.cache.maxStaleness}") Duration maxStaleness) {
+        this.exchangeRateProvider = exchangeRateProvider;
+        this.supportedCurrencies = supportedCurrencies;
+        this.clock = clock;
+        this.maxStaleness = maxStaleness;
+    }
+
+    @EventListener
+    public void onExchangeRateTableRefreshed(ExchangeRateTableRefreshedEvent event) {
+        crossed = new CrossedTable(CrossRateMatrix.of(supportedCurrencies.values(), event.getTable().getRates()), event.getDueAt());
+    }
+
+    /**
+     * Returns the matrix of the latest refreshed table, as long as the table is not stale by more than the
+     * provider would serve it. Otherwise the matrix is crossed from one table fetched through the provider, which
+     * refreshes the table. Callers finding the same stale table share that fetch and its matrix, currencies the
+     * provider fails to serve cannot be exchanged.
+     */
+    public CompletableFuture<CrossRateMatrix> currentMatrix() {
+        CrossedTable crossed = this.crossed;
+        if (isCurrent(crossed)) {
+            return CompletableFuture.completedFuture(crossed.matrix);
+        }
+        Instant staleDueAt = crossed != null ? crossed.dueAt : null;
+        Fallback fallback = this.fallback.get();
+        if (fallback != null && Objects.equals(fallback.staleDueAt, staleDueAt)) {
+            return fallback.matrix;
+        }
+        Fallback fetching = new Fallback(staleDueAt);
+        if (!this.fallback.compareAndSet(fallback, fetching)) {
+            return currentMatrix();
+        }
+        fetch(fetching);
+        return fetching.matrix;
+    }
+
+    private void fetch(Fallback fallback) {
+        List<SupportedCurrency> currencies = supportedCurrencies.values();
+        List<Currency> tradable = currencies.stream()
+                .filter(currency -> currency != SupportedCurrencies.PLN)
+                .map(SupportedCurrency::getCurrency)
+                .collect(Collectors.toList());
+        exchangeRateProvider.getExchangeRatesAsync(tradable).whenComplete((exchangeRates, e) -> {
+            if (e != null) {
+                // a failed fetch is not shared, the next caller fetches again
+                this.fallback.compareAndSet(fallback, null);
+                fallback.matrix.complete(CrossRateMatrix.of(currencies, Map.of()));
+                return;
+            }
+            CrossedTable current = this.crossed;
+            fallback.matrix.complete(isCurrent(current) ? current.matrix : CrossRateMatrix.of(currencies, exchangeRates));
+        });
+    }
+
+    private boolean isCurrent(CrossedTable crossed) {
+        return crossed != null && !clock.instant().isAfter(crossed.dueAt.plus(maxStaleness));
+    }
+
+    private static final class Fallback {
+        // due time of the stale table the fallback stands in for, null before the first table
+        final Instant staleDueAt;
+        final CompletableFuture<CrossRateMatrix> matrix = new CompletableFuture<>();
+
+        Fallback(Instant staleDueAt) {
+            this.staleDueAt = staleDueAt;
+        }
+    }
+
+    private static final class CrossedTable {
+        final CrossRateMatrix matrix;
+        final Instant dueAt;
+
+        CrossedTable(CrossRateMatrix matrix, Instant dueAt) {
+            this.matrix = matrix;
+            this.dueAt = dueAt;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.util.Currency;
+import java.util.UUID;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+
+@Value
+public class CurrencyBoughtEvent implements AccountEvent {
+    UUID accountId;
+    long version;
+    Currency currency;
+    // minor units of the bought currency
+    long amount;
+    // PLN minor units paid, recorded so replay does not depend on the rate
+    long costAmount;
+
+    @Override
+    public Account replay(Account account, SupportedCurrencies supportedCurrencies) {
+        account.withdrawFunds(PLN, costAmount);
+        account.depositFunds(supportedCurrencies.register(currency), amount);
+        return account;
+    }
+}
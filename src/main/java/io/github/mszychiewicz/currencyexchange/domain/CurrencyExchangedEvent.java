@@ -0,0 +1,24 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.util.Currency;
+import java.util.UUID;
+
+@Value
+public class CurrencyExchangedEvent implements AccountEvent {
+    UUID accountId;
+    long version;
+    Currency from;
+    // minor units of the sold currency
+    long amount;
+    Currency to;
+    // minor units of the bought currency, recorded so replay does not depend on the rate
+    long exchangedAmount;
+
+    @Override
+    public Account replay(Account account, SupportedCurrencies supportedCurrencies) {
+        account.exchangeFunds(supportedCurrencies.register(from), amount, supportedCurrencies.register(to), exchangedAmount);
+        return account;
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.util.Currency;
+import java.util.UUID;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+
+@Value
+public class CurrencySoldEvent implements AccountEvent {
+    UUID accountId;
+    long version;
+    Currency currency;
+    // minor units of the sold currency
+    long amount;
+    // PLN minor units received, recorded so replay does not depend on the rate
+    long exchangedAmount;
+
+    @Override
+    public Account replay(Account account, SupportedCurrencies supportedCurrencies) {
+        account.withdrawFunds(supportedCurrencies.register(currency), amount);
+        account.depositFunds(PLN, exchangedAmount);
+        return account;
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class ExchangeRate {
+    BigDecimal ask;
+    BigDecimal bid;
+}
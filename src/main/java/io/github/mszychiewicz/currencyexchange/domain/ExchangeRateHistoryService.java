@@ -0,0 +1,24 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidDateRangeException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class ExchangeRateHistoryService {
+    public static final String INVALID_DATE_RANGE_MESSAGE = "Start date must not be after end date.";
+
+    private final HistoricalExchangeRateRepository historicalExchangeRateRepository;
+
+    public List<HistoricalExchangeRate> getRates(Currency currency, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new InvalidDateRangeException(INVALID_DATE_RANGE_MESSAGE);
+        }
+        return historicalExchangeRateRepository.findBetween(currency, from, to);
+    }
+}
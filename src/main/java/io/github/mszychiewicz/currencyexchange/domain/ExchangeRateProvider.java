@@ -1,10 +1,45 @@
 package io.github.mszychiewicz.currencyexchange.domain;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public interface ExchangeRateProvider {
     BigDecimal getAskExchangeRate(Currency currency);
 
     BigDecimal getBidExchangeRate(Currency currency);
+
+    default CompletableFuture<BigDecimal> getAskExchangeRateAsync(Currency currency) {
+        try {
+            return CompletableFuture.completedFuture(getAskExchangeRate(currency));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    default CompletableFuture<BigDecimal> getBidExchangeRateAsync(Currency currency) {
+        try {
+            return CompletableFuture.completedFuture(getBidExchangeRate(currency));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Rates of at least the given currencies, currencies the provider fails to serve are left out. Providers
+     * backed by a rate table serve the whole table with one request, the default asks for every rate on its own.
+     */
+    default CompletableFuture<Map<Currency, ExchangeRate>> getExchangeRatesAsync(Collection<Currency> currencies) {
+        Map<Currency, ExchangeRate> exchangeRates = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] fetches = currencies.stream()
+                .map(currency -> getAskExchangeRateAsync(currency)
+                        .thenCombine(getBidExchangeRateAsync(currency), ExchangeRate::new)
+                        .thenAccept(exchangeRate -> exchangeRates.put(currency, exchangeRate))
+                        .exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(fetches).thenApply(fetched -> exchangeRates);
+    }
 }
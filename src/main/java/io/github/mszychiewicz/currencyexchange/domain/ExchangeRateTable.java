@@ -0,0 +1,23 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Map;
+import java.util.Optional;
+
+@Value
+public class ExchangeRateTable {
+    LocalDate effectiveDate;
+    Map<Currency, ExchangeRate> rates;
+
+    public ExchangeRateTable(LocalDate effectiveDate, Map<Currency, ExchangeRate> rates) {
+        this.effectiveDate = effectiveDate;
+        this.rates = Map.copyOf(rates);
+    }
+
+    public Optional<ExchangeRate> getRate(Currency currency) {
+        return Optional.ofNullable(rates.get(currency));
+    }
+}
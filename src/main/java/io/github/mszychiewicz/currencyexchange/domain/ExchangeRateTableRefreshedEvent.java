@@ -0,0 +1,13 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+public class ExchangeRateTableRefreshedEvent {
+    ExchangeRateTable table;
+    Instant fetchedAt;
+    // when the next table is expected, the table is served for at most the allowed staleness past it
+    Instant dueAt;
+}
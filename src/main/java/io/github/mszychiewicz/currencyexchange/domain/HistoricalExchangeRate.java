@@ -0,0 +1,13 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Value
+public class HistoricalExchangeRate {
+    LocalDate effectiveDate;
+    BigDecimal ask;
+    BigDecimal bid;
+}
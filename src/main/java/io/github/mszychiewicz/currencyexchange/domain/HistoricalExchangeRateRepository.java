@@ -0,0 +1,25 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+
+public interface HistoricalExchangeRateRepository {
+    void saveAll(Collection<ExchangeRateTable> tables);
+
+    default void save(ExchangeRateTable table) {
+        saveAll(List.of(table));
+    }
+
+    /**
+     * Rate in effect on the given date, i.e. from the latest table published on or before it.
+     */
+    Optional<HistoricalExchangeRate> findOn(Currency currency, LocalDate date);
+
+    /**
+     * Rates published between the given dates, both inclusive, ordered by effective date.
+     */
+    List<HistoricalExchangeRate> findBetween(Currency currency, LocalDate from, LocalDate to);
+}
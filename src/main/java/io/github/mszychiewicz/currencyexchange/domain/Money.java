@@ -0,0 +1,132 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidAmountException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Fixed-point money arithmetic. Amounts are longs in the minor unit of their currency, e.g. grosze for PLN
+ * and cents for USD. BigDecimal is only used at the edges: request and response mapping and NBP rates.
+ */
+public final class Money {
+    public static final String AMOUNT_OUT_OF_RANGE_MESSAGE = "Amount out of range.";
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private Money() {
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more decimal places than the currency or does not fit a long
+     */
+    public static long toMinorUnits(BigDecimal amount, Currency currency) {
+        return amount.movePointRight(fractionDigits(currency)).longValueExact();
+    }
+
+    /**
+     * Converts a decimal given as its unscaled value and scale, e.g. 1250 and 2 for 12.50, without going
+     * through BigDecimal.
+     *
+     * @throws ArithmeticException if the amount has more decimal places than the currency or does not fit a long
+     */
+    public static long toMinorUnits(long unscaledAmount, int scale, Currency currency) {
+        int shift = fractionDigits(currency) - scale;
+        if (unscaledAmount == 0) {
+            return 0;
+        }
+        if (shift >= 0) {
+            if (shift >= POWERS_OF_TEN.length) {
+                throw new ArithmeticException("Overflow");
+            }
+            return Math.multiplyExact(unscaledAmount, POWERS_OF_TEN[shift]);
+        }
+        if (-shift >= POWERS_OF_TEN.length || unscaledAmount % POWERS_OF_TEN[-shift] != 0) {
+            throw new ArithmeticException("Rounding necessary");
+        }
+        return unscaledAmount / POWERS_OF_TEN[-shift];
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits, Currency currency) {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    /**
+     * Converts a non-negative amount at a rate given in units of {@code to} per unit of {@code from},
+     * rounding the result with the rounding mode of {@code to}.
+     *
+     * @throws InvalidAmountException if the exchanged amount does not fit a long
+     */
+    public static long exchange(long amount, SupportedCurrency from, BigDecimal rate, SupportedCurrency to) {
+        return exchange(amount, from, rate.unscaledValue().longValueExact(), rate.scale(), to);
+    }
+
+    public static long exchange(long amount, SupportedCurrency from, long rate, int rateScale, SupportedCurrency to) {
+        long product = multiply(amount, rate);
+        int shift = from.getFractionDigits() + rateScale - to.getFractionDigits();
+        if (shift <= 0) {
+            return multiply(product, POWERS_OF_TEN[-shift]);
+        }
+        return divide(product, POWERS_OF_TEN[shift], to.getRoundingMode());
+    }
+
+    /**
+     * Adds two amounts of one currency.
+     *
+     * @throws InvalidAmountException if the sum does not fit a long
+     */
+    public static long add(long amount, long augend) {
+        try {
+            return Math.addExact(amount, augend);
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException(AMOUNT_OUT_OF_RANGE_MESSAGE);
+        }
+    }
+
+    private static long multiply(long amount, long factor) {
+        try {
+            return Math.multiplyExact(amount, factor);
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException(AMOUNT_OUT_OF_RANGE_MESSAGE);
+        }
+    }
+
+    // pseudo-currencies such as gold report -1, they have no minor unit
+    private static int fractionDigits(Currency currency) {
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+
+    private static long divide(long dividend, long divisor, RoundingMode roundingMode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long twiceRemainder = remainder * 2;
+        switch (roundingMode) {
+            case DOWN:
+            case FLOOR:
+                return quotient;
+            case UP:
+            case CEILING:
+                return quotient + 1;
+            case HALF_UP:
+                return twiceRemainder >= divisor ? quotient + 1 : quotient;
+            case HALF_DOWN:
+                return twiceRemainder > divisor ? quotient + 1 : quotient;
+            case HALF_EVEN:
+                return twiceRemainder > divisor || (twiceRemainder == divisor && quotient % 2 != 0)
+                        ? quotient + 1
+                        : quotient;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.UUID;
+
+@Value
+public class Quote {
+    UUID id;
+    UUID accountId;
+    QuoteSide side;
+    Currency currency;
+    long amount;
+    BigDecimal exchangeRate;
+    Instant expiresAt;
+}
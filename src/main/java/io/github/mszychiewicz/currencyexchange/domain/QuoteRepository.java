@@ -0,0 +1,20 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface QuoteRepository {
+    UUID save(Quote quote);
+
+    /**
+     * Returns the quote if it has not expired, without consuming it.
+     */
+    Optional<Quote> find(UUID id);
+
+    Optional<Quote> take(UUID id);
+
+    /**
+     * Puts a taken quote back until it expires, without counting it as a new quote.
+     */
+    void restore(Quote quote);
+}
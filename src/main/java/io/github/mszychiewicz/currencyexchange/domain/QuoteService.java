@@ -0,0 +1,98 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.command.CurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.RequestQuoteCommand;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidQuoteException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class QuoteService {
+    private final QuoteRepository quoteRepository;
+    private final ExchangeRateProvider exchangeRateProvider;
+    private final Clock clock;
+    private final Duration quoteTtl;
+
+    public static final String INVALID_QUOTE_MESSAGE = "Quote not found, expired or not matching the command.";
+
+    @Autowired
+    public QuoteService(QuoteRepository quoteRepository,
+                        ExchangeRateProvider exchangeRateProvider,
+                        Clock clock,
+                        @Value("${quotes.ttl}") Duration quoteTtl) {
+        this.quoteRepository = quoteRepository;
+        this.exchangeRateProvider = exchangeRateProvider;
+        this.clock = clock;
+        this.quoteTtl = quoteTtl;
+    }
+
+    /**
+     * Fetches the current rate of the command's side, to be quoted with {@link #createQuote}.
+     */
+    CompletableFuture<BigDecimal> fetchExchangeRateAsync(RequestQuoteCommand requestQuoteCommand) {
+        return requestQuoteCommand.getSide() == QuoteSide.BUY
+                ? exchangeRateProvider.getAskExchangeRateAsync(requestQuoteCommand.getCurrency())
+                : exchangeRateProvider.getBidExchangeRateAsync(requestQuoteCommand.getCurrency());
+    }
+
+    /**
+     * Saves a quote of the fetched rate, valid for the configured time to live from now.
+     */
+    Quote createQuote(RequestQuoteCommand requestQuoteCommand, BigDecimal exchangeRate) {
+        Quote quote = new Quote(
+                UUID.randomUUID(),
+                requestQuoteCommand.getAccountId(),
+                requestQuoteCommand.getSide(),
+                requestQuoteCommand.getCurrency(),
+                requestQuoteCommand.getAmount(),
+                exchangeRate,
+                clock.instant().plus(quoteTtl)
+        );
+        quoteRepository.save(quote);
+        return quote;
+    }
+
+    /**
+     * Looks the quote of the command up without consuming it, so a trade that fails validation keeps its quote.
+     */
+    Quote findQuote(CurrencyCommand currencyCommand, QuoteSide side) {
+        Quote quote = quoteRepository.find(currencyCommand.getQuoteId())
+                .orElseThrow(() -> new InvalidQuoteException(INVALID_QUOTE_MESSAGE));
+        if (!quote.getAccountId().equals(currencyCommand.getId())
+                || quote.getSide() != side
+                || !quote.getCurrency().equals(currencyCommand.getCurrency())
+                || quote.getAmount() != currencyCommand.getAmount()
+                || isExpired(quote)) {
+            throw new InvalidQuoteException(INVALID_QUOTE_MESSAGE);
+        }
+        return quote;
+    }
+
+    /**
+     * Consumes a quote found before, once the trade made with it is applied. Fails when the quote expired or
+     * was used by another trade in the meantime.
+     */
+    void consumeQuote(Quote quote) {
+        if (!quoteRepository.take(quote.getId()).filter(quote::equals).isPresent() || isExpired(quote)) {
+            throw new InvalidQuoteException(INVALID_QUOTE_MESSAGE);
+        }
+    }
+
+    /**
+     * Gives back a quote consumed by a trade whose change could not be saved, so the trade can be made with it again.
+     */
+    void releaseQuote(Quote quote) {
+        quoteRepository.restore(quote);
+    }
+
+    private boolean isExpired(Quote quote) {
+        return !clock.instant().isBefore(quote.getExpiresAt());
+    }
+}
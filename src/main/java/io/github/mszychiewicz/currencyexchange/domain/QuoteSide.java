@@ -0,0 +1,5 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+public enum QuoteSide {
+    BUY, SELL
+}
@@ -1,24 +1,253 @@
 package io.github.mszychiewicz.currencyexchange.domain;
 
 import io.github.mszychiewicz.currencyexchange.domain.exception.CurrencyNotSupportedException;
-import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
-@RequiredArgsConstructor
-public enum SupportedCurrencies {
-    USD;
-
+/**
+ * Registry of the currencies accounts can hold. PLN, the account base currency, is always registered first,
+ * other currencies are registered as rate tables list them and as stored accounts turn out to hold them.
+ * Currencies are never unregistered, accounts may still hold a currency a later table no longer lists.
+ * <p>
+ * Registered currencies are indexed by their three-letter code, so resolving a currency is an array read
+ * without hashing or allocation. Registration is serialized, lookups never lock.
+ * <p>
+ * Each currency keeps the rounding mode it was registered with, currencies registered without one round
+ * {@link #DEFAULT_ROUNDING_MODE}. Every application context has a registry of its own, ordinals and rounding
+ * modes are only meaningful within the registry that handed the currency out, except for {@link #PLN}.
+ * <p>
+ * Account stores with a fixed number of balances per account cap the registry with {@link #limitTo(int)}, so a
+ * currency that would not fit is rejected when it is registered rather than when an account holding it is saved.
+ */
+@Component
+public final class SupportedCurrencies {
     public static final String CURRENCY_NOT_SUPPORTED_MESSAGE = "Currency not supported.";
+    public static final RoundingMode DEFAULT_ROUNDING_MODE = RoundingMode.HALF_UP;
+
+    private static final int CODE_LENGTH = 3;
+    private static final int LETTERS = 'Z' - 'A' + 1;
+    private static final int CODES = LETTERS * LETTERS * LETTERS;
+
+    // ISO 4217 currencies known to the runtime by code, whether registered or not
+    private static final Currency[] CURRENCIES = new Currency[CODES];
+
+    static {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            int index = index(currency.getCurrencyCode());
+            if (index >= 0) {
+                CURRENCIES[index] = currency;
+            }
+        }
+    }
+
+    // the first currency of every registry
+    public static final SupportedCurrency PLN = new SupportedCurrency(0, Currency.getInstance("PLN"), DEFAULT_ROUNDING_MODE);
 
-    static public void validateCurrencySupport(Currency currency) {
-        if (isNotInValues(currency.getCurrencyCode())) {
+    private final AtomicReferenceArray<SupportedCurrency> byCode = new AtomicReferenceArray<>(CODES);
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by the lock, replaced as a whole so readers iterate a consistent prefix of ordinals
+    private volatile List<SupportedCurrency> values = List.of(PLN);
+    // guarded by the lock
+    private int limit = Integer.MAX_VALUE;
+
+    public SupportedCurrencies() {
+        byCode.set(index(PLN.getCurrency().getCurrencyCode()), PLN);
+    }
+
+    /**
+     * Returns the registered currency, registering it with the next ordinal and the default rounding mode if it
+     * was never seen.
+     */
+    public SupportedCurrency register(Currency currency) {
+        int index = checkedIndex(currency);
+        SupportedCurrency registered = byCode.get(index);
+        return registered != null ? registered : registerIfAbsent(index, currency, DEFAULT_ROUNDING_MODE);
+    }
+
+    /**
+     * Registers the currency with the given rounding mode, a currency already registered with another mode is
+     * rejected rather than changing the rounding of exchanges made before.
+     */
+    public SupportedCurrency register(Currency currency, RoundingMode roundingMode) {
+        SupportedCurrency registered = registerIfAbsent(checkedIndex(currency), currency, roundingMode);
+        if (registered.getRoundingMode() != roundingMode) {
+            throw new IllegalStateException(currency.getCurrencyCode() + " is already registered rounding "
+                    + registered.getRoundingMode());
+        }
+        return registered;
+    }
+
+    public void registerAll(Collection<Currency> currencies) {
+        currencies.stream()
+                .sorted(Comparator.comparing(Currency::getCurrencyCode))
+                .forEach(this::register);
+    }
+
+    /**
+     * Registers the currencies that fit under the limit, in code order like {@link #registerAll(Collection)}.
+     *
+     * @return the currencies left unregistered because the registry is full
+     */
+    public List<Currency> registerAllWithinLimit(Collection<Currency> currencies) {
+        List<Currency> rejected = new ArrayList<>();
+        currencies.stream()
+                .sorted(Comparator.comparing(Currency::getCurrencyCode))
+                .forEach(currency -> {
+                    int index = checkedIndex(currency);
+                    if (byCode.get(index) == null && registerIfAbsent(index, currency, DEFAULT_ROUNDING_MODE, false) == null) {
+                        rejected.add(currency);
+                    }
+                });
+        return rejected;
+    }
+
+    /**
+     * Caps the number of currencies, PLN included, that can be registered from now on.
+     *
+     * @throws IllegalStateException if more currencies are registered already
+     */
+    public void limitTo(int limit) {
+        lock.lock();
+        try {
+            if (values.size() > limit) {
+                throw new IllegalStateException(values.size() + " currencies are registered, more than the limit of "
+                        + limit);
+            }
+            this.limit = Math.min(this.limit, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registered currencies in ordinal order.
+     */
+    public List<SupportedCurrency> values() {
+        return values;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public Optional<SupportedCurrency> find(Currency currency) {
+        return Optional.ofNullable(lookup(currency));
+    }
+
+    public SupportedCurrency supported(Currency currency) {
+        SupportedCurrency supportedCurrency = lookup(currency);
+        if (supportedCurrency == null) {
             throw new CurrencyNotSupportedException(CURRENCY_NOT_SUPPORTED_MESSAGE);
         }
+        return supportedCurrency;
+    }
+
+    /**
+     * Currency that can be bought or sold for PLN, PLN itself is the account base currency and is not tradable.
+     */
+    public SupportedCurrency tradable(Currency currency) {
+        SupportedCurrency supportedCurrency = lookup(currency);
+        if (supportedCurrency == null || supportedCurrency == PLN) {
+            throw new CurrencyNotSupportedException(CURRENCY_NOT_SUPPORTED_MESSAGE);
+        }
+        return supportedCurrency;
+    }
+
+    /**
+     * Whether the code names an ISO 4217 currency at all, registered or not.
+     */
+    public static boolean isCurrencyCode(String code) {
+        int index = index(code);
+        return index >= 0 && CURRENCIES[index] != null;
+    }
+
+    /**
+     * Resolves a code held in a character buffer, such as a parser's, without copying it to a string.
+     *
+     * @return the ISO 4217 currency, registered or not, or {@code null}
+     */
+    public static Currency currency(char[] code, int offset, int length) {
+        int index = index(code, offset, length);
+        return index < 0 ? null : CURRENCIES[index];
+    }
+
+    private SupportedCurrency lookup(Currency currency) {
+        int index = index(currency.getCurrencyCode());
+        return index < 0 ? null : byCode.get(index);
+    }
+
+    private SupportedCurrency registerIfAbsent(int index, Currency currency, RoundingMode roundingMode) {
+        return registerIfAbsent(index, currency, roundingMode, true);
+    }
+
+    /**
+     * @return the registered currency, or {@code null} if the registry is full and failing is not wanted
+     */
+    private SupportedCurrency registerIfAbsent(int index, Currency currency, RoundingMode roundingMode, boolean failIfFull) {
+        lock.lock();
+        try {
+            SupportedCurrency registered = byCode.get(index);
+            if (registered != null) {
+                return registered;
+            }
+            if (values.size() >= limit) {
+                if (!failIfFull) {
+                    return null;
+                }
+                throw new IllegalStateException("Cannot register " + currency.getCurrencyCode()
+                        + ", the limit of " + limit + " supported currencies is reached");
+            }
+            List<SupportedCurrency> registeredValues = new ArrayList<>(values);
+            registered = new SupportedCurrency(registeredValues.size(), currency, roundingMode);
+            registeredValues.add(registered);
+            // published in ordinal order first, a currency found by code is then always among the values
+            values = Collections.unmodifiableList(registeredValues);
+            byCode.set(index, registered);
+            return registered;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    static private boolean isNotInValues(String currencyCode) {
-        return Arrays.stream(values()).noneMatch(v -> v.toString().equals(currencyCode));
+    private static int checkedIndex(Currency currency) {
+        int index = index(currency.getCurrencyCode());
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a three-letter currency code: " + currency.getCurrencyCode());
+        }
+        return index;
+    }
+
+    private static int index(String code) {
+        if (code == null || code.length() != CODE_LENGTH) {
+            return -1;
+        }
+        return index(code.charAt(0), code.charAt(1), code.charAt(2));
+    }
+
+    private static int index(char[] code, int offset, int length) {
+        if (length != CODE_LENGTH) {
+            return -1;
+        }
+        return index(code[offset], code[offset + 1], code[offset + 2]);
+    }
+
+    private static int index(char first, char second, char third) {
+        int a = first - 'A';
+        int b = second - 'A';
+        int c = third - 'A';
+        if ((a | b | c) < 0 || a >= LETTERS || b >= LETTERS || c >= LETTERS) {
+            return -1;
+        }
+        return (a * LETTERS + b) * LETTERS + c;
     }
 }
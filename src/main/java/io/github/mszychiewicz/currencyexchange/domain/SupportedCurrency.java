@@ -0,0 +1,38 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.Getter;
+
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * A currency registered in {@link SupportedCurrencies}. The ordinal is dense and never reused, it doubles as the
+ * index into {@link Account}'s balance array, the rounding mode is applied whenever an exchange produces an amount
+ * in this currency.
+ */
+@Getter
+public final class SupportedCurrency {
+    private final int ordinal;
+    private final Currency currency;
+    private final RoundingMode roundingMode;
+
+    SupportedCurrency(int ordinal, Currency currency, RoundingMode roundingMode) {
+        this.ordinal = ordinal;
+        this.currency = currency;
+        this.roundingMode = roundingMode;
+    }
+
+    public int ordinal() {
+        return ordinal;
+    }
+
+    // pseudo-currencies such as gold report -1, they have no minor unit
+    public int getFractionDigits() {
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+
+    @Override
+    public String toString() {
+        return currency.getCurrencyCode();
+    }
+}
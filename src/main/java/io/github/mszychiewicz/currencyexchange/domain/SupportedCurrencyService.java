@@ -0,0 +1,57 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@link SupportedCurrencies} in line with the NBP rate table: the configured currencies are supported
+ * before the first table arrives and every refreshed table adds the currencies it lists. Currencies configured
+ * with a rounding mode are registered first, so no account or table can register them with the default one.
+ * Table currencies past the registry's limit are left unsupported, so trading them is refused.
+ */
+@Slf4j
+@Service
+public class SupportedCurrencyService {
+    private final SupportedCurrencies supportedCurrencies;
+
+    public SupportedCurrencyService(SupportedCurrencies supportedCurrencies,
+                                    @Value("${currencies.supported}") String[] currencyCodes,
+                                    @Value("${currencies.roundingModes}") String[] roundingModes) {
+        this.supportedCurrencies = supportedCurrencies;
+        // CODE:MODE pairs, such as JPY:DOWN
+        for (String roundingMode : roundingModes) {
+            String[] codeAndMode = roundingMode.trim().split(":");
+            if (codeAndMode.length == 2) {
+                supportedCurrencies.register(Currency.getInstance(codeAndMode[0].trim()),
+                        RoundingMode.valueOf(codeAndMode[1].trim()));
+            } else if (!roundingMode.isBlank()) {
+                throw new IllegalArgumentException("Expected CODE:MODE, got " + roundingMode);
+            }
+        }
+        supportedCurrencies.registerAll(Arrays.stream(currencyCodes)
+                .map(String::trim)
+                .filter(code -> !code.isEmpty())
+                .map(Currency::getInstance)
+                .collect(Collectors.toList()));
+    }
+
+    // listeners crossing the table's rates must see its currencies registered
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onExchangeRateTableRefreshed(ExchangeRateTableRefreshedEvent event) {
+        List<Currency> rejected = supportedCurrencies.registerAllWithinLimit(event.getTable().getRates().keySet());
+        if (!rejected.isEmpty()) {
+            log.warn("Currencies {} of the rate table stay unsupported, the supported currency limit is reached", rejected);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Records how long {@link AccountService} operations take, how they fail and how much of each currency changes
+ * hands. Implementations are called on the trade path, recording must neither lock nor block.
+ */
+public interface TradingMetrics {
+    /**
+     * @param failure what the operation failed with, {@code null} if it succeeded
+     */
+    void recordOperation(TradingOperation operation, long elapsedNanos, Throwable failure);
+
+    /**
+     * @param amount minor units of the currency bought or sold
+     */
+    void recordTraded(SupportedCurrency currency, long amount);
+
+    default <T> T time(TradingOperation operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            recordOperation(operation, System.nanoTime() - start, null);
+            return result;
+        } catch (RuntimeException e) {
+            recordOperation(operation, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Times the operation until the returned future completes, failures thrown before it is returned count too.
+     */
+    default <T> CompletableFuture<T> timeAsync(TradingOperation operation, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            recordOperation(operation, System.nanoTime() - start, e);
+            throw e;
+        }
+        result.whenComplete((value, failure) -> recordOperation(operation, System.nanoTime() - start,
+                failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure));
+        return result;
+    }
+}
@@ -0,0 +1,5 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+public enum TradingOperation {
+    OPEN_ACCOUNT, GET_ACCOUNT, REQUEST_QUOTE, BUY, SELL, EXCHANGE, EXECUTE_COMMANDS
+}
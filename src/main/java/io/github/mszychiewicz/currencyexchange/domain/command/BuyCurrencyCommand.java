@@ -1,11 +1,14 @@
 package io.github.mszychiewicz.currencyexchange.domain.command;
 
-import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.UUID;
 
 public class BuyCurrencyCommand extends CurrencyCommand {
-    public BuyCurrencyCommand(UUID id, Currency currency, BigDecimal amount) {
-        super(id, currency, amount);
+    public BuyCurrencyCommand(UUID id, Currency currency, long amount) {
+        this(id, currency, amount, null);
+    }
+
+    public BuyCurrencyCommand(UUID id, Currency currency, long amount, UUID quoteId) {
+        super(id, currency, amount, quoteId);
     }
 }
@@ -4,7 +4,6 @@ package io.github.mszychiewicz.currencyexchange.domain.command;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.UUID;
 
@@ -13,5 +12,7 @@ import java.util.UUID;
 public class CurrencyCommand {
     private final UUID id;
     private final Currency currency;
-    private final BigDecimal amount;
+    // minor units of currency
+    private final long amount;
+    private final UUID quoteId;
 }
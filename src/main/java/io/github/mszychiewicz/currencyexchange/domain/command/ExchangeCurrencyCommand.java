@@ -0,0 +1,15 @@
+package io.github.mszychiewicz.currencyexchange.domain.command;
+
+import lombok.Value;
+
+import java.util.Currency;
+import java.util.UUID;
+
+@Value
+public class ExchangeCurrencyCommand {
+    UUID id;
+    Currency from;
+    Currency to;
+    // minor units of the currency sold
+    long amount;
+}
@@ -2,11 +2,10 @@ package io.github.mszychiewicz.currencyexchange.domain.command;
 
 import lombok.Value;
 
-import java.math.BigDecimal;
-
 @Value
 public class OpenAccountCommand {
     String firstName;
     String lastName;
-    BigDecimal openingBalance;
+    // PLN minor units
+    long openingBalance;
 }
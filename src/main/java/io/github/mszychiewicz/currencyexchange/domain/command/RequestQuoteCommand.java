@@ -0,0 +1,15 @@
+package io.github.mszychiewicz.currencyexchange.domain.command;
+
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import lombok.Value;
+
+import java.util.Currency;
+import java.util.UUID;
+
+@Value
+public class RequestQuoteCommand {
+    UUID accountId;
+    QuoteSide side;
+    Currency currency;
+    long amount;
+}
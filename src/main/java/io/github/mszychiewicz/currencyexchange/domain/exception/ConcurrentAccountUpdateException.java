@@ -0,0 +1,7 @@
+package io.github.mszychiewicz.currencyexchange.domain.exception;
+
+public class ConcurrentAccountUpdateException extends RuntimeException {
+    public ConcurrentAccountUpdateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package io.github.mszychiewicz.currencyexchange.domain.exception;
+
+public class ExchangeRateUnavailableException extends RuntimeException {
+    public ExchangeRateUnavailableException(String message) {
+        super(message);
+    }
+}
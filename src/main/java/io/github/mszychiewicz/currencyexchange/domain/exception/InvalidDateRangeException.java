@@ -0,0 +1,7 @@
+package io.github.mszychiewicz.currencyexchange.domain.exception;
+
+public class InvalidDateRangeException extends RuntimeException {
+    public InvalidDateRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package io.github.mszychiewicz.currencyexchange.domain.exception;
+
+public class InvalidQuoteException extends RuntimeException {
+    public InvalidQuoteException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.AccountEvent;
+import io.github.mszychiewicz.currencyexchange.domain.AccountOpenedEvent;
+import io.github.mszychiewicz.currencyexchange.domain.CurrencyBoughtEvent;
+import io.github.mszychiewicz.currencyexchange.domain.CurrencyExchangedEvent;
+import io.github.mszychiewicz.currencyexchange.domain.CurrencySoldEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+import java.util.UUID;
+
+/**
+ * Binary layout of journaled account events: a type byte, the account id as two longs, the account version,
+ * then the event's fields.
+ * Currencies are stored as their three letter ISO code so the layout does not depend on enum ordinals.
+ */
+final class AccountEventCodec {
+    static final byte ACCOUNT_OPENED = 1;
+    static final byte CURRENCY_BOUGHT = 2;
+    static final byte CURRENCY_SOLD = 3;
+    static final byte CURRENCY_EXCHANGED = 4;
+
+    private static final int HEADER_SIZE = Byte.BYTES + 3 * Long.BYTES;
+    private static final int CURRENCY_CODE_SIZE = 3;
+
+    private AccountEventCodec() {
+    }
+
+    static byte[] encode(AccountEvent event) {
+        if (event instanceof AccountOpenedEvent) {
+            AccountOpenedEvent opened = (AccountOpenedEvent) event;
+            byte[] firstName = opened.getFirstName().getBytes(StandardCharsets.UTF_8);
+            byte[] lastName = opened.getLastName().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = header(ACCOUNT_OPENED, event,
+                    2 * Integer.BYTES + firstName.length + lastName.length + Long.BYTES);
+            buffer.putInt(firstName.length).put(firstName);
+            buffer.putInt(lastName.length).put(lastName);
+            buffer.putLong(opened.getOpeningBalance());
+            return buffer.array();
+        }
+        if (event instanceof CurrencyBoughtEvent) {
+            CurrencyBoughtEvent bought = (CurrencyBoughtEvent) event;
+            return trade(CURRENCY_BOUGHT, event, bought.getCurrency(), bought.getAmount(), bought.getCostAmount());
+        }
+        if (event instanceof CurrencySoldEvent) {
+            CurrencySoldEvent sold = (CurrencySoldEvent) event;
+            return trade(CURRENCY_SOLD, event, sold.getCurrency(), sold.getAmount(), sold.getExchangedAmount());
+        }
+        if (event instanceof CurrencyExchangedEvent) {
+            CurrencyExchangedEvent exchanged = (CurrencyExchangedEvent) event;
+            ByteBuffer buffer = header(CURRENCY_EXCHANGED, event, 2 * (CURRENCY_CODE_SIZE + Long.BYTES));
+            buffer.put(exchanged.getFrom().getCurrencyCode().getBytes(StandardCharsets.US_ASCII)).putLong(exchanged.getAmount());
+            buffer.put(exchanged.getTo().getCurrencyCode().getBytes(StandardCharsets.US_ASCII)).putLong(exchanged.getExchangedAmount());
+            return buffer.array();
+        }
+        throw new IllegalArgumentException("Unsupported account event " + event.getClass().getName());
+    }
+
+    static AccountEvent decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        UUID accountId = new UUID(buffer.getLong(), buffer.getLong());
+        long version = buffer.getLong();
+        switch (type) {
+            case ACCOUNT_OPENED:
+                return new AccountOpenedEvent(accountId, version, string(buffer), string(buffer), buffer.getLong());
+            case CURRENCY_BOUGHT:
+                return new CurrencyBoughtEvent(accountId, version, currency(buffer), buffer.getLong(), buffer.getLong());
+            case CURRENCY_SOLD:
+                return new CurrencySoldEvent(accountId, version, currency(buffer), buffer.getLong(), buffer.getLong());
+            case CURRENCY_EXCHANGED:
+                return new CurrencyExchangedEvent(accountId, version, currency(buffer), buffer.getLong(), currency(buffer), buffer.getLong());
+            default:
+                throw new IllegalArgumentException("Unknown account event type " + type);
+        }
+    }
+
+    private static byte[] trade(byte type, AccountEvent event, Currency currency, long amount, long counterAmount) {
+        ByteBuffer buffer = header(type, event, CURRENCY_CODE_SIZE + 2 * Long.BYTES);
+        buffer.put(currency.getCurrencyCode().getBytes(StandardCharsets.US_ASCII));
+        buffer.putLong(amount).putLong(counterAmount);
+        return buffer.array();
+    }
+
+    private static ByteBuffer header(byte type, AccountEvent event, int bodySize) {
+        return ByteBuffer.allocate(HEADER_SIZE + bodySize)
+                .put(type)
+                .putLong(event.getAccountId().getMostSignificantBits())
+                .putLong(event.getAccountId().getLeastSignificantBits())
+                .putLong(event.getVersion());
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Currency currency(ByteBuffer buffer) {
+        byte[] code = new byte[CURRENCY_CODE_SIZE];
+        buffer.get(code);
+        return Currency.getInstance(new String(code, StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maps account ids to slots of a dense account table without boxing. Entries live in a single open-addressing
+ * table of longs, three per entry: the two halves of the id and the slot plus one, so zero marks a free entry.
+ * Collisions are resolved by linear probing and entries are never removed one by one.
+ * <p>
+ * Lookups never lock. Inserts are serialized and publish an entry by a release store of its slot after its id,
+ * a lookup that acquires a non-zero slot therefore sees the complete id. Growing the table builds a new one
+ * and publishes it as a whole before inserting into it, so a lookup that missed on a table replaced meanwhile
+ * probes the new one again.
+ */
+final class AccountIndex {
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int STRIDE = 3;
+    private static final int SLOT = 2;
+    private static final int INITIAL_CAPACITY = 1024;
+    // three longs per entry must still fit an array
+    private static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    // serializes inserts
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long[] entries = new long[INITIAL_CAPACITY * STRIDE];
+    private volatile int size;
+
+    /**
+     * Returns the slot of the id, or -1 if the id is not indexed.
+     */
+    int get(long mostSignificantBits, long leastSignificantBits) {
+        long[] entries = this.entries;
+        while (true) {
+            int slot = probe(entries, mostSignificantBits, leastSignificantBits);
+            long[] current = this.entries;
+            if (slot >= 0 || current == entries) {
+                return slot;
+            }
+            // grown while probing, the id may have been inserted into the new table only
+            entries = current;
+        }
+    }
+
+    private static int probe(long[] entries, long mostSignificantBits, long leastSignificantBits) {
+        int mask = entries.length / STRIDE - 1;
+        for (int i = hash(mostSignificantBits, leastSignificantBits) & mask; ; i = (i + 1) & mask) {
+            int entry = i * STRIDE;
+            long slot = (long) ENTRIES.getAcquire(entries, entry + SLOT);
+            if (slot == 0) {
+                return -1;
+            }
+            if (entries[entry] == mostSignificantBits && entries[entry + 1] == leastSignificantBits) {
+                return (int) (slot - 1);
+            }
+        }
+    }
+
+    /**
+     * Indexes the id at the slot unless the id is already indexed.
+     *
+     * @return false if the id was indexed before
+     */
+    boolean putIfAbsent(long mostSignificantBits, long leastSignificantBits, int slot) {
+        lock.lock();
+        try {
+            long[] entries = this.entries;
+            int capacity = entries.length / STRIDE;
+            if ((size + 1) * 4L > capacity * 3L) {
+                entries = grow(entries);
+                capacity = entries.length / STRIDE;
+            }
+            int mask = capacity - 1;
+            for (int i = hash(mostSignificantBits, leastSignificantBits) & mask; ; i = (i + 1) & mask) {
+                int entry = i * STRIDE;
+                if (entries[entry + SLOT] == 0) {
+                    entries[entry] = mostSignificantBits;
+                    entries[entry + 1] = leastSignificantBits;
+                    ENTRIES.setRelease(entries, entry + SLOT, slot + 1L);
+                    size++;
+                    return true;
+                }
+                if (entries[entry] == mostSignificantBits && entries[entry + 1] == leastSignificantBits) {
+                    return false;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            entries = new long[INITIAL_CAPACITY * STRIDE];
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Table memory per indexed id, which lies between one and two times the 24 bytes of an entry
+     * depending on how full the table is.
+     */
+    long allocatedBytes() {
+        return (long) entries.length * Long.BYTES;
+    }
+
+    /**
+     * Iterates the indexed slots, weakly consistent with concurrent inserts.
+     */
+    PrimitiveIterator.OfInt slots() {
+        long[] entries = this.entries;
+        return new PrimitiveIterator.OfInt() {
+            private int entry = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return entry < entries.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int slot = (int) ((long) ENTRIES.getAcquire(entries, entry + SLOT) - 1);
+                entry = advance(entry + STRIDE);
+                return slot;
+            }
+
+            private int advance(int entry) {
+                while (entry < entries.length && (long) ENTRIES.getAcquire(entries, entry + SLOT) == 0) {
+                    entry += STRIDE;
+                }
+                return entry;
+            }
+        };
+    }
+
+    private long[] grow(long[] entries) {
+        int capacity = entries.length / STRIDE;
+        if (capacity == MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Account index is full");
+        }
+        long[] grown = new long[capacity * 2 * STRIDE];
+        int mask = capacity * 2 - 1;
+        for (int entry = 0; entry < entries.length; entry += STRIDE) {
+            if (entries[entry + SLOT] == 0) {
+                continue;
+            }
+            int i = hash(entries[entry], entries[entry + 1]) & mask;
+            while (grown[i * STRIDE + SLOT] != 0) {
+                i = (i + 1) & mask;
+            }
+            System.arraycopy(entries, entry, grown, i * STRIDE, STRIDE);
+        }
+        // the volatile write publishes the copied entries with the table
+        this.entries = grown;
+        return grown;
+    }
+
+    private static int hash(long mostSignificantBits, long leastSignificantBits) {
+        // version and variant bits of random ids are constant, mix all bits before masking
+        long hash = mostSignificantBits * 0x9E3779B97F4A7C15L ^ leastSignificantBits;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (hash ^ (hash >>> 31));
+    }
+}
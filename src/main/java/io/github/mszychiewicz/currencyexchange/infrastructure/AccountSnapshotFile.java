@@ -0,0 +1,242 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of accounts. A header holds the journal checkpoint and the currencies balances are stored for,
+ * accounts follow in blocks of roughly {@link #BLOCK_SIZE} bytes framed as length, account count, payload and
+ * a CRC32 of the payload, and a trailer holds the total account count. Blocks are independent of each other,
+ * so they are verified and decoded in parallel.
+ */
+final class AccountSnapshotFile {
+    static final int MAGIC = 0x41434354;
+    static final int FORMAT_VERSION = 1;
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES + Short.BYTES;
+    private static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int END_OF_BLOCKS = -1;
+    private static final int CURRENCY_CODE_SIZE = 3;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private AccountSnapshotFile() {
+    }
+
+    /**
+     * Writes the accounts to a temporary file that is moved over the path once complete,
+     * so a crash never leaves a partially written snapshot behind. Balances are written for the currencies
+     * registered when the write starts, a currency registered before it completes may be held by accounts
+     * written after, so the accounts are then written again with it.
+     *
+     * @throws IOException also if currencies kept being registered during every attempt
+     */
+    static void write(Path path, long checkpoint, SupportedCurrencies supportedCurrencies, Iterable<Account> accounts)
+            throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            List<SupportedCurrency> currencies = supportedCurrencies.values();
+            Path temporary = writeTemporary(path, checkpoint, accounts, currencies);
+            if (supportedCurrencies.size() == currencies.size()) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            }
+            Files.delete(temporary);
+            if (attempt == MAX_WRITE_ATTEMPTS) {
+                throw new IOException("Currencies were registered during each of " + MAX_WRITE_ATTEMPTS
+                        + " attempts to write the account snapshot");
+            }
+        }
+    }
+
+    private static Path writeTemporary(Path path, long checkpoint, Iterable<Account> accounts,
+                                       List<SupportedCurrency> currencies) throws IOException {
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + currencies.size() * CURRENCY_CODE_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(checkpoint).putShort((short) currencies.size());
+            for (SupportedCurrency currency : currencies) {
+                header.put(currency.getCurrency().getCurrencyCode().getBytes(StandardCharsets.US_ASCII));
+            }
+            writeFully(channel, header.flip());
+
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            int blockAccounts = 0;
+            long total = 0;
+            for (Account account : accounts) {
+                byte[] firstName = account.getFirstName().getBytes(StandardCharsets.UTF_8);
+                byte[] lastName = account.getLastName().getBytes(StandardCharsets.UTF_8);
+                int size = 3 * Long.BYTES + 2 * Integer.BYTES + firstName.length + lastName.length
+                        + currencies.size() * Long.BYTES;
+                if (block.remaining() < size && blockAccounts > 0) {
+                    writeBlock(channel, block, blockAccounts);
+                    blockAccounts = 0;
+                }
+                if (block.remaining() < size) {
+                    block = ByteBuffer.allocate(size);
+                }
+                block.putLong(account.getId().getMostSignificantBits())
+                        .putLong(account.getId().getLeastSignificantBits())
+                        .putLong(account.getVersion());
+                block.putInt(firstName.length).put(firstName);
+                block.putInt(lastName.length).put(lastName);
+                for (SupportedCurrency currency : currencies) {
+                    block.putLong(account.getBalance(currency));
+                }
+                blockAccounts++;
+                total++;
+            }
+            if (blockAccounts > 0) {
+                writeBlock(channel, block, blockAccounts);
+            }
+            writeFully(channel, ByteBuffer.allocate(Integer.BYTES + Long.BYTES).putInt(END_OF_BLOCKS).putLong(total).flip());
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return temporary;
+    }
+
+    /**
+     * Verifies and decodes the snapshot, handing accounts to the consumer from several threads at once.
+     * Returns the journal checkpoint the snapshot was written at.
+     *
+     * @throws IOException if the snapshot is incomplete or a checksum does not match, the consumer may
+     *                     already have received some of the accounts
+     */
+    static long read(Path path, SupportedCurrencies supportedCurrencies, Consumer<Account> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not an account snapshot of format version " + FORMAT_VERSION);
+            }
+            long checkpoint = header.getLong();
+            int[] ordinals = readCurrencies(channel, header.getShort(), supportedCurrencies);
+            int size = supportedCurrencies.size();
+
+            List<Block> blocks = new ArrayList<>();
+            long position = HEADER_SIZE + (long) ordinals.length * CURRENCY_CODE_SIZE;
+            long expected = 0;
+            while (true) {
+                ByteBuffer blockHeader = readFully(channel, position, BLOCK_HEADER_SIZE);
+                int length = blockHeader.getInt();
+                if (length == END_OF_BLOCKS) {
+                    break;
+                }
+                Block block = new Block(position + BLOCK_HEADER_SIZE, length, blockHeader.getInt());
+                blocks.add(block);
+                expected += block.accounts;
+                position = block.offset + length + Integer.BYTES;
+            }
+            long total = readFully(channel, position + Integer.BYTES, Long.BYTES).getLong();
+            if (total != expected) {
+                throw new IOException("Account snapshot declares " + total + " accounts but holds " + expected);
+            }
+            try {
+                blocks.parallelStream().forEach(block -> decode(channel, block, ordinals, size, consumer));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return checkpoint;
+        }
+    }
+
+    private static int[] readCurrencies(FileChannel channel, int count, SupportedCurrencies supportedCurrencies)
+            throws IOException {
+        ByteBuffer codes = readFully(channel, HEADER_SIZE, count * CURRENCY_CODE_SIZE);
+        int[] ordinals = new int[count];
+        byte[] code = new byte[CURRENCY_CODE_SIZE];
+        for (int i = 0; i < count; i++) {
+            codes.get(code);
+            // the snapshot may be read before the first rate table registers the currencies it holds
+            ordinals[i] = supportedCurrencies.register(Currency.getInstance(new String(code, StandardCharsets.US_ASCII)))
+                    .ordinal();
+        }
+        return ordinals;
+    }
+
+    private static void decode(FileChannel channel, Block block, int[] ordinals, int size, Consumer<Account> consumer) {
+        try {
+            ByteBuffer payload = readFully(channel, block.offset, block.length + Integer.BYTES);
+            CRC32 checksum = new CRC32();
+            checksum.update(payload.duplicate().limit(block.length));
+            if ((int) checksum.getValue() != payload.getInt(block.length)) {
+                throw new IOException("Checksum mismatch in account snapshot block at offset " + block.offset);
+            }
+            for (int i = 0; i < block.accounts; i++) {
+                UUID id = new UUID(payload.getLong(), payload.getLong());
+                long version = payload.getLong();
+                String firstName = string(payload);
+                String lastName = string(payload);
+                long[] balances = new long[size];
+                for (int ordinal : ordinals) {
+                    balances[ordinal] = payload.getLong();
+                }
+                consumer.accept(new Account(id, firstName, lastName, balances, version));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBlock(FileChannel channel, ByteBuffer block, int accounts) throws IOException {
+        block.flip();
+        CRC32 checksum = new CRC32();
+        checksum.update(block.duplicate());
+        writeFully(channel, ByteBuffer.allocate(BLOCK_HEADER_SIZE).putInt(block.remaining()).putInt(accounts).flip());
+        writeFully(channel, block);
+        writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).flip());
+        block.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Account snapshot ends unexpectedly at offset " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Block {
+        final long offset;
+        final int length;
+        final int accounts;
+
+        Block(long offset, int length, int accounts) {
+            this.offset = offset;
+            this.length = length;
+            this.accounts = accounts;
+        }
+    }
+}
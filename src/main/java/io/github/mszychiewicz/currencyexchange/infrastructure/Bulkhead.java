@@ -0,0 +1,32 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+class Bulkhead {
+    private final Semaphore permits;
+
+    Bulkhead(int maxConcurrentCalls) {
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+        try {
+            return call.get().whenComplete((value, e) -> permits.release());
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import lombok.Value;
+
+@Value
+public class CacheStatistics {
+    long hits;
+    long misses;
+    long refreshes;
+}
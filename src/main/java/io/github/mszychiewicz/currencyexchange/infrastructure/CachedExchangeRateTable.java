@@ -0,0 +1,13 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+class CachedExchangeRateTable {
+    ExchangeRateTable table;
+    Instant dueAt;
+    Instant refreshAt;
+}
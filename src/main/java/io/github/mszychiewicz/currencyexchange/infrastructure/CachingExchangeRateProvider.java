@@ -0,0 +1,183 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateProvider;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.github.mszychiewicz.currencyexchange.infrastructure.NpbExchangeRateProvider.await;
+
+@Slf4j
+@Primary
+@Component
+public class CachingExchangeRateProvider implements ExchangeRateProvider {
+    private final NpbExchangeRateProvider delegate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final NbpPublicationSchedule publicationSchedule;
+    private final Duration retryInterval;
+    private final Duration maxStaleness;
+
+    private final AtomicReference<CompletableFuture<CachedExchangeRateTable>> inFlight = new AtomicReference<>();
+    private volatile CachedExchangeRateTable cached;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    @Autowired
+    public CachingExchangeRateProvider(NpbExchangeRateProvider delegate,
+                                       ApplicationEventPublisher eventPublisher,
+                                       Clock clock,
+                                       @Value("${clients.nbp.cache.publicationTime}") String publicationTime,
+                                       @Value("${clients.nbp.cache.retryInterval}") String retryInterval,
+                                       @Value("${clients.nbp.cache.maxStaleness}") String maxStaleness) {
+        this(
+                delegate,
+                eventPublisher,
+                clock,
+                new NbpPublicationSchedule(LocalTime.parse(publicationTime)),
+                Duration.parse(retryInterval),
+                Duration.parse(maxStaleness)
+        );
+    }
+
+    CachingExchangeRateProvider(NpbExchangeRateProvider delegate,
+                                ApplicationEventPublisher eventPublisher,
+                                Clock clock,
+                                NbpPublicationSchedule publicationSchedule,
+                                Duration retryInterval,
+                                Duration maxStaleness) {
+        this.delegate = delegate;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.publicationSchedule = publicationSchedule;
+        this.retryInterval = retryInterval;
+        this.maxStaleness = maxStaleness;
+    }
+
+    @Override
+    public BigDecimal getAskExchangeRate(Currency currency) {
+        return await(getAskExchangeRateAsync(currency));
+    }
+
+    @Override
+    public BigDecimal getBidExchangeRate(Currency currency) {
+        return await(getBidExchangeRateAsync(currency));
+    }
+
+    @Override
+    public CompletableFuture<BigDecimal> getAskExchangeRateAsync(Currency currency) {
+        return currentTable().thenApply(table -> lookup(table, currency).getAsk());
+    }
+
+    @Override
+    public CompletableFuture<BigDecimal> getBidExchangeRateAsync(Currency currency) {
+        return currentTable().thenApply(table -> lookup(table, currency).getBid());
+    }
+
+    @Override
+    public CompletableFuture<Map<Currency, ExchangeRate>> getExchangeRatesAsync(Collection<Currency> currencies) {
+        return currentTable().thenApply(ExchangeRateTable::getRates);
+    }
+
+    public void warmUp(ExchangeRateTable table, Instant fetchedAt) {
+        if (cached == null) {
+            cached = new CachedExchangeRateTable(table, dueAt(table, fetchedAt), clock.instant());
+            load();
+        }
+    }
+
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), refreshes.sum());
+    }
+
+    private ExchangeRate lookup(ExchangeRateTable table, Currency currency) {
+        return table.getRate(currency)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    private CompletableFuture<ExchangeRateTable> currentTable() {
+        CachedExchangeRateTable cached = this.cached;
+        if (cached == null) {
+            misses.increment();
+            return load().thenApply(CachedExchangeRateTable::getTable);
+        }
+        Instant now = clock.instant();
+        if (now.isAfter(cached.getDueAt().plus(maxStaleness))) {
+            misses.increment();
+            return load().thenApply(CachedExchangeRateTable::getTable);
+        }
+        if (!now.isBefore(cached.getRefreshAt())) {
+            load();
+        }
+        hits.increment();
+        return CompletableFuture.completedFuture(cached.getTable());
+    }
+
+    private CompletableFuture<CachedExchangeRateTable> load() {
+        CompletableFuture<CachedExchangeRateTable> future = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, future)) {
+            CompletableFuture<CachedExchangeRateTable> existing = inFlight.get();
+            return existing != null ? existing : load();
+        }
+        delegate.fetchExchangeRateTableAsync().whenComplete((table, e) -> {
+            if (e == null) {
+                Instant fetchedAt = clock.instant();
+                Instant dueAt = dueAt(table, fetchedAt);
+                CachedExchangeRateTable refreshed = new CachedExchangeRateTable(table, dueAt, dueAt);
+                cached = refreshed;
+                refreshes.increment();
+                inFlight.set(null);
+                // callers waiting on the table are released before listeners run, so none of them can hold it up
+                future.complete(refreshed);
+                publish(new ExchangeRateTableRefreshedEvent(table, fetchedAt, dueAt));
+            } else {
+                CachedExchangeRateTable stale = cached;
+                if (stale != null) {
+                    cached = new CachedExchangeRateTable(
+                            stale.getTable(),
+                            stale.getDueAt(),
+                            clock.instant().plus(retryInterval)
+                    );
+                }
+                inFlight.set(null);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void publish(ExchangeRateTableRefreshedEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            log.warn("A listener failed on the rate table of {}", event.getTable().getEffectiveDate(), e);
+        }
+    }
+
+    private Instant dueAt(ExchangeRateTable table, Instant fetchedAt) {
+        return table.getEffectiveDate().isBefore(publicationSchedule.latestPublicationDate(fetchedAt))
+                ? fetchedAt.plus(retryInterval)
+                : publicationSchedule.nextPublication(fetchedAt);
+    }
+}
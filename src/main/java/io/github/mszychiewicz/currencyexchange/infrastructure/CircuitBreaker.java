@@ -0,0 +1,106 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+class CircuitBreaker {
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Clock clock;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+
+    CircuitBreaker(Clock clock, int failureThreshold, Duration openDuration) {
+        this.clock = clock;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call, Predicate<T> isFailure) {
+        if (!tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            onFailure();
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, e) -> {
+            if (e != null || isFailure.test(value)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+        });
+    }
+
+    State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    return true;
+                default:
+                    return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = clock.instant();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
+import io.github.mszychiewicz.currencyexchange.infrastructure.snapshot.ExchangeRateSnapshot;
+import io.github.mszychiewicz.currencyexchange.infrastructure.snapshot.ExchangeRateSnapshotEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Slf4j
+@Component
+public class ExchangeRateSnapshotStore {
+    private final ObjectMapper objectMapper;
+    private final CachingExchangeRateProvider exchangeRateProvider;
+    private final Path path;
+
+    public ExchangeRateSnapshotStore(ObjectMapper objectMapper,
+                                     CachingExchangeRateProvider exchangeRateProvider,
+                                     @Value("${clients.nbp.snapshot.path}") String path) {
+        this.objectMapper = objectMapper;
+        this.exchangeRateProvider = exchangeRateProvider;
+        this.path = path.isBlank() ? null : Paths.get(path);
+    }
+
+    @PostConstruct
+    void warmUp() {
+        read().ifPresent(snapshot -> exchangeRateProvider.warmUp(toTable(snapshot), snapshot.getFetchedAt()));
+    }
+
+    @EventListener
+    public void onExchangeRateTableRefreshed(ExchangeRateTableRefreshedEvent event) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temporary.toFile(), toSnapshot(event));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write exchange rate snapshot to {}", path, e);
+        }
+    }
+
+    Optional<ExchangeRateSnapshot> read() {
+        if (path == null || !Files.isReadable(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(path.toFile(), ExchangeRateSnapshot.class));
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable exchange rate snapshot {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    private static ExchangeRateSnapshot toSnapshot(ExchangeRateTableRefreshedEvent event) {
+        List<ExchangeRateSnapshotEntry> rates = new ArrayList<>();
+        event.getTable().getRates().forEach((currency, rate) ->
+                rates.add(new ExchangeRateSnapshotEntry(currency.getCurrencyCode(), rate.getAsk(), rate.getBid())));
+        return new ExchangeRateSnapshot(event.getTable().getEffectiveDate(), event.getFetchedAt(), rates);
+    }
+
+    private static ExchangeRateTable toTable(ExchangeRateSnapshot snapshot) {
+        Map<Currency, ExchangeRate> rates = new HashMap<>();
+        for (ExchangeRateSnapshotEntry rate : snapshot.getRates()) {
+            rates.put(Currency.getInstance(rate.getCode()), new ExchangeRate(rate.getAsk(), rate.getBid()));
+        }
+        return new ExchangeRateTable(snapshot.getEffectiveDate(), rates);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
+import io.github.mszychiewicz.currencyexchange.domain.HistoricalExchangeRateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backfills the rate history from NBP on startup and appends every refreshed table afterwards.
+ */
+@Slf4j
+@Component
+public class HistoricalExchangeRateLoader {
+    // NBP rejects table queries spanning more than 93 days
+    static final int MAX_DAYS_PER_REQUEST = 93;
+
+    private final NpbExchangeRateProvider exchangeRateProvider;
+    private final HistoricalExchangeRateRepository historicalExchangeRateRepository;
+    private final Clock clock;
+    private final int backfillDays;
+
+    public HistoricalExchangeRateLoader(NpbExchangeRateProvider exchangeRateProvider,
+                                        HistoricalExchangeRateRepository historicalExchangeRateRepository,
+                                        Clock clock,
+                                        @Value("${clients.nbp.history.backfillDays}") int backfillDays) {
+        this.exchangeRateProvider = exchangeRateProvider;
+        this.historicalExchangeRateRepository = historicalExchangeRateRepository;
+        this.clock = clock;
+        this.backfillDays = backfillDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (backfillDays > 0) {
+            LocalDate today = LocalDate.now(clock.withZone(NbpPublicationSchedule.WARSAW));
+            backfill(today.minusDays(backfillDays - 1), today);
+        }
+    }
+
+    @EventListener
+    public void onExchangeRateTableRefreshed(ExchangeRateTableRefreshedEvent event) {
+        historicalExchangeRateRepository.save(event.getTable());
+    }
+
+    /**
+     * Loads the range one request at a time so a backfill never competes with live traffic for more than one
+     * bulkhead permit. A failed chunk is logged and skipped, the rest of the range is still loaded.
+     */
+    public CompletableFuture<Void> backfill(LocalDate from, LocalDate to) {
+        CompletableFuture<Void> backfill = CompletableFuture.completedFuture(null);
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(MAX_DAYS_PER_REQUEST)) {
+            LocalDate chunkStart = start;
+            LocalDate chunkEnd = min(start.plusDays(MAX_DAYS_PER_REQUEST - 1), to);
+            backfill = backfill.thenCompose(ignored -> exchangeRateProvider
+                    .fetchExchangeRateTablesAsync(chunkStart, chunkEnd)
+                    .thenAccept(historicalExchangeRateRepository::saveAll)
+                    .exceptionally(e -> {
+                        log.warn("Could not backfill exchange rates from {} to {}", chunkStart, chunkEnd, e);
+                        return null;
+                    }));
+        }
+        return backfill;
+    }
+
+    private static LocalDate min(LocalDate first, LocalDate second) {
+        return first.isBefore(second) ? first : second;
+    }
+}
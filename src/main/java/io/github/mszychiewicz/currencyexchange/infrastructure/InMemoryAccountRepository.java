@@ -2,30 +2,159 @@ package io.github.mszychiewicz.currencyexchange.infrastructure;
 
 import io.github.mszychiewicz.currencyexchange.domain.Account;
 import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Keeps account snapshots in a dense table of slots, grown in segments, and finds them through an
+ * {@link AccountIndex} from id to slot, so an account costs a table reference and an index entry besides
+ * its snapshot.
+ */
+@Profile("!jdbc & !offheap")
 @Component
-public class InMemoryAccountRepository implements AccountRepository {
-    private final Map<UUID, Account> accounts;
+public class InMemoryAccountRepository implements SnapshottableAccountRepository {
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
 
-    public InMemoryAccountRepository() {
-        this.accounts = new ConcurrentHashMap<>();
+    // stored snapshots are never mutated, readers get copies
+    private final AtomicReferenceArray<AtomicReferenceArray<Account>> segments =
+            new AtomicReferenceArray<>((Integer.MAX_VALUE >>> SEGMENT_SHIFT) + 1);
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AccountIndex index = new AccountIndex();
+    private final SupportedCurrencies supportedCurrencies;
+
+    public InMemoryAccountRepository(SupportedCurrencies supportedCurrencies) {
+        this.supportedCurrencies = supportedCurrencies;
     }
 
     @Override
     public UUID save(Account account) {
         UUID id = account.getId();
-        accounts.put(id, account);
+        Account snapshot = account.nextVersion();
+        boolean saved;
+        if (account.getVersion() == 0) {
+            saved = insert(snapshot);
+        } else {
+            int slot = index.get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (slot < 0) {
+                saved = false;
+            } else {
+                AtomicReferenceArray<Account> segment = segment(slot);
+                Account current = segment.get(slot & SEGMENT_MASK);
+                saved = current.getVersion() == account.getVersion()
+                        && segment.compareAndSet(slot & SEGMENT_MASK, current, snapshot);
+            }
+        }
+        if (!saved) {
+            throw new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE);
+        }
         return id;
     }
 
     @Override
     public Optional<Account> findById(UUID id) {
-        return Optional.ofNullable(accounts.get(id));
+        return findById(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    @Override
+    public Optional<Account> findById(long mostSignificantBits, long leastSignificantBits) {
+        int slot = index.get(mostSignificantBits, leastSignificantBits);
+        return slot < 0 ? Optional.empty() : Optional.of(segment(slot).get(slot & SEGMENT_MASK).copy());
+    }
+
+    /**
+     * Stored snapshots are immutable, so they are written as they are without copying.
+     */
+    @Override
+    public void writeSnapshot(Path path, long checkpoint) throws IOException {
+        AccountSnapshotFile.write(path, checkpoint, supportedCurrencies, () -> {
+            PrimitiveIterator.OfInt slots = index.slots();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return slots.hasNext();
+                }
+
+                @Override
+                public Account next() {
+                    int slot = slots.nextInt();
+                    return segment(slot).get(slot & SEGMENT_MASK);
+                }
+            };
+        });
+    }
+
+    /**
+     * Restoring replaces the index and starts filling the table from its first slot again, it is meant to
+     * happen once on startup before the repository is used.
+     */
+    @Override
+    public long restoreSnapshot(Path path) throws IOException {
+        clear();
+        try {
+            // decoded accounts are not shared with anyone else, they can be stored as they are
+            return AccountSnapshotFile.read(path, supportedCurrencies, this::insert);
+        } catch (IOException | RuntimeException e) {
+            clear();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    int claimedSlots() {
+        return nextSlot.get();
+    }
+
+    private boolean insert(Account snapshot) {
+        long mostSignificantBits = snapshot.getId().getMostSignificantBits();
+        long leastSignificantBits = snapshot.getId().getLeastSignificantBits();
+        if (index.get(mostSignificantBits, leastSignificantBits) >= 0) {
+            return false;
+        }
+        int slot = nextSlot.getAndIncrement();
+        AtomicReferenceArray<Account> segment = segment(slot);
+        segment.set(slot & SEGMENT_MASK, snapshot);
+        // the index publishes the stored snapshot
+        if (!index.putIfAbsent(mostSignificantBits, leastSignificantBits, slot)) {
+            segment.set(slot & SEGMENT_MASK, null);
+            // given back unless a later insert claimed past it, a slot lost to a racing insert of the same id then
+            // stays empty
+            nextSlot.compareAndSet(slot + 1, slot);
+            return false;
+        }
+        return true;
+    }
+
+    private void clear() {
+        index.clear();
+        nextSlot.set(0);
+        for (int i = 0; i < segments.length(); i++) {
+            segments.set(i, null);
+        }
+    }
+
+    private AtomicReferenceArray<Account> segment(int slot) {
+        int segment = slot >>> SEGMENT_SHIFT;
+        AtomicReferenceArray<Account> accounts = segments.get(segment);
+        if (accounts == null) {
+            segments.compareAndSet(segment, null, new AtomicReferenceArray<>(SEGMENT_MASK + 1));
+            accounts = segments.get(segment);
+        }
+        return accounts;
     }
 }
@@ -0,0 +1,83 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.HistoricalExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.HistoricalExchangeRateRepository;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class InMemoryHistoricalExchangeRateRepository implements HistoricalExchangeRateRepository {
+    // NBP publishes table C rates with four decimal places
+    static final int RATE_SCALE = 4;
+
+    private final Map<Currency, RateSeries> series = new ConcurrentHashMap<>();
+
+    @Override
+    public void saveAll(Collection<ExchangeRateTable> tables) {
+        Map<Currency, TreeMap<Integer, ExchangeRate>> ratesByCurrency = new HashMap<>();
+        for (ExchangeRateTable table : tables) {
+            int day = (int) table.getEffectiveDate().toEpochDay();
+            table.getRates().forEach((currency, rate) ->
+                    ratesByCurrency.computeIfAbsent(currency, c -> new TreeMap<>()).put(day, rate));
+        }
+        ratesByCurrency.forEach((currency, rates) -> {
+            int[] days = new int[rates.size()];
+            long[] asks = new long[rates.size()];
+            long[] bids = new long[rates.size()];
+            int i = 0;
+            for (Map.Entry<Integer, ExchangeRate> entry : rates.entrySet()) {
+                days[i] = entry.getKey();
+                asks[i] = toFixedPoint(entry.getValue().getAsk());
+                bids[i] = toFixedPoint(entry.getValue().getBid());
+                i++;
+            }
+            series.merge(currency, RateSeries.EMPTY.merge(days, asks, bids),
+                    (existing, added) -> existing.merge(days, asks, bids));
+        });
+    }
+
+    @Override
+    public Optional<HistoricalExchangeRate> findOn(Currency currency, LocalDate date) {
+        RateSeries rates = series.getOrDefault(currency, RateSeries.EMPTY);
+        int index = rates.floorIndex((int) date.toEpochDay());
+        return index < 0 ? Optional.empty() : Optional.of(toHistoricalExchangeRate(rates, index));
+    }
+
+    @Override
+    public List<HistoricalExchangeRate> findBetween(Currency currency, LocalDate from, LocalDate to) {
+        RateSeries rates = series.getOrDefault(currency, RateSeries.EMPTY);
+        int start = rates.ceilingIndex((int) from.toEpochDay());
+        int end = rates.floorIndex((int) to.toEpochDay());
+        List<HistoricalExchangeRate> result = new ArrayList<>(Math.max(end - start + 1, 0));
+        for (int i = start; i <= end; i++) {
+            result.add(toHistoricalExchangeRate(rates, i));
+        }
+        return result;
+    }
+
+    private static HistoricalExchangeRate toHistoricalExchangeRate(RateSeries rates, int index) {
+        return new HistoricalExchangeRate(
+                LocalDate.ofEpochDay(rates.day(index)),
+                BigDecimal.valueOf(rates.ask(index), RATE_SCALE),
+                BigDecimal.valueOf(rates.bid(index), RATE_SCALE)
+        );
+    }
+
+    private static long toFixedPoint(BigDecimal rate) {
+        return rate.setScale(RATE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+}
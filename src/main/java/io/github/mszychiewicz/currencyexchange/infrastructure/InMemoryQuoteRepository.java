@@ -0,0 +1,163 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Quote;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Comparator.comparing;
+
+@Component
+public class InMemoryQuoteRepository implements QuoteRepository {
+    private final Clock clock;
+    private final int maxSize;
+    private final Map<UUID, Quote> quotes;
+    // quotes share one ttl, so insertion order is also expiry order
+    private final Queue<Quote> expiryQueue = new ConcurrentLinkedQueue<>();
+    // taken quotes stay queued until they expire or the queue is compacted, the size of a ConcurrentLinkedQueue
+    // is not constant time so it is counted here
+    private final AtomicInteger queued = new AtomicInteger();
+    // quotes given back after being taken expire before newer saves, appending them would break the order above
+    private final Queue<Quote> restoredQueue = new PriorityBlockingQueue<>(16, comparing(Quote::getExpiresAt));
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @Autowired
+    public InMemoryQuoteRepository(Clock clock, @Value("${quotes.maxSize}") int maxSize) {
+        this.clock = clock;
+        this.maxSize = maxSize;
+        this.quotes = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+    }
+
+    @Override
+    public UUID save(Quote quote) {
+        removeExpired();
+        quotes.put(quote.getId(), quote);
+        expiryQueue.add(quote);
+        created.increment();
+        if (queued.incrementAndGet() > 2 * maxSize) {
+            compactExpiryQueue();
+        }
+        while (quotes.size() > maxSize) {
+            Quote oldest = pollOldest();
+            if (oldest == null) {
+                break;
+            }
+            if (quotes.remove(oldest.getId(), oldest)) {
+                evicted.increment();
+            }
+        }
+        return quote.getId();
+    }
+
+    @Override
+    public Optional<Quote> find(UUID id) {
+        Quote quote = quotes.get(id);
+        return quote == null || isExpired(quote, clock.instant()) ? Optional.empty() : Optional.of(quote);
+    }
+
+    @Override
+    public Optional<Quote> take(UUID id) {
+        Quote quote = quotes.remove(id);
+        if (quote == null) {
+            return Optional.empty();
+        }
+        if (isExpired(quote, clock.instant())) {
+            expired.increment();
+            return Optional.empty();
+        }
+        consumed.increment();
+        return Optional.of(quote);
+    }
+
+    @Override
+    public void restore(Quote quote) {
+        if (isExpired(quote, clock.instant()) || quotes.putIfAbsent(quote.getId(), quote) != null) {
+            return;
+        }
+        consumed.decrement();
+        restoredQueue.add(quote);
+    }
+
+    int queuedQuotes() {
+        return queued.get();
+    }
+
+    public QuoteStoreStatistics getStatistics() {
+        return new QuoteStoreStatistics(created.sum(), consumed.sum(), expired.sum(), evicted.sum(), quotes.size());
+    }
+
+    private void removeExpired() {
+        Instant now = clock.instant();
+        Quote head;
+        while ((head = expiryQueue.peek()) != null && isExpired(head, now)) {
+            if (expiryQueue.remove(head)) {
+                queued.decrementAndGet();
+                removeExpired(head);
+            }
+        }
+        while ((head = restoredQueue.peek()) != null && isExpired(head, now)) {
+            if (restoredQueue.remove(head)) {
+                removeExpired(head);
+            }
+        }
+    }
+
+    private void removeExpired(Quote quote) {
+        if (quotes.remove(quote.getId(), quote)) {
+            expired.increment();
+        }
+    }
+
+    private Quote pollOldest() {
+        Quote restored = restoredQueue.peek();
+        Quote saved = expiryQueue.peek();
+        if (restored != null && (saved == null || restored.getExpiresAt().isBefore(saved.getExpiresAt()))) {
+            return restoredQueue.poll();
+        }
+        Quote oldest = expiryQueue.poll();
+        if (oldest != null) {
+            queued.decrementAndGet();
+        }
+        return oldest;
+    }
+
+    /**
+     * Drops taken quotes from the expiry queue once they outnumber the stored ones, so the queue stays within
+     * twice the store size and every compaction is paid for by at least maxSize saves.
+     */
+    private void compactExpiryQueue() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            expiryQueue.removeIf(quote -> quotes.get(quote.getId()) != quote);
+            queued.set(expiryQueue.size());
+            restoredQueue.removeIf(quote -> quotes.get(quote.getId()) != quote);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private static boolean isExpired(Quote quote, Instant now) {
+        return !now.isBefore(quote.getExpiresAt());
+    }
+}
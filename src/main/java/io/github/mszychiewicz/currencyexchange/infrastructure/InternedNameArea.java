@@ -0,0 +1,149 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only off-heap storage of names, each stored once as its UTF-8 length and bytes and referenced
+ * by its offset. Names are never removed.
+ * <p>
+ * The intern table is off-heap as well: an open-addressing table in direct memory of two ints per entry, the
+ * hash of the name's bytes and its reference plus one, so zero marks a free entry. Collisions are resolved by
+ * linear probing and compare the stored bytes, the heap holds no name.
+ */
+final class InternedNameArea {
+    private static final int ENTRY_SIZE = 2 * Integer.BYTES;
+    private static final int INITIAL_CAPACITY = 1024;
+    // the table must still fit a direct buffer
+    private static final int MAXIMUM_CAPACITY = 1 << 27;
+
+    private final int slabSize;
+    // references are int offsets, so the area is capped at 2 GiB of distinct names
+    private final ByteBuffer[] slabs;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private ByteBuffer table = ByteBuffer.allocateDirect(INITIAL_CAPACITY * ENTRY_SIZE);
+    private int size;
+    private int slab = -1;
+    private int position;
+
+    InternedNameArea(int slabSize) {
+        this.slabSize = slabSize;
+        this.slabs = new ByteBuffer[Integer.MAX_VALUE / slabSize];
+    }
+
+    /**
+     * Returns the reference of the stored name, storing it first if it was never seen. A reference is safe to
+     * read by any thread that obtained it through a happens-before edge from the interning thread.
+     */
+    int intern(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        lock.lock();
+        try {
+            int mask = table.capacity() / ENTRY_SIZE - 1;
+            int i = hash & mask;
+            for (; ; i = (i + 1) & mask) {
+                int reference = table.getInt(i * ENTRY_SIZE + Integer.BYTES) - 1;
+                if (reference < 0) {
+                    break;
+                }
+                if (table.getInt(i * ENTRY_SIZE) == hash && storedEquals(reference, bytes)) {
+                    return reference;
+                }
+            }
+            int reference = store(bytes);
+            table.putInt(i * ENTRY_SIZE, hash);
+            table.putInt(i * ENTRY_SIZE + Integer.BYTES, reference + 1);
+            if (++size * 4L > (mask + 1) * 3L) {
+                grow();
+            }
+            return reference;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String get(int reference) {
+        ByteBuffer buffer = slabs[reference / slabSize].duplicate().position(reference % slabSize);
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Direct memory taken by name slabs and the intern table.
+     */
+    long allocatedBytes() {
+        lock.lock();
+        try {
+            return (long) (slab + 1) * slabSize + table.capacity();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int store(byte[] bytes) {
+        int size = Integer.BYTES + bytes.length;
+        if (size > slabSize) {
+            throw new IllegalArgumentException("Name of " + bytes.length + " bytes does not fit a name slab");
+        }
+        if (slab < 0 || position + size > slabSize) {
+            if (slab + 1 == slabs.length) {
+                throw new IllegalStateException("Name area is full");
+            }
+            slabs[++slab] = ByteBuffer.allocateDirect(slabSize);
+            position = 0;
+        }
+        slabs[slab].duplicate().position(position).putInt(bytes.length).put(bytes);
+        int reference = slab * slabSize + position;
+        position += size;
+        return reference;
+    }
+
+    private boolean storedEquals(int reference, byte[] bytes) {
+        ByteBuffer stored = slabs[reference / slabSize];
+        int offset = reference % slabSize;
+        if (stored.getInt(offset) != bytes.length) {
+            return false;
+        }
+        offset += Integer.BYTES;
+        for (int i = 0; i < bytes.length; i++) {
+            if (stored.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        int capacity = table.capacity() / ENTRY_SIZE;
+        if (capacity == MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Name table is full");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity * 2 * ENTRY_SIZE);
+        int mask = capacity * 2 - 1;
+        for (int entry = 0; entry < table.capacity(); entry += ENTRY_SIZE) {
+            int reference = table.getInt(entry + Integer.BYTES);
+            if (reference == 0) {
+                continue;
+            }
+            int hash = table.getInt(entry);
+            int i = hash & mask;
+            while (grown.getInt(i * ENTRY_SIZE + Integer.BYTES) != 0) {
+                i = (i + 1) & mask;
+            }
+            grown.putInt(i * ENTRY_SIZE, hash);
+            grown.putInt(i * ENTRY_SIZE + Integer.BYTES, reference);
+        }
+        table = grown;
+    }
+
+    private static int hash(byte[] bytes) {
+        // spread the bits of similar names before masking
+        int hash = Arrays.hashCode(bytes) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
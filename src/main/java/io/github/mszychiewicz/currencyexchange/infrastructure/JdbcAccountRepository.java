@@ -0,0 +1,284 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stores accounts in an {@code account} table holding the version and an {@code account_balance} table with
+ * one row per held currency. Saves are handed to a single writer thread which waits for the batch window, then
+ * writes everything queued in one transaction: new accounts as a batched insert, compare-and-set version
+ * updates as a batched update whose update counts tell which saves won, and the balances the winners changed
+ * as a batched merge of one row each. {@link #saveAsync(Account)} completes once the transaction has committed,
+ * so callers are not held for the batch window. {@link #findByIdAsync(long, long)} queries on a small reader pool,
+ * so callers that must not block never wait for the database.
+ * <p>
+ * A batch whose transaction fails, such as on a duplicate id, is written again one save per transaction, so only
+ * the saves that fail on their own are failed. The account count is read once on start and kept up by the
+ * inserts this instance commits, accounts another instance sharing the database opens are counted after a restart.
+ */
+@Profile("jdbc")
+@Component
+public class JdbcAccountRepository implements AccountRepository {
+    static final String FIND_BY_ID = "SELECT a.first_name, a.last_name, a.version, b.currency, b.amount "
+            + "FROM account a LEFT JOIN account_balance b ON b.account_id = a.id WHERE a.id = ?";
+    static final String INSERT_ACCOUNT = "INSERT INTO account (id, first_name, last_name, version) VALUES (?, ?, ?, ?)";
+    static final String UPDATE_VERSION = "UPDATE account SET version = ? WHERE id = ? AND version = ?";
+    static final String COUNT = "SELECT COUNT(*) FROM account";
+    // source columns are typed so both H2 and PostgreSQL infer them, the statement is the same for every batch
+    static final String MERGE_BALANCE = "MERGE INTO account_balance b "
+            + "USING (SELECT CAST(? AS UUID) AS account_id, CAST(? AS CHAR(3)) AS currency, CAST(? AS BIGINT) AS amount) s "
+            + "ON b.account_id = s.account_id AND b.currency = s.currency "
+            + "WHEN MATCHED THEN UPDATE SET amount = s.amount "
+            + "WHEN NOT MATCHED THEN INSERT (account_id, currency, amount) VALUES (s.account_id, s.currency, s.amount)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SupportedCurrencies supportedCurrencies;
+    private final TransactionTemplate transactionTemplate;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final Queue<PendingSave> pending = new ConcurrentLinkedQueue<>();
+    private final Thread writer;
+    private final ExecutorService readers;
+    private final AtomicInteger size;
+    private volatile boolean running = true;
+
+    public JdbcAccountRepository(JdbcTemplate jdbcTemplate,
+                                 SupportedCurrencies supportedCurrencies,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${accounts.jdbc.batchWindow}") Duration batchWindow,
+                                 @Value("${accounts.jdbc.maxBatchSize}") int maxBatchSize,
+                                 @Value("${accounts.jdbc.readThreads}") int readThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.supportedCurrencies = supportedCurrencies;
+        this.transactionTemplate = transactionTemplate;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.size = new AtomicInteger(jdbcTemplate.queryForObject(COUNT, Integer.class));
+        this.writer = new Thread(this::writeContinuously, "account-jdbc-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.readers = Executors.newFixedThreadPool(readThreads, runnable -> {
+            Thread thread = new Thread(runnable, "account-jdbc-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public UUID save(Account account) {
+        try {
+            return saveAsync(account).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<UUID> saveAsync(Account account) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Account repository is closed"));
+        }
+        PendingSave save = new PendingSave(account.nextVersion(), account.getVersion(), changedBalances(account));
+        pending.offer(save);
+        LockSupport.unpark(writer);
+        return save.saved.thenApply(saved -> {
+            if (!saved) {
+                throw new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE);
+            }
+            return account.getId();
+        });
+    }
+
+    @Override
+    public Optional<Account> findById(UUID id) {
+        return jdbcTemplate.query(FIND_BY_ID, resultSet -> {
+            if (!resultSet.next()) {
+                return Optional.empty();
+            }
+            String firstName = resultSet.getString("first_name");
+            String lastName = resultSet.getString("last_name");
+            long version = resultSet.getLong("version");
+            long[] balances = new long[supportedCurrencies.size()];
+            do {
+                String code = resultSet.getString("currency");
+                if (code != null) {
+                    // balances may be read before the first rate table registers the currencies they are in
+                    SupportedCurrency currency = supportedCurrencies.register(Currency.getInstance(code));
+                    if (currency.ordinal() >= balances.length) {
+                        balances = Arrays.copyOf(balances, supportedCurrencies.size());
+                    }
+                    balances[currency.ordinal()] = resultSet.getLong("amount");
+                }
+            } while (resultSet.next());
+            // a copy remembers the balances it was read with, saving it writes only the ones that changed
+            return Optional.of(new Account(id, firstName, lastName, balances, version).copy());
+        }, id);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Account>> findByIdAsync(long mostSignificantBits, long leastSignificantBits) {
+        return CompletableFuture.supplyAsync(() -> findById(mostSignificantBits, leastSignificantBits), readers);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        readers.shutdown();
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    private void writeContinuously() {
+        while (running || !pending.isEmpty()) {
+            if (pending.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            long deadline = System.nanoTime() + batchWindowNanos;
+            for (long remaining = batchWindowNanos; remaining > 0 && running; remaining = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            List<PendingSave> batch = new ArrayList<>();
+            PendingSave save;
+            while (batch.size() < maxBatchSize && (save = pending.poll()) != null) {
+                batch.add(save);
+            }
+            write(batch);
+        }
+    }
+
+    private void write(List<PendingSave> batch) {
+        boolean[] saved;
+        try {
+            saved = transactionTemplate.execute(status -> writeInTransaction(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                // the failed row rolled the others back with it, on their own they fail only if they fail again
+                batch.forEach(save -> write(List.of(save)));
+            } else if (e instanceof DuplicateKeyException) {
+                // an account with this id is stored already, its new account lost as if to a concurrent save
+                batch.get(0).saved.complete(false);
+            } else {
+                batch.get(0).saved.completeExceptionally(e);
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (saved[i] && batch.get(i).expectedVersion == 0) {
+                size.incrementAndGet();
+            }
+            batch.get(i).saved.complete(saved[i]);
+        }
+    }
+
+    private boolean[] writeInTransaction(List<PendingSave> batch) {
+        boolean[] saved = new boolean[batch.size()];
+        List<Object[]> inserts = new ArrayList<>();
+        List<Integer> updateIndexes = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingSave save = batch.get(i);
+            Account account = save.snapshot;
+            if (save.expectedVersion == 0) {
+                inserts.add(new Object[]{account.getId(), account.getFirstName(), account.getLastName(), account.getVersion()});
+                // a duplicate id fails the whole transaction, which is then retried save by save
+                saved[i] = true;
+            } else {
+                updateIndexes.add(i);
+                updates.add(new Object[]{account.getVersion(), account.getId(), save.expectedVersion});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ACCOUNT, inserts);
+        }
+        if (!updates.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_VERSION, updates);
+            for (int i = 0; i < updated.length; i++) {
+                saved[updateIndexes.get(i)] = updated[i] == 1;
+            }
+        }
+
+        // an account saved several times in the batch writes every balance any of them changed, at its latest amount
+        Map<UUID, Account> latest = new LinkedHashMap<>();
+        Map<UUID, Set<SupportedCurrency>> changed = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (saved[i]) {
+                PendingSave save = batch.get(i);
+                latest.put(save.snapshot.getId(), save.snapshot);
+                changed.computeIfAbsent(save.snapshot.getId(), id -> new HashSet<>()).addAll(save.changedBalances);
+            }
+        }
+        List<Object[]> merges = new ArrayList<>();
+        latest.forEach((id, account) -> {
+            for (SupportedCurrency currency : changed.get(id)) {
+                merges.add(new Object[]{id, currency.getCurrency().getCurrencyCode(), account.getBalance(currency)});
+            }
+        });
+        if (!merges.isEmpty()) {
+            jdbcTemplate.batchUpdate(MERGE_BALANCE, merges);
+        }
+        return saved;
+    }
+
+    private List<SupportedCurrency> changedBalances(Account account) {
+        List<SupportedCurrency> changed = new ArrayList<>(2);
+        for (SupportedCurrency currency : supportedCurrencies.values()) {
+            if (account.isBalanceChanged(currency)) {
+                changed.add(currency);
+            }
+        }
+        return changed;
+    }
+
+    private static final class PendingSave {
+        final Account snapshot;
+        final long expectedVersion;
+        final List<SupportedCurrency> changedBalances;
+        final CompletableFuture<Boolean> saved = new CompletableFuture<>();
+
+        PendingSave(Account snapshot, long expectedVersion, List<SupportedCurrency> changedBalances) {
+            this.snapshot = snapshot;
+            this.expectedVersion = expectedVersion;
+            this.changedBalances = changedBalances;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountEvent;
+import io.github.mszychiewicz.currencyexchange.domain.AccountJournal;
+import io.github.mszychiewicz.currencyexchange.domain.AccountOpenedEvent;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of account events in memory-mapped segment files. Each record is framed as its length,
+ * the {@link AccountEventCodec} payload and a CRC32 of the payload; a zero length marks the end of a segment.
+ * <p>
+ * Appends only copy the record into the mapped segment. A single flusher thread forces the segment to disk at
+ * most once per group commit window and completes every append it covered, so concurrent trades share one fsync.
+ * Once forcing a segment failed, whether the records it covered reached the disk is unknown, so every later
+ * append is refused and the journal is left to the replay of the next start.
+ * <p>
+ * Every snapshot interval the journal rolls to a new segment and the repository writes a binary snapshot next to
+ * it, checkpointed at that segment. The snapshot waits until the events in earlier segments are durable and saved, so
+ * only the two newest snapshots and the segments they need are kept. On startup the newest valid snapshot is
+ * restored and the segments from its checkpoint are replayed, skipping events whose version the snapshot
+ * already holds. A torn record at the tail of the last segment is discarded.
+ */
+@Slf4j
+@Profile("!jdbc")
+@Component
+// replay registers the currencies accounts hold, the configured rounding modes have to be registered before
+@DependsOn("supportedCurrencyService")
+public class MappedAccountJournal implements AccountJournal {
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+    static final int SNAPSHOTS_RETAINED = 2;
+    // length prefix and CRC32 suffix
+    private static final int FRAME_OVERHEAD = 2 * Integer.BYTES;
+
+    private final SnapshottableAccountRepository accountRepository;
+    private final SupportedCurrencies supportedCurrencies;
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitWindowNanos;
+    private final Duration snapshotInterval;
+    private final ScheduledExecutorService snapshotScheduler;
+    private final Queue<PendingCommit> pending = new ConcurrentLinkedQueue<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+    private volatile RuntimeException failure;
+    // appends whose durable future the flusher has completed, their states are saved by then
+    private volatile long completedEvents;
+
+    // rolling a segment maps and forces files while holding it
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private long appendedEvents;
+
+    public MappedAccountJournal(SnapshottableAccountRepository accountRepository,
+                                SupportedCurrencies supportedCurrencies,
+                                @Value("${accounts.journal.path}") String path,
+                                @Value("${accounts.journal.segmentSize}") DataSize segmentSize,
+                                @Value("${accounts.journal.groupCommitWindow}") Duration groupCommitWindow,
+                                @Value("${accounts.journal.snapshotInterval}") Duration snapshotInterval) {
+        this.accountRepository = accountRepository;
+        this.supportedCurrencies = supportedCurrencies;
+        this.directory = path.isBlank() ? null : Paths.get(path);
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.groupCommitWindowNanos = groupCommitWindow.toNanos();
+        this.snapshotInterval = snapshotInterval;
+        this.flusher = new Thread(this::flushContinuously, "account-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        long checkpoint = restoreSnapshot();
+        List<Path> segments = files(SEGMENT_SUFFIX).stream()
+                .filter(path -> index(path, SEGMENT_SUFFIX) >= checkpoint)
+                .collect(Collectors.toList());
+        long started = System.nanoTime();
+        long events = 0;
+        segmentIndex = checkpoint;
+        for (Path path : segments) {
+            MappedByteBuffer buffer = map(path);
+            events += replay(buffer, path);
+            segment = buffer;
+            segmentIndex = index(path, SEGMENT_SUFFIX);
+        }
+        long elapsedNanos = Math.max(System.nanoTime() - started, 1);
+        if (events > 0) {
+            log.info("Replayed {} account events from {} segments in {} ms ({} events/s)", events, segments.size(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), events * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        }
+        if (segment == null) {
+            segment = map(segmentPath(segmentIndex));
+        }
+        flusher.start();
+        if (!snapshotInterval.isZero()) {
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                    snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a repository snapshot checkpointed at a freshly rolled segment, then deletes the snapshots and
+     * segments no retained snapshot needs anymore.
+     */
+    void snapshot() throws IOException {
+        long checkpoint;
+        long appended;
+        lock.lock();
+        try {
+            roll();
+            checkpoint = segmentIndex;
+            appended = appendedEvents;
+        } finally {
+            lock.unlock();
+        }
+        while (completedEvents < appended) {
+            if (failure != null) {
+                throw new IllegalStateException("Account journal could not be forced to disk", failure);
+            }
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(Math.max(groupCommitWindowNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        long started = System.nanoTime();
+        accountRepository.writeSnapshot(directory.resolve(String.format("%016d%s", checkpoint, SNAPSHOT_SUFFIX)), checkpoint);
+        log.info("Wrote snapshot of {} accounts at checkpoint {} in {} ms", accountRepository.size(), checkpoint,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        List<Path> snapshots = files(SNAPSHOT_SUFFIX);
+        if (snapshots.size() < SNAPSHOTS_RETAINED) {
+            return;
+        }
+        long oldestRetained = index(snapshots.get(snapshots.size() - SNAPSHOTS_RETAINED), SNAPSHOT_SUFFIX);
+        for (Path path : snapshots.subList(0, snapshots.size() - SNAPSHOTS_RETAINED)) {
+            Files.deleteIfExists(path);
+        }
+        for (Path path : files(SEGMENT_SUFFIX)) {
+            if (index(path, SEGMENT_SUFFIX) < oldestRetained) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> append(AccountEvent event) {
+        if (directory == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Account journal could not be forced to disk, restart to replay it", failure);
+        }
+        byte[] payload = AccountEventCodec.encode(event);
+        if (payload.length + FRAME_OVERHEAD > segmentSize) {
+            throw new IllegalArgumentException("Account event of " + payload.length + " bytes does not fit a journal segment");
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (segment.remaining() < payload.length + FRAME_OVERHEAD) {
+                roll();
+            }
+            segment.putInt(payload.length).put(payload).putInt((int) checksum.getValue());
+            pending.add(new PendingCommit(++appendedEvents, durable));
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(flusher);
+        return durable;
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        snapshotScheduler.shutdownNow();
+        if (directory == null || !flusher.isAlive()) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join();
+        flush();
+    }
+
+    private void flushContinuously() {
+        while (running) {
+            if (pending.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            // appends arriving during the window unpark the flusher, keep waiting until it has passed
+            long deadline = System.nanoTime() + groupCommitWindowNanos;
+            for (long remaining = groupCommitWindowNanos; remaining > 0 && running; remaining = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            flush();
+        }
+    }
+
+    private void flush() {
+        MappedByteBuffer current;
+        long appended;
+        lock.lock();
+        try {
+            current = segment;
+            appended = appendedEvents;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            // earlier segments were forced when they were rolled
+            current.force();
+        } catch (RuntimeException e) {
+            log.error("Could not force account journal segment to disk, refusing further appends", e);
+            failure = e;
+        }
+        PendingCommit commit;
+        while ((commit = pending.peek()) != null && commit.sequence <= appended) {
+            pending.poll();
+            if (failure == null) {
+                commit.durable.complete(null);
+            } else {
+                commit.durable.completeExceptionally(failure);
+            }
+        }
+        completedEvents = appended;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write account snapshot to {}", directory, e);
+        }
+    }
+
+    private long restoreSnapshot() throws IOException {
+        List<Path> snapshots = files(SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            long started = System.nanoTime();
+            try {
+                long checkpoint = accountRepository.restoreSnapshot(path);
+                log.info("Restored {} accounts from snapshot {} in {} ms", accountRepository.size(), path,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                return checkpoint;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Ignoring invalid account snapshot {}", path, e);
+            }
+        }
+        return 0;
+    }
+
+    private void roll() {
+        segment.force();
+        try {
+            segment = map(segmentPath(++segmentIndex));
+        } catch (IOException e) {
+            segmentIndex--;
+            throw new UncheckedIOException("Could not create account journal segment", e);
+        }
+    }
+
+    private long replay(ByteBuffer buffer, Path path) {
+        long events = 0;
+        AccountEvent event;
+        while ((event = readRecord(buffer)) != null) {
+            Account account = accountRepository.findById(event.getAccountId()).orElse(null);
+            long version = account == null ? 0 : account.getVersion();
+            if (event.getVersion() <= version) {
+                // already contained in the restored snapshot
+                continue;
+            }
+            if (event.getVersion() != version + 1 || (account == null) != (event instanceof AccountOpenedEvent)) {
+                throw new IllegalStateException("Account journal " + path + " is missing events of account "
+                        + event.getAccountId() + " before version " + event.getVersion());
+            }
+            accountRepository.save(event.replay(account, supportedCurrencies));
+            events++;
+        }
+        if (buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) != 0) {
+            log.warn("Discarding torn record at offset {} of account journal segment {}", buffer.position(), path);
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Reads the record at the buffer's position and moves past it, returns null without moving
+     * at the end of the segment or at a record that was not completely written.
+     */
+    private static AccountEvent readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < FRAME_OVERHEAD) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > buffer.remaining() - FRAME_OVERHEAD) {
+            return null;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + Integer.BYTES).limit(start + Integer.BYTES + length);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.duplicate());
+        if ((int) checksum.getValue() != buffer.getInt(start + Integer.BYTES + length)) {
+            return null;
+        }
+        buffer.position(start + FRAME_OVERHEAD + length);
+        return AccountEventCodec.decode(payload);
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed, new segments are zero filled
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSize));
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%016d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static long index(Path path, String suffix) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - suffix.length()));
+    }
+
+    private static final class PendingCommit {
+        final long sequence;
+        final CompletableFuture<Void> durable;
+
+        PendingCommit(long sequence, CompletableFuture<Void> durable) {
+            this.sequence = sequence;
+            this.durable = durable;
+        }
+    }
+}
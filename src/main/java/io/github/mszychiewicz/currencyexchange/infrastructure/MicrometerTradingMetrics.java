@@ -0,0 +1,138 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import io.github.mszychiewicz.currencyexchange.domain.TradingMetrics;
+import io.github.mszychiewicz.currencyexchange.domain.TradingOperation;
+import io.github.mszychiewicz.currencyexchange.domain.exception.CurrencyNotSupportedException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records trading and NBP metrics in Micrometer meters, the Prometheus registry serves them at
+ * {@code /actuator/prometheus}. Meters of every operation, failure reason and NBP endpoint are registered up front,
+ * so recording on the trade path is an array read and a lock-free update. Traded volume is kept in striped
+ * counters per currency, which are registered once, the first time the currency changes hands. Ordinals belong to
+ * the registry of one context, so the counters are keyed by currency.
+ */
+@Component
+public class MicrometerTradingMetrics implements TradingMetrics, NbpClientMetrics {
+    // fixed latency buckets from 100 microseconds to 10 seconds
+    private static final Duration[] LATENCY_BUCKETS = Arrays.stream(new double[]{
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000
+    }).mapToObj(millis -> Duration.ofNanos((long) (millis * TimeUnit.MILLISECONDS.toNanos(1)))).toArray(Duration[]::new);
+    private static final TradingOperation[] OPERATIONS = TradingOperation.values();
+    private static final RateFetch[] RATE_FETCHES = RateFetch.values();
+    private static final String[] FAILURE_REASONS = {"insufficient_funds", "currency_not_supported", "other"};
+    private static final int INSUFFICIENT_FUNDS = 0;
+    private static final int CURRENCY_NOT_SUPPORTED = 1;
+    private static final int OTHER = 2;
+
+    private final MeterRegistry registry;
+    private final Timer[] operationTimers = new Timer[OPERATIONS.length];
+    private final Counter[][] operationFailures = new Counter[OPERATIONS.length][FAILURE_REASONS.length];
+    private final Timer[] rateFetchTimers = new Timer[RATE_FETCHES.length];
+    private final Counter[] rateFetchFailures = new Counter[RATE_FETCHES.length];
+    private final ConcurrentMap<Currency, TradedVolume> tradedVolumes = new ConcurrentHashMap<>();
+
+    public MicrometerTradingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (TradingOperation operation : OPERATIONS) {
+            String label = label(operation);
+            operationTimers[operation.ordinal()] = Timer.builder("currency_exchange.operation")
+                    .description("Time account operations took.")
+                    .tag("operation", label)
+                    .serviceLevelObjectives(LATENCY_BUCKETS)
+                    .register(registry);
+            for (int i = 0; i < FAILURE_REASONS.length; i++) {
+                operationFailures[operation.ordinal()][i] = Counter.builder("currency_exchange.operation.failures")
+                        .description("Account operations that failed, by reason.")
+                        .tag("operation", label)
+                        .tag("reason", FAILURE_REASONS[i])
+                        .register(registry);
+            }
+        }
+        for (RateFetch rateFetch : RATE_FETCHES) {
+            String label = label(rateFetch);
+            rateFetchTimers[rateFetch.ordinal()] = Timer.builder("currency_exchange.nbp.request")
+                    .description("Time requests to NBP took.")
+                    .tag("endpoint", label)
+                    .serviceLevelObjectives(LATENCY_BUCKETS)
+                    .register(registry);
+            rateFetchFailures[rateFetch.ordinal()] = Counter.builder("currency_exchange.nbp.request.failures")
+                    .description("Requests to NBP that failed or were refused by the circuit breaker or bulkhead.")
+                    .tag("endpoint", label)
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void recordOperation(TradingOperation operation, long elapsedNanos, Throwable failure) {
+        operationTimers[operation.ordinal()].record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (failure != null) {
+            operationFailures[operation.ordinal()][reason(failure)].increment();
+        }
+    }
+
+    @Override
+    public void recordTraded(SupportedCurrency currency, long amount) {
+        TradedVolume tradedVolume = tradedVolumes.get(currency.getCurrency());
+        if (tradedVolume == null) {
+            tradedVolume = tradedVolumes.computeIfAbsent(currency.getCurrency(), ignored -> register(currency));
+        }
+        tradedVolume.amount.add(amount);
+        tradedVolume.trades.increment();
+    }
+
+    @Override
+    public void recordRateFetch(RateFetch rateFetch, long elapsedNanos, Throwable failure) {
+        rateFetchTimers[rateFetch.ordinal()].record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (failure != null) {
+            rateFetchFailures[rateFetch.ordinal()].increment();
+        }
+    }
+
+    private TradedVolume register(SupportedCurrency currency) {
+        TradedVolume tradedVolume = new TradedVolume();
+        double minorUnits = Math.pow(10, currency.getFractionDigits());
+        FunctionCounter.builder("currency_exchange.traded.amount", tradedVolume.amount,
+                        amount -> amount.sum() / minorUnits)
+                .description("Amounts that changed hands in major units, every leg of a trade in its own currency.")
+                .tag("currency", currency.toString())
+                .register(registry);
+        FunctionCounter.builder("currency_exchange.traded", tradedVolume.trades, LongAdder::sum)
+                .description("Trade legs per currency.")
+                .tag("currency", currency.toString())
+                .register(registry);
+        return tradedVolume;
+    }
+
+    private static int reason(Throwable failure) {
+        if (failure instanceof InsufficientFundsException) {
+            return INSUFFICIENT_FUNDS;
+        }
+        return failure instanceof CurrencyNotSupportedException ? CURRENCY_NOT_SUPPORTED : OTHER;
+    }
+
+    private static String label(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class TradedVolume {
+        // in minor units, scaled when scraped
+        final LongAdder amount = new LongAdder();
+        final LongAdder trades = new LongAdder();
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+/**
+ * Records how requests to NBP went. Implementations are called on every rate fetch, recording must neither lock
+ * nor block.
+ */
+public interface NbpClientMetrics {
+    /**
+     * @param failure what the request failed with, {@code null} if it succeeded, requests the circuit breaker or
+     *                bulkhead refused count as failed ones
+     */
+    void recordRateFetch(RateFetch rateFetch, long elapsedNanos, Throwable failure);
+
+    enum RateFetch {
+        TABLE, TABLE_RANGE, RATE
+    }
+}
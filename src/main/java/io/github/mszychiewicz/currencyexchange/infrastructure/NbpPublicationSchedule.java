@@ -0,0 +1,46 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * NBP publishes table C once per business day, in the morning Warsaw time.
+ * Polish public holidays are not modelled, on those days the cache simply keeps retrying.
+ */
+class NbpPublicationSchedule {
+    static final ZoneId WARSAW = ZoneId.of("Europe/Warsaw");
+
+    private final LocalTime publicationTime;
+
+    NbpPublicationSchedule(LocalTime publicationTime) {
+        this.publicationTime = publicationTime;
+    }
+
+    LocalDate latestPublicationDate(Instant now) {
+        ZonedDateTime warsawNow = now.atZone(WARSAW);
+        LocalDate date = warsawNow.toLocalDate();
+        if (warsawNow.toLocalTime().isBefore(publicationTime)) {
+            date = date.minusDays(1);
+        }
+        while (isWeekend(date)) {
+            date = date.minusDays(1);
+        }
+        return date;
+    }
+
+    Instant nextPublication(Instant now) {
+        LocalDate date = latestPublicationDate(now).plusDays(1);
+        while (isWeekend(date)) {
+            date = date.plusDays(1);
+        }
+        return date.atTime(publicationTime).atZone(WARSAW).toInstant();
+    }
+
+    private boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+}
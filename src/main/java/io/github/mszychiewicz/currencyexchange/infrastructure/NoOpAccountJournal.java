@@ -0,0 +1,20 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.AccountEvent;
+import io.github.mszychiewicz.currencyexchange.domain.AccountJournal;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A save to {@link JdbcAccountRepository} completes once its transaction has committed, there is nothing left to journal.
+ */
+@Profile("jdbc")
+@Component
+public class NoOpAccountJournal implements AccountJournal {
+    @Override
+    public CompletableFuture<Void> append(AccountEvent event) {
+        return CompletableFuture.completedFuture(null);
+    }
+}
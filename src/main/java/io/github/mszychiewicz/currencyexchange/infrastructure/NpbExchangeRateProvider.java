@@ -1,22 +1,48 @@
 package io.github.mszychiewicz.currencyexchange.infrastructure;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
 import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateProvider;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.infrastructure.NbpClientMetrics.RateFetch;
 import io.github.mszychiewicz.currencyexchange.infrastructure.response.CurrencyExchangeRateResponse;
-import lombok.RequiredArgsConstructor;
+import io.github.mszychiewicz.currencyexchange.infrastructure.response.ExchangeRateResponse;
+import io.github.mszychiewicz.currencyexchange.infrastructure.response.ExchangeRateTableResponse;
+import io.github.mszychiewicz.currencyexchange.infrastructure.response.TableExchangeRateResponse;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 @Component
-@RequiredArgsConstructor
 public class NpbExchangeRateProvider implements ExchangeRateProvider {
-    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final NbpClientMetrics clientMetrics;
 
     @Value("${clients.nbp.baseUrl}")
     private String baseUrl;
@@ -24,28 +50,120 @@ public class NpbExchangeRateProvider implements ExchangeRateProvider {
     @Value("${clients.nbp.exchangeRatesPath}")
     private String exchangeRatesUrl;
 
+    @Value("${clients.nbp.exchangeRateTablesPath}")
+    private String exchangeRateTablesUrl;
+
+    @Value("${clients.nbp.readTimeout}")
+    private Duration readTimeout;
+
+    public NpbExchangeRateProvider(HttpClient httpClient,
+                                   ObjectMapper objectMapper,
+                                   Clock clock,
+                                   @Value("${clients.nbp.circuitBreaker.failureThreshold}") int failureThreshold,
+                                   @Value("${clients.nbp.circuitBreaker.openDuration}") Duration openDuration,
+                                   @Value("${clients.nbp.bulkhead.maxConcurrentCalls}") int maxConcurrentCalls,
+                                   NbpClientMetrics clientMetrics) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.circuitBreaker = new CircuitBreaker(clock, failureThreshold, openDuration);
+        this.bulkhead = new Bulkhead(maxConcurrentCalls);
+        this.clientMetrics = clientMetrics;
+    }
+
     public BigDecimal getAskExchangeRate(Currency currency) {
-        try {
-            return fetchExchangeRates(currency).getRates().get(0).getAsk();
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
-        }
+        return await(getAskExchangeRateAsync(currency));
     }
 
     public BigDecimal getBidExchangeRate(Currency currency) {
-        try {
-            return fetchExchangeRates(currency).getRates().get(0).getBid();
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+        return await(getBidExchangeRateAsync(currency));
+    }
+
+    @Override
+    public CompletableFuture<BigDecimal> getAskExchangeRateAsync(Currency currency) {
+        return fetchExchangeRateAsync(currency).thenApply(ExchangeRate::getAsk);
+    }
+
+    @Override
+    public CompletableFuture<BigDecimal> getBidExchangeRateAsync(Currency currency) {
+        return fetchExchangeRateAsync(currency).thenApply(ExchangeRate::getBid);
+    }
+
+    @Override
+    public CompletableFuture<Map<Currency, ExchangeRate>> getExchangeRatesAsync(Collection<Currency> currencies) {
+        return fetchExchangeRateTableAsync().thenApply(ExchangeRateTable::getRates);
+    }
+
+    public ExchangeRateTable fetchExchangeRateTable() {
+        return await(fetchExchangeRateTableAsync());
+    }
+
+    public CompletableFuture<ExchangeRateTable> fetchExchangeRateTableAsync() {
+        return fetch(RateFetch.TABLE, baseUrl + exchangeRateTablesUrl, ExchangeRateTableResponse[].class)
+                .thenApply(tables -> toExchangeRateTable(tables[0]))
+                .exceptionally(NpbExchangeRateProvider::serviceUnavailable);
+    }
+
+    public CompletableFuture<List<ExchangeRateTable>> fetchExchangeRateTablesAsync(LocalDate from, LocalDate to) {
+        return fetch(RateFetch.TABLE_RANGE, baseUrl + exchangeRateTablesUrl + from + "/" + to + "/",
+                ExchangeRateTableResponse[].class)
+                .thenApply(tables -> Arrays.stream(tables)
+                        .map(NpbExchangeRateProvider::toExchangeRateTable)
+                        .collect(Collectors.toList()))
+                .exceptionally(NpbExchangeRateProvider::serviceUnavailable);
+    }
+
+    private CompletableFuture<ExchangeRate> fetchExchangeRateAsync(Currency currency) {
+        return fetch(RateFetch.RATE, baseUrl + exchangeRatesUrl + currency.getCurrencyCode(),
+                CurrencyExchangeRateResponse.class)
+                .thenApply(response -> {
+                    ExchangeRateResponse rate = response.getRates().get(0);
+                    return new ExchangeRate(rate.getAsk(), rate.getBid());
+                })
+                .exceptionally(NpbExchangeRateProvider::serviceUnavailable);
+    }
+
+    private <T> CompletableFuture<T> fetch(RateFetch rateFetch, String url, Class<T> responseType) {
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .timeout(readTimeout)
+                .GET()
+                .build();
+        return bulkhead.execute(() -> circuitBreaker.execute(
+                () -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()),
+                response -> HttpStatus.Series.resolve(response.statusCode()) == HttpStatus.Series.SERVER_ERROR
+        )).thenApply(response -> {
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            try {
+                return objectMapper.readValue(response.body(), responseType);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((response, failure) -> clientMetrics.recordRateFetch(rateFetch, System.nanoTime() - start, failure));
+    }
+
+    private static ExchangeRateTable toExchangeRateTable(ExchangeRateTableResponse response) {
+        Map<Currency, ExchangeRate> rates = new HashMap<>();
+        for (TableExchangeRateResponse rate : response.getRates()) {
+            rates.put(Currency.getInstance(rate.getCode()), new ExchangeRate(rate.getAsk(), rate.getBid()));
         }
+        return new ExchangeRateTable(LocalDate.parse(response.getEffectiveDate()), rates);
     }
 
-    private CurrencyExchangeRateResponse fetchExchangeRates(Currency currency) {
-        ResponseEntity<CurrencyExchangeRateResponse> response =
-                restTemplate.getForEntity(
-                        baseUrl + exchangeRatesUrl + currency.getCurrencyCode(),
-                        CurrencyExchangeRateResponse.class
-                );
-        return response.getBody();
+    private static <T> T serviceUnavailable(Throwable e) {
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
-}
\ No newline at end of file
+}
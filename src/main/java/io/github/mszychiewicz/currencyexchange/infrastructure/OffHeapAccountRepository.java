@@ -0,0 +1,249 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PrimitiveIterator;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps accounts in fixed-width records in direct memory slabs, so the heap only holds the {@link AccountIndex}
+ * from id to record slot. A record is stamp, id, version, first and last name references into an
+ * {@link InternedNameArea}, and a configured number of balance slots indexed by {@link SupportedCurrency} ordinal.
+ * The repository limits {@link SupportedCurrencies} to that number, so a currency without a slot is refused when it
+ * is registered, on startup or as a rate table lists it, and never reaches a record.
+ * <p>
+ * Writers of a record are serialized by a lock striped over record slots and guard their changes with the
+ * record's stamp, which is odd while a write is in progress. Readers never lock: they copy the record and retry
+ * if the stamp was odd or changed meanwhile, then build a fresh {@link Account} from the copy.
+ */
+@Profile("offheap")
+@Component
+public class OffHeapAccountRepository implements SnapshottableAccountRepository {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int STAMP = 0;
+    private static final int MOST_SIGNIFICANT_BITS = 8;
+    private static final int LEAST_SIGNIFICANT_BITS = 16;
+    private static final int VERSION = 24;
+    private static final int FIRST_NAME = 32;
+    private static final int LAST_NAME = 36;
+    private static final int BALANCES = 40;
+    private static final int LOCK_STRIPES = 1024;
+
+    private final SupportedCurrencies supportedCurrencies;
+    private final int recordSize;
+    private final int recordsPerSlab;
+    // grown on demand, a slot handed out through the index is always covered by the published directory
+    private volatile ByteBuffer[] slabs = new ByteBuffer[16];
+    private final InternedNameArea names;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock slabLock = new ReentrantLock();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AccountIndex index = new AccountIndex();
+
+    public OffHeapAccountRepository(SupportedCurrencies supportedCurrencies,
+                                    @Value("${accounts.offheap.slabSize}") DataSize slabSize,
+                                    @Value("${accounts.offheap.currencySlots}") int currencySlots) {
+        supportedCurrencies.limitTo(currencySlots);
+        this.supportedCurrencies = supportedCurrencies;
+        this.recordSize = BALANCES + currencySlots * Long.BYTES;
+        this.recordsPerSlab = Math.toIntExact(slabSize.toBytes() / recordSize);
+        this.names = new InternedNameArea(Math.toIntExact(slabSize.toBytes()));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public UUID save(Account account) {
+        if (account.getVersion() == 0) {
+            insert(account, 1);
+            return account.getId();
+        }
+        int slot = index.get(account.getId().getMostSignificantBits(), account.getId().getLeastSignificantBits());
+        if (slot < 0) {
+            throw new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE);
+        }
+        ByteBuffer slab = slab(slot);
+        int offset = offset(slot);
+        ReentrantLock lock = locks[slot % LOCK_STRIPES];
+        lock.lock();
+        try {
+            if (slab.getLong(offset + VERSION) != account.getVersion()) {
+                throw new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE);
+            }
+            long stamp = (long) LONGS.getOpaque(slab, offset + STAMP);
+            LONGS.setOpaque(slab, offset + STAMP, stamp + 1);
+            VarHandle.storeStoreFence();
+            slab.putLong(offset + VERSION, account.getVersion() + 1);
+            writeBalances(slab, offset, account);
+            LONGS.setRelease(slab, offset + STAMP, stamp + 2);
+        } finally {
+            lock.unlock();
+        }
+        return account.getId();
+    }
+
+    @Override
+    public Optional<Account> findById(UUID id) {
+        return findById(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    @Override
+    public Optional<Account> findById(long mostSignificantBits, long leastSignificantBits) {
+        int slot = index.get(mostSignificantBits, leastSignificantBits);
+        return slot < 0 ? Optional.empty() : Optional.of(read(slot));
+    }
+
+    @Override
+    public void writeSnapshot(Path path, long checkpoint) throws IOException {
+        AccountSnapshotFile.write(path, checkpoint, supportedCurrencies, () -> {
+            PrimitiveIterator.OfInt slots = index.slots();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return slots.hasNext();
+                }
+
+                @Override
+                public Account next() {
+                    return read(slots.nextInt());
+                }
+            };
+        });
+    }
+
+    /**
+     * Restored accounts are appended to the slabs, replacing the index. Records of accounts stored before are
+     * not reused, restoring is meant to happen once on startup.
+     */
+    @Override
+    public long restoreSnapshot(Path path) throws IOException {
+        index.clear();
+        try {
+            return AccountSnapshotFile.read(path, supportedCurrencies, account -> insert(account, account.getVersion()));
+        } catch (IOException | RuntimeException e) {
+            index.clear();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Direct memory taken by record and name slabs and the name table, the index is on the heap.
+     */
+    long allocatedBytes() {
+        long slabCount = (nextSlot.get() + recordsPerSlab - 1) / recordsPerSlab;
+        return slabCount * recordsPerSlab * recordSize + names.allocatedBytes();
+    }
+
+    private void insert(Account account, long version) {
+        if (index.get(account.getId().getMostSignificantBits(), account.getId().getLeastSignificantBits()) >= 0) {
+            throw new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE);
+        }
+        int slot = nextSlot.getAndIncrement();
+        ByteBuffer slab = slab(slot);
+        int offset = offset(slot);
+        slab.putLong(offset + MOST_SIGNIFICANT_BITS, account.getId().getMostSignificantBits());
+        slab.putLong(offset + LEAST_SIGNIFICANT_BITS, account.getId().getLeastSignificantBits());
+        slab.putLong(offset + VERSION, version);
+        slab.putInt(offset + FIRST_NAME, names.intern(account.getFirstName()));
+        slab.putInt(offset + LAST_NAME, names.intern(account.getLastName()));
+        writeBalances(slab, offset, account);
+        // the index publishes the complete record
+        if (!index.putIfAbsent(account.getId().getMostSignificantBits(), account.getId().getLeastSignificantBits(), slot)) {
+            // given back unless a later insert claimed past it, a slot lost to a racing insert of the same id then
+            // stays unused
+            nextSlot.compareAndSet(slot + 1, slot);
+            throw new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE);
+        }
+    }
+
+    private Account read(int slot) {
+        ByteBuffer slab = slab(slot);
+        int offset = offset(slot);
+        long[] balances = new long[supportedCurrencies.size()];
+        long version;
+        while (true) {
+            long stamp = (long) LONGS.getAcquire(slab, offset + STAMP);
+            if ((stamp & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            version = slab.getLong(offset + VERSION);
+            for (int i = 0; i < balances.length; i++) {
+                balances[i] = slab.getLong(offset + BALANCES + i * Long.BYTES);
+            }
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(slab, offset + STAMP) == stamp) {
+                break;
+            }
+        }
+        // ids are never rewritten, they need no stamp check
+        UUID id = new UUID(slab.getLong(offset + MOST_SIGNIFICANT_BITS), slab.getLong(offset + LEAST_SIGNIFICANT_BITS));
+        return new Account(id, names.get(slab.getInt(offset + FIRST_NAME)), names.get(slab.getInt(offset + LAST_NAME)),
+                balances, version);
+    }
+
+    private void writeBalances(ByteBuffer slab, int offset, Account account) {
+        List<SupportedCurrency> currencies = supportedCurrencies.values();
+        for (int i = 0; i < currencies.size(); i++) {
+            slab.putLong(offset + BALANCES + i * Long.BYTES, account.getBalance(currencies.get(i)));
+        }
+    }
+
+    private ByteBuffer slab(int slot) {
+        int index = slot / recordsPerSlab;
+        ByteBuffer[] slabs = this.slabs;
+        ByteBuffer slab = index < slabs.length ? slabs[index] : null;
+        return slab != null ? slab : allocateSlab(index);
+    }
+
+    private ByteBuffer allocateSlab(int index) {
+        slabLock.lock();
+        try {
+            ByteBuffer[] slabs = this.slabs;
+            if (index >= slabs.length) {
+                slabs = Arrays.copyOf(slabs, Math.max(index + 1, slabs.length * 2));
+            }
+            if (slabs[index] == null) {
+                // VarHandle views require 8-byte aligned longs
+                slabs[index] = ByteBuffer.allocateDirect(recordsPerSlab * recordSize + Long.BYTES - 1)
+                        .alignedSlice(Long.BYTES)
+                        .order(ByteOrder.nativeOrder());
+            }
+            // the volatile write publishes the new slab with the directory
+            this.slabs = slabs;
+            return slabs[index];
+        } finally {
+            slabLock.unlock();
+        }
+    }
+
+    private int offset(int slot) {
+        return (slot % recordsPerSlab) * recordSize;
+    }
+}
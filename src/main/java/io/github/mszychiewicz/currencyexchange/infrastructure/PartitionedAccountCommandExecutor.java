@@ -0,0 +1,94 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.AccountCommandExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Hashes accounts onto a fixed set of partitions, each drained by its own thread from a lock-free queue.
+ * Commands of one account are applied in submission order by a single writer, while different accounts
+ * proceed in parallel on different partitions.
+ */
+@Component
+public class PartitionedAccountCommandExecutor implements AccountCommandExecutor {
+    private final Partition[] partitions;
+
+    public PartitionedAccountCommandExecutor(@Value("${accounts.engine.partitions}") int partitions) {
+        int count = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        this.partitions = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            this.partitions[i] = new Partition("account-partition-" + i);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> execute(UUID accountId, Supplier<T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        partitions[partitionOf(accountId)].submit(() -> {
+            try {
+                result.complete(command.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    int partitionOf(UUID accountId) {
+        int hash = accountId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.stop();
+        }
+    }
+
+    private static final class Partition implements Runnable {
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        Partition(String name) {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void submit(Runnable task) {
+            if (!running) {
+                throw new RejectedExecutionException("Account command executor is closed");
+            }
+            queue.offer(task);
+            LockSupport.unpark(thread);
+        }
+
+        void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    LockSupport.park(this);
+                } else {
+                    task.run();
+                }
+            }
+        }
+    }
+}
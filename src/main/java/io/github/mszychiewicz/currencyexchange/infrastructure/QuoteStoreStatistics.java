@@ -0,0 +1,12 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import lombok.Value;
+
+@Value
+public class QuoteStoreStatistics {
+    long created;
+    long consumed;
+    long expired;
+    long evicted;
+    int size;
+}
@@ -0,0 +1,91 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, column-oriented daily rates of a single currency: epoch days and fixed-point ask/bid
+ * in parallel primitive arrays sorted by day, 20 bytes per published table.
+ * Writers build a new series with {@link #merge}, readers binary search whatever series they hold.
+ */
+final class RateSeries {
+    static final RateSeries EMPTY = new RateSeries(new int[0], new long[0], new long[0]);
+
+    private final int[] days;
+    private final long[] asks;
+    private final long[] bids;
+
+    RateSeries(int[] days, long[] asks, long[] bids) {
+        this.days = days;
+        this.asks = asks;
+        this.bids = bids;
+    }
+
+    int size() {
+        return days.length;
+    }
+
+    int day(int index) {
+        return days[index];
+    }
+
+    long ask(int index) {
+        return asks[index];
+    }
+
+    long bid(int index) {
+        return bids[index];
+    }
+
+    /**
+     * Index of the last entry on or before the given day, -1 if there is none.
+     */
+    int floorIndex(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Index of the first entry on or after the given day, {@link #size()} if there is none.
+     */
+    int ceilingIndex(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Merges entries sorted by day without duplicates, an incoming entry replaces an existing one for the same day.
+     */
+    RateSeries merge(int[] newDays, long[] newAsks, long[] newBids) {
+        int[] mergedDays = new int[days.length + newDays.length];
+        long[] mergedAsks = new long[mergedDays.length];
+        long[] mergedBids = new long[mergedDays.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < days.length || j < newDays.length) {
+            if (j == newDays.length || (i < days.length && days[i] < newDays[j])) {
+                mergedDays[size] = days[i];
+                mergedAsks[size] = asks[i];
+                mergedBids[size] = bids[i];
+                i++;
+            } else {
+                if (i < days.length && days[i] == newDays[j]) {
+                    i++;
+                }
+                mergedDays[size] = newDays[j];
+                mergedAsks[size] = newAsks[j];
+                mergedBids[size] = newBids[j];
+                j++;
+            }
+            size++;
+        }
+        if (size == mergedDays.length) {
+            return new RateSeries(mergedDays, mergedAsks, mergedBids);
+        }
+        return new RateSeries(
+                Arrays.copyOf(mergedDays, size),
+                Arrays.copyOf(mergedAsks, size),
+                Arrays.copyOf(mergedBids, size)
+        );
+    }
+}
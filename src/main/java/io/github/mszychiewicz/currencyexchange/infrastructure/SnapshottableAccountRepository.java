@@ -0,0 +1,24 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A repository holding all accounts in process memory, made durable by {@link MappedAccountJournal}
+ * through periodic binary snapshots.
+ */
+public interface SnapshottableAccountRepository extends AccountRepository {
+    /**
+     * Writes every stored account to a binary snapshot while writers keep saving. Each account is captured
+     * consistently, in whichever version was current when it was reached.
+     */
+    void writeSnapshot(Path path, long checkpoint) throws IOException;
+
+    /**
+     * Replaces all stored accounts with the snapshot's and returns the journal checkpoint it was written at.
+     * Nothing is restored if the snapshot is invalid.
+     */
+    long restoreSnapshot(Path path) throws IOException;
+}
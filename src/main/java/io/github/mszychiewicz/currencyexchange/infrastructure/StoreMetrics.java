@@ -0,0 +1,61 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes the account and quote stores and the rate cache as gauges and counters, read from their statistics
+ * when scraped rather than recorded as they change. The meters are registered on construction rather than by a
+ * {@link io.micrometer.core.instrument.binder.MeterBinder}, binders are bound while the registry is created and the
+ * rate cache itself needs the registry for the NBP client metrics.
+ */
+@Component
+public class StoreMetrics {
+    private final InMemoryQuoteRepository quoteRepository;
+    private final CachingExchangeRateProvider exchangeRateProvider;
+
+    public StoreMetrics(MeterRegistry registry,
+                        AccountRepository accountRepository,
+                        InMemoryQuoteRepository quoteRepository,
+                        CachingExchangeRateProvider exchangeRateProvider) {
+        this.quoteRepository = quoteRepository;
+        this.exchangeRateProvider = exchangeRateProvider;
+
+        Gauge.builder("currency_exchange.accounts", accountRepository, AccountRepository::size)
+                .description("Accounts stored in the account repository.")
+                .register(registry);
+
+        Gauge.builder("currency_exchange.quotes", quoteRepository, quotes -> quotes.getStatistics().getSize())
+                .description("Quotes held until they are consumed or expire.")
+                .register(registry);
+        quoteEvents(registry, "created", QuoteStoreStatistics::getCreated);
+        quoteEvents(registry, "consumed", QuoteStoreStatistics::getConsumed);
+        quoteEvents(registry, "expired", QuoteStoreStatistics::getExpired);
+        quoteEvents(registry, "evicted", QuoteStoreStatistics::getEvicted);
+
+        rateCacheEvents(registry, "hit", CacheStatistics::getHits);
+        rateCacheEvents(registry, "miss", CacheStatistics::getMisses);
+        rateCacheEvents(registry, "refresh", CacheStatistics::getRefreshes);
+    }
+
+    private void quoteEvents(MeterRegistry registry, String event, ToDoubleFunction<QuoteStoreStatistics> count) {
+        FunctionCounter.builder("currency_exchange.quote.events", quoteRepository,
+                        quotes -> count.applyAsDouble(quotes.getStatistics()))
+                .description("Quotes by what happened to them.")
+                .tag("event", event)
+                .register(registry);
+    }
+
+    private void rateCacheEvents(MeterRegistry registry, String event, ToDoubleFunction<CacheStatistics> count) {
+        FunctionCounter.builder("currency_exchange.rate_cache", exchangeRateProvider,
+                        rates -> count.applyAsDouble(rates.getStatistics()))
+                .description("Rate table cache lookups and refreshes.")
+                .tag("event", event)
+                .register(registry);
+    }
+}
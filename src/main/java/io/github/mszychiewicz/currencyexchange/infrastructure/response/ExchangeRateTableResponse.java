@@ -0,0 +1,14 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure.response;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class ExchangeRateTableResponse {
+    String table;
+    String no;
+    String tradingDate;
+    String effectiveDate;
+    List<TableExchangeRateResponse> rates;
+}
@@ -0,0 +1,13 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure.response;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class TableExchangeRateResponse {
+    String currency;
+    String code;
+    BigDecimal bid;
+    BigDecimal ask;
+}
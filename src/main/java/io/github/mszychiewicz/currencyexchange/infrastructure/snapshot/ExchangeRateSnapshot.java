@@ -0,0 +1,14 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure.snapshot;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+@Value
+public class ExchangeRateSnapshot {
+    LocalDate effectiveDate;
+    Instant fetchedAt;
+    List<ExchangeRateSnapshotEntry> rates;
+}
@@ -0,0 +1,12 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure.snapshot;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class ExchangeRateSnapshotEntry {
+    String code;
+    BigDecimal ask;
+    BigDecimal bid;
+}
@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS account (
+    id         UUID         NOT NULL PRIMARY KEY,
+    first_name VARCHAR(255) NOT NULL,
+    last_name  VARCHAR(255) NOT NULL,
+    version    BIGINT       NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS account_balance (
+    account_id UUID    NOT NULL REFERENCES account (id),
+    currency   CHAR(3) NOT NULL,
+    amount     BIGINT  NOT NULL,
+    PRIMARY KEY (account_id, currency)
+);
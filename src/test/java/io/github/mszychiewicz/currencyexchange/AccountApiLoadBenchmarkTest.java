@@ -0,0 +1,163 @@
+package io.github.mszychiewicz.currencyexchange;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the same burst of concurrent buy requests against the MVC stack and its non-blocking modes while every
+ * request needs a rate table that NBP serves slowly. MVC gets a small pool of request threads and each waiting
+ * request holds one, so the burst drains a pool's worth at a time. The reactive profile's handlers run on Netty's
+ * event loop and release it while waiting, and the virtual-threads profile is not bound by a pool at all. Every
+ * request must succeed, the time and throughput of each mode are written to a JSON report per test in
+ * {@code benchmark.report}.
+ * <p>
+ * The assertions compare wall-clock times, so the test task leaves this class out and only
+ * {@code ./gradlew virtualThreadBenchmark} runs it.
+ */
+class AccountApiLoadBenchmarkTest {
+    private static final int REQUEST_THREADS = 8;
+    private static final int ACCOUNTS = 20;
+    private static final int CONCURRENT_REQUESTS = 96;
+    private static final int UPSTREAM_DELAY_MILLIS = 200;
+
+    private final WireMockServer nbp = new WireMockServer(options().dynamicPort());
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final ObjectNode report = objectMapper.createObjectNode();
+
+    @BeforeEach
+    void startNbp() {
+        nbp.start();
+        nbp.stubFor(get(urlEqualTo("/api/exchangerates/tables/c/"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withFixedDelay(UPSTREAM_DELAY_MILLIS)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[{\"table\": \"C\", \"no\": \"046/C/NBP/2021\", \"tradingDate\": \"2021-03-08\", "
+                                + "\"effectiveDate\": \"2021-03-09\", \"rates\": [{\"currency\": \"dolar amerykański\", "
+                                + "\"code\": \"USD\", \"bid\": 3.8421, \"ask\": 3.9112}]}]")));
+    }
+
+    @AfterEach
+    void stopNbp() {
+        nbp.stop();
+    }
+
+    @AfterEach
+    void writeReport(TestInfo testInfo) throws IOException {
+        if (report.isEmpty()) {
+            return;
+        }
+        Path directory = Path.of(System.getProperty("benchmark.report", "build/reports/virtual-thread-benchmark"));
+        Files.createDirectories(directory);
+        objectMapper.writeValue(directory.resolve(testInfo.getTestMethod().orElseThrow().getName() + ".json").toFile(), report);
+    }
+
+    @Test
+    void givenSlowNbp_whenBurstOfBuysHitsEitherStack_thenReactiveStackIsNotBoundByRequestThreads() throws Exception {
+        long mvcMillis = measure("mvc");
+        long reactiveMillis = measure("reactive");
+
+        assertTrue(reactiveMillis * 2 < mvcMillis, "reactive: " + reactiveMillis + "ms, mvc: " + mvcMillis + "ms");
+    }
+
+    @Test
+    void givenSlowNbp_whenBurstOfBuysHitsVirtualThreads_thenConcurrencyIsNotBoundByPlatformThreads() throws Exception {
+        // ./gradlew virtualThreadBenchmark runs this on a Java 21 toolchain, the default test JVM may be older
+        if (Boolean.getBoolean("benchmark.virtualThreads.required")) {
+            assertTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21, running on " + Runtime.version());
+        }
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+
+        long mvcMillis = measure("mvc");
+        long virtualThreadsMillis = measure("virtual-threads");
+
+        assertTrue(virtualThreadsMillis * 2 < mvcMillis,
+                "virtual threads: " + virtualThreadsMillis + "ms, mvc: " + mvcMillis + "ms");
+    }
+
+    private long measure(String profile) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CurrencyExchangeApplication.class)
+                .profiles(profile)
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=" + REQUEST_THREADS,
+                        "--server.tomcat.threads.min-spare=" + REQUEST_THREADS,
+                        "--clients.nbp.baseUrl=http://localhost:" + nbp.port(),
+                        // the stubbed table is long overdue, so every request waits for NBP again
+                        "--clients.nbp.cache.retryInterval=PT0S",
+                        "--clients.nbp.cache.maxStaleness=PT0S",
+                        "--clients.nbp.snapshot.path=",
+                        "--clients.nbp.history.backfillDays=0",
+                        "--accounts.journal.path=")) {
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/accounts";
+            List<String> accountIds = new ArrayList<>();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                HttpResponse<String> opened = client.send(post(baseUrl,
+                        "{\"firstName\": \"Jane\", \"lastName\": \"Doe\", \"openingBalance\": \"1000.00\"}"),
+                        HttpResponse.BodyHandlers.ofString());
+                accountIds.add(objectMapper.readTree(opened.body()).get("id").textValue());
+            }
+
+            // the first burst warms up the stack and opens the client's connections
+            burst(baseUrl, accountIds);
+            long start = System.nanoTime();
+            burst(baseUrl, accountIds);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            ObjectNode result = report.putObject(profile);
+            result.put("concurrentRequests", CONCURRENT_REQUESTS);
+            result.put("millis", millis);
+            result.put("throughput", CONCURRENT_REQUESTS * 1000L / Math.max(millis, 1));
+            return millis;
+        }
+    }
+
+    private void burst(String baseUrl, List<String> accountIds) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            responses.add(client.sendAsync(post(baseUrl + "/" + accountIds.get(i % ACCOUNTS) + "/buy-currency-commands",
+                    "{\"currencyCode\": \"USD\", \"amount\": \"0.01\"}"), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(HttpStatus.OK.value(), response.join().statusCode());
+        }
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -2,13 +2,20 @@ package io.github.mszychiewicz.currencyexchange;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -16,20 +23,38 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.sql.DataSource;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+// the Prometheus registry is left out of tests unless asked for
+@AutoConfigureMetrics
 @AutoConfigureWireMock(port = 0)
-@TestPropertySource(properties = "clients.nbp.baseUrl=http://localhost:${wiremock.server.port}")
+@TestPropertySource(properties = {
+        "clients.nbp.baseUrl=http://localhost:${wiremock.server.port}",
+        "clients.nbp.snapshot.path=",
+        "accounts.journal.path=",
+        "clients.nbp.history.backfillDays=0"
+})
 class CurrencyExchangeApplicationTest {
 
     @Autowired
@@ -38,12 +63,23 @@ class CurrencyExchangeApplicationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void givenDefaultProfile_whenContextStarts_thenNoDataSourceIsCreated() {
+        assertTrue(context.getBeansOfType(DataSource.class).isEmpty());
+    }
+
     @Test
     void givenUserData_whenUserOpensAccount_thenAccountIsCorrect() throws Exception {
         //given user wants to open an account
         String firstName = "Jane";
         String lastName = "Doe";
-        BigDecimal plnBalance = BigDecimal.TEN;
+        BigDecimal plnBalance = new BigDecimal("10.00");
 
         //when they try to open account expect success
         String accountId = openAccount(firstName, lastName, plnBalance);
@@ -57,8 +93,33 @@ class CurrencyExchangeApplicationTest {
         assertEquals(lastName, accountDetails.get("lastName").textValue());
 
         //and account balance is correct
-        BigDecimal plnAccountBalance = new BigDecimal(accountDetails.path("balances").get("PLN").toString());
+        BigDecimal plnAccountBalance = balance(accountDetails, "PLN");
         assertEquals(plnBalance, plnAccountBalance);
+
+        //and currencies the account does not hold are not listed
+        assertEquals(1, accountDetails.path("balances").size());
+    }
+
+    @Test
+    void givenUnknownOrMalformedAccountId_whenUserGetsAccount_thenItIsRejected() throws Exception {
+        //given an account exists
+        String accountId = openAccount("Jane", "Doe", BigDecimal.TEN);
+
+        //when user gets an account in upper case expect success
+        mvc.perform(get("/accounts/" + accountId.toUpperCase()))
+                .andExpect(status().isOk());
+
+        //and when user gets an unknown account expect not found
+        mvc.perform(get("/accounts/" + UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+
+        //then malformed ids are rejected
+        mvc.perform(get("/accounts/" + accountId.substring(1)))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/accounts/" + accountId.replace('-', 'x')))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/accounts/" + accountId.substring(1) + "g"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -66,12 +127,12 @@ class CurrencyExchangeApplicationTest {
         //given user has open account with sufficient balance
         String firstName = "Jane";
         String lastName = "Doe";
-        BigDecimal plnBalance = BigDecimal.TEN;
+        BigDecimal plnBalance = new BigDecimal("10.00");
         String accountId = openAccount(firstName, lastName, plnBalance);
 
         //and wants to buy an amount of USD currency
         String currencyCode = "USD";
-        BigDecimal amountToBuy = BigDecimal.ONE;
+        BigDecimal amountToBuy = new BigDecimal("1.00");
 
         //and there are exchange rates
         BigDecimal askExchangeRate = new BigDecimal("3.9112");
@@ -84,12 +145,12 @@ class CurrencyExchangeApplicationTest {
         JsonNode accountDetails = getAccountDetails(accountId);
 
         //then currency balance is equal to bought amount
-        BigDecimal currencyAccountBalance = new BigDecimal(accountDetails.path("balances").get(currencyCode).toString());
+        BigDecimal currencyAccountBalance = balance(accountDetails, currencyCode);
         assertEquals(amountToBuy, currencyAccountBalance);
 
         //and PLN balance is reduced by correct exchanged amount
-        BigDecimal plnAccountBalance = new BigDecimal(accountDetails.path("balances").get("PLN").toString());
-        assertEquals(plnBalance.subtract(amountToBuy.multiply(askExchangeRate)), plnAccountBalance);
+        BigDecimal plnAccountBalance = balance(accountDetails, "PLN");
+        assertEquals(plnBalance.subtract(inPln(amountToBuy.multiply(askExchangeRate))), plnAccountBalance);
     }
 
     @Test
@@ -97,12 +158,12 @@ class CurrencyExchangeApplicationTest {
         //given user has open account
         String firstName = "Jane";
         String lastName = "Doe";
-        BigDecimal plnBalance = BigDecimal.TEN;
+        BigDecimal plnBalance = new BigDecimal("10.00");
         String accountId = openAccount(firstName, lastName, plnBalance);
 
         //and wants to sell an amount of USD currency
         String currencyCode = "USD";
-        BigDecimal amountToSell = BigDecimal.ONE;
+        BigDecimal amountToSell = new BigDecimal("1.00");
 
         //and there are exchange rates
         BigDecimal bidExchangeRate = new BigDecimal("3.8421");
@@ -110,9 +171,9 @@ class CurrencyExchangeApplicationTest {
         stubExchangeRateResponse(currencyCode, bidExchangeRate.toString(), askExchangeRate.toString());
 
         //and has sufficient balance
-        BigDecimal currencyBalance = BigDecimal.ONE;
+        BigDecimal currencyBalance = new BigDecimal("1.00");
         buyCurrency(accountId, currencyCode, currencyBalance);
-        plnBalance = plnBalance.subtract(currencyBalance.multiply(askExchangeRate));
+        plnBalance = plnBalance.subtract(inPln(currencyBalance.multiply(askExchangeRate)));
 
         //when they try to sell currency expect success
         sellCurrency(accountId, currencyCode, amountToSell);
@@ -121,12 +182,299 @@ class CurrencyExchangeApplicationTest {
         JsonNode accountDetails = getAccountDetails(accountId);
 
         //then currency balance is reduced by correct amount
-        BigDecimal currencyAccountBalance = new BigDecimal(accountDetails.path("balances").get(currencyCode).toString());
+        BigDecimal currencyAccountBalance = balance(accountDetails, currencyCode);
         assertEquals(currencyBalance.subtract(amountToSell), currencyAccountBalance);
 
         //and PLN balance is increased by correct exchanged amount
-        BigDecimal plnAccountBalance = new BigDecimal(accountDetails.path("balances").get("PLN").toString());
-        assertEquals(plnBalance.add(amountToSell.multiply(bidExchangeRate)), plnAccountBalance);
+        BigDecimal plnAccountBalance = balance(accountDetails, "PLN");
+        assertEquals(plnBalance.add(inPln(amountToSell.multiply(bidExchangeRate))), plnAccountBalance);
+    }
+
+    @Test
+    void givenUserAccountAndBuyQuote_whenUserBuysUsdWithQuote_thenExchangeUsesQuotedRate() throws Exception {
+        //given user has open account with sufficient balance
+        BigDecimal plnBalance = new BigDecimal("10.00");
+        String accountId = openAccount("Jane", "Doe", plnBalance);
+
+        //and there are exchange rates
+        String currencyCode = "USD";
+        BigDecimal askExchangeRate = new BigDecimal("3.9112");
+        stubExchangeRateResponse(currencyCode, "3.8421", askExchangeRate.toString());
+
+        //and user requests a quote for buying USD
+        BigDecimal amountToBuy = new BigDecimal("1.00");
+        JsonNode quote = requestQuote(accountId, "BUY", currencyCode, amountToBuy);
+        assertEquals(askExchangeRate, new BigDecimal(quote.get("exchangeRate").toString()));
+
+        //when they buy currency with the quote expect success
+        ObjectNode buyCurrencyData = objectMapper.createObjectNode();
+        buyCurrencyData.put("currencyCode", currencyCode);
+        buyCurrencyData.put("amount", amountToBuy.toString());
+        buyCurrencyData.put("quoteId", quote.get("id").textValue());
+        mvc.perform(post("/accounts/" + accountId + "/buy-currency-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(buyCurrencyData)))
+                .andExpect(status().isOk());
+
+        //and the same quote cannot be used twice
+        mvc.perform(post("/accounts/" + accountId + "/buy-currency-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(buyCurrencyData)))
+                .andExpect(status().isConflict());
+
+        //then PLN balance is reduced by quoted exchanged amount
+        JsonNode accountDetails = getAccountDetails(accountId);
+        BigDecimal plnAccountBalance = balance(accountDetails, "PLN");
+        assertEquals(plnBalance.subtract(inPln(amountToBuy.multiply(askExchangeRate))), plnAccountBalance);
+    }
+
+    @Test
+    void givenUserAccount_whenUserBuysAmountWhosePriceOverflows_thenRejectIt() throws Exception {
+        //given
+        String accountId = openAccount("Jane", "Doe", new BigDecimal("10.00"));
+        stubExchangeRateResponse("USD", "3.8421", "3.9112");
+
+        //when the amount fits minor units but its price in PLN does not expect bad request
+        ObjectNode buyCurrencyData = objectMapper.createObjectNode();
+        buyCurrencyData.put("currencyCode", "USD");
+        buyCurrencyData.put("amount", "90000000000000000.00");
+        mvc.perform(post("/accounts/" + accountId + "/buy-currency-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(buyCurrencyData)))
+                .andExpect(status().isBadRequest());
+
+        //then
+        assertEquals(new BigDecimal("10.00"), balance(getAccountDetails(accountId), "PLN"));
+    }
+
+    @Test
+    void givenUserAccountWithUsd_whenUserExchangesUsdToEur_thenBothBalancesChangeAtCrossRate() throws Exception {
+        //given user holds USD
+        String accountId = openAccount("Jane", "Doe", new BigDecimal("10.00"));
+        stubExchangeRateResponse("USD", "3.8421", "3.9112");
+        buyCurrency(accountId, "USD", new BigDecimal("2.00"));
+
+        //and a table with USD and EUR rates is published
+        eventPublisher.publishEvent(new ExchangeRateTableRefreshedEvent(
+                new ExchangeRateTable(LocalDate.parse("2021-03-09"), Map.of(
+                        Currency.getInstance("USD"), new ExchangeRate(new BigDecimal("3.9112"), new BigDecimal("3.8421")),
+                        Currency.getInstance("EUR"), new ExchangeRate(new BigDecimal("4.6110"), new BigDecimal("4.5198"))
+                )),
+                Instant.now(),
+                Instant.now()
+        ));
+
+        //when user exchanges USD to EUR expect success
+        ObjectNode exchangeData = objectMapper.createObjectNode();
+        exchangeData.put("fromCurrencyCode", "USD");
+        exchangeData.put("toCurrencyCode", "EUR");
+        exchangeData.put("amount", "1.00");
+        mvc.perform(post("/accounts/" + accountId + "/exchange-currency-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(exchangeData)))
+                .andExpect(status().isOk());
+
+        //then 1.00 USD sold at 3.8421 PLN buys 0.83 EUR at 4.6110 PLN
+        JsonNode accountDetails = getAccountDetails(accountId);
+        assertEquals(new BigDecimal("1.00"), balance(accountDetails, "USD"));
+        assertEquals(new BigDecimal("0.83"), balance(accountDetails, "EUR"));
+
+        //and exchanging a currency for itself is rejected
+        exchangeData.put("toCurrencyCode", "USD");
+        mvc.perform(post("/accounts/" + accountId + "/exchange-currency-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(exchangeData)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenTradesAndRejections_whenPrometheusScrapes_thenTheyAreCounted() throws Exception {
+        //given user has open account and there are exchange rates
+        String accountId = openAccount("Jane", "Doe", new BigDecimal("10.00"));
+        stubExchangeRateResponse("USD", "3.8421", "3.9112");
+        String buys = "currency_exchange_operation_seconds_count{operation=\"buy\",}";
+        String rejectedSells = "currency_exchange_operation_failures_total{operation=\"sell\",reason=\"insufficient_funds\",}";
+        String usdVolume = "currency_exchange_traded_amount_total{currency=\"USD\",}";
+        Map<String, Double> before = scrape();
+
+        //when they buy USD and then try to sell more than they hold
+        buyCurrency(accountId, "USD", new BigDecimal("1.00"));
+        ObjectNode sellCurrencyData = objectMapper.createObjectNode();
+        sellCurrencyData.put("currencyCode", "USD");
+        sellCurrencyData.put("amount", "5.00");
+        mvc.perform(post("/accounts/" + accountId + "/sell-currency-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(sellCurrencyData)))
+                .andExpect(status().isForbidden());
+
+        //then the buy, the rejected sell and the bought amount show up in the next scrape
+        Map<String, Double> after = scrape();
+        assertEquals(before.getOrDefault(buys, 0.0) + 1, after.get(buys));
+        assertEquals(before.getOrDefault(rejectedSells, 0.0) + 1, after.get(rejectedSells));
+        assertEquals(before.getOrDefault(usdVolume, 0.0) + 1, after.get(usdVolume), 1e-9);
+        assertTrue(after.get("currency_exchange_accounts") >= 1);
+    }
+
+    @Test
+    void givenAccounts_whenUpstreamSendsBatchOfCommands_thenEachCommandGetsItsResult() throws Exception {
+        //given two accounts and exchange rates
+        String buyerId = openAccount("Jane", "Doe", new BigDecimal("10.00"));
+        String sellerId = openAccount("John", "Doe", new BigDecimal("10.00"));
+        stubExchangeRateResponse("USD", "3.8421", "3.9112");
+
+        //when upstream sends a batch of commands expect success
+        ArrayNode commands = objectMapper.createArrayNode();
+        commands.add(command(buyerId, "BUY", "USD", "1.00"));
+        commands.add(command(sellerId, "SELL", "USD", "1.00"));
+        commands.add(command(buyerId, "BUY", "USD", "1.00"));
+        commands.add(command(UUID.randomUUID().toString(), "BUY", "USD", "1.00"));
+        ObjectNode batch = objectMapper.createObjectNode();
+        batch.set("commands", commands);
+        MvcResult batchResult = mvc.perform(post("/accounts/batch-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then each command has its own result
+        JsonNode results = objectMapper.readTree(batchResult.getResponse().getContentAsString());
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).get("success").booleanValue());
+        assertEquals(HttpStatus.FORBIDDEN.value(), results.get(1).get("status").intValue());
+        assertTrue(results.get(2).get("success").booleanValue());
+        assertEquals(HttpStatus.NOT_FOUND.value(), results.get(3).get("status").intValue());
+
+        //and successful commands are applied in order
+        JsonNode buyer = getAccountDetails(buyerId);
+        assertEquals(new BigDecimal("2.00"), balance(buyer, "USD"));
+        assertEquals(new BigDecimal("10.00").subtract(inPln(new BigDecimal("3.9112")).multiply(BigDecimal.valueOf(2))),
+                balance(buyer, "PLN"));
+
+        //and an empty batch is rejected
+        mvc.perform(post("/accounts/batch-commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"commands\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenRatesFetchedForTrade_whenUserGetsRateHistory_thenFetchedTableIsReturned() throws Exception {
+        //given rates were fetched to execute a trade
+        String accountId = openAccount("Jane", "Doe", BigDecimal.TEN);
+        String currencyCode = "USD";
+        BigDecimal bidExchangeRate = new BigDecimal("3.8421");
+        BigDecimal askExchangeRate = new BigDecimal("3.9112");
+        stubExchangeRateResponse(currencyCode, bidExchangeRate.toString(), askExchangeRate.toString());
+        buyCurrency(accountId, currencyCode, BigDecimal.ONE);
+
+        //when user gets the rate history expect success
+        MvcResult historyResult = mvc.perform(get("/rates/" + currencyCode)
+                .param("from", "2021-03-01")
+                .param("to", "2021-03-31"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then the fetched table is part of the history
+        JsonNode history = objectMapper.readTree(historyResult.getResponse().getContentAsString());
+        JsonNode rate = history.get("rates").get(0);
+        assertEquals("2021-03-09", rate.get("effectiveDate").textValue());
+        assertEquals(askExchangeRate, new BigDecimal(rate.get("ask").toString()));
+        assertEquals(bidExchangeRate, new BigDecimal(rate.get("bid").toString()));
+
+        //and reversed range is rejected
+        mvc.perform(get("/rates/" + currencyCode)
+                .param("from", "2021-03-31")
+                .param("to", "2021-03-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenStreamSubscriber_whenRatesAreRefreshed_thenOnlyChangedRatesArePushed() throws Exception {
+        //given user subscribes to the rate stream
+        MvcResult streamResult = mvc.perform(get("/rates/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //and a table with USD and EUR rates is published
+        Currency USD = Currency.getInstance("USD");
+        Currency EUR = Currency.getInstance("EUR");
+        ExchangeRate eurRate = new ExchangeRate(new BigDecimal("4.6110"), new BigDecimal("4.5198"));
+        eventPublisher.publishEvent(new ExchangeRateTableRefreshedEvent(
+                new ExchangeRateTable(LocalDate.parse("2021-03-10"), Map.of(
+                        USD, new ExchangeRate(new BigDecimal("3.8731"), new BigDecimal("3.7965")),
+                        EUR, eurRate
+                )),
+                Instant.now(),
+                Instant.now()
+        ));
+        awaitStreamContent(streamResult, "3.8731");
+
+        //when only the USD rate changes in the next table
+        eventPublisher.publishEvent(new ExchangeRateTableRefreshedEvent(
+                new ExchangeRateTable(LocalDate.parse("2021-03-11"), Map.of(
+                        USD, new ExchangeRate(new BigDecimal("3.8800"), new BigDecimal("3.8020")),
+                        EUR, eurRate
+                )),
+                Instant.now(),
+                Instant.now()
+        ));
+        String content = awaitStreamContent(streamResult, "3.8800");
+
+        //then the last pushed event is a delta with USD only
+        String lastEvent = content.substring(content.lastIndexOf("event:"));
+        assertTrue(lastEvent.startsWith("event:delta"), lastEvent);
+        assertFalse(lastEvent.contains("EUR"), lastEvent);
+    }
+
+    private String awaitStreamContent(MvcResult streamResult, String expected) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            String content = streamResult.getResponse().getContentAsString();
+            if (content.contains(expected)) {
+                return content;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Stream did not push " + expected);
+    }
+
+    // balances are rendered with the currency scale, but read back as doubles, currencies not held are left out
+    private static BigDecimal balance(JsonNode accountDetails, String currencyCode) {
+        JsonNode balance = accountDetails.path("balances").get(currencyCode);
+        return balance == null ? new BigDecimal("0.00") : new BigDecimal(balance.toString()).setScale(2);
+    }
+
+    private static BigDecimal inPln(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private JsonNode requestQuote(String accountId, String side, String currencyCode, BigDecimal amount) throws Exception {
+        ObjectNode quoteData = objectMapper.createObjectNode();
+        quoteData.put("side", side);
+        quoteData.put("currencyCode", currencyCode);
+        quoteData.put("amount", amount.toString());
+
+        MvcResult quoteResult = mvc.perform(post("/accounts/" + accountId + "/quotes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(quoteData)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return objectMapper.readTree(quoteResult.getResponse().getContentAsString());
+    }
+
+    private Map<String, Double> scrape() throws Exception {
+        MvcResult scrapeResult = mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Map<String, Double> samples = new HashMap<>();
+        for (String line : scrapeResult.getResponse().getContentAsString().split("\n")) {
+            if (!line.startsWith("#")) {
+                int separator = line.lastIndexOf(' ');
+                samples.put(line.substring(0, separator), Double.parseDouble(line.substring(separator + 1)));
+            }
+        }
+        return samples;
     }
 
     private String openAccount(String firstName, String lastName, BigDecimal plnBalance) throws Exception {
@@ -145,6 +493,15 @@ class CurrencyExchangeApplicationTest {
         return objectMapper.readTree(openAccountContent).get("id").textValue();
     }
 
+    private ObjectNode command(String accountId, String side, String currencyCode, String amount) {
+        ObjectNode command = objectMapper.createObjectNode();
+        command.put("accountId", accountId);
+        command.put("side", side);
+        command.put("currencyCode", currencyCode);
+        command.put("amount", amount);
+        return command;
+    }
+
     private JsonNode getAccountDetails(String accountId) throws Exception {
         MvcResult getAccountDetailsResult = mvc.perform(get("/accounts/" + accountId))
                 .andExpect(status().isOk())
@@ -197,5 +554,29 @@ class CurrencyExchangeApplicationTest {
                         .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                         .withBody(responseBody)
                 ));
+
+        String tableResponseBody = "[\n" +
+                "  {\n" +
+                "    \"table\": \"C\",\n" +
+                "    \"no\": \"046/C/NBP/2021\",\n" +
+                "    \"tradingDate\": \"2021-03-08\",\n" +
+                "    \"effectiveDate\": \"2021-03-09\",\n" +
+                "    \"rates\": [\n" +
+                "      {\n" +
+                "        \"currency\": \"dolar amerykański\",\n" +
+                "        \"code\": \"" + currencyCode + "\",\n" +
+                "        \"bid\": " + bidRate + ",\n" +
+                "        \"ask\": " + askRate + "\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  }\n" +
+                "]";
+
+        stubFor(WireMock.get(urlEqualTo("/api/exchangerates/tables/c/"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(tableResponseBody)
+                ));
     }
 }
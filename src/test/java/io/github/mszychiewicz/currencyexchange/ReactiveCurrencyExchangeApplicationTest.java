@@ -0,0 +1,226 @@
+package io.github.mszychiewicz.currencyexchange;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // the test context decides its web stack before profile configuration is read
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(properties = {
+        "clients.nbp.baseUrl=http://localhost:${wiremock.server.port}",
+        "clients.nbp.snapshot.path=",
+        "accounts.journal.path=",
+        "clients.nbp.history.backfillDays=0"
+})
+class ReactiveCurrencyExchangeApplicationTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void givenReactiveProfile_whenApplicationStarts_thenItIsServedByNetty() {
+        assertTrue(((WebServerApplicationContext) context).getWebServer() instanceof NettyWebServer);
+    }
+
+    @Test
+    void givenUserAccount_whenUserBuysUsd_thenBalancesChangeAndErrorsKeepTheirStatus() throws Exception {
+        //given user has open account and there are exchange rates
+        String accountId = openAccount("Jane", "Doe", "10.00");
+        stubExchangeRateResponse("USD", "3.8421", "3.9112");
+
+        //when they buy currency expect success
+        post("/accounts/" + accountId + "/buy-currency-commands", trade("USD", "1.00"))
+                .expectStatus().isOk();
+
+        //then the account holds the bought USD and the PLN they paid is gone
+        JsonNode accountDetails = getAccountDetails(accountId);
+        assertEquals(new BigDecimal("1.00"), balance(accountDetails, "USD"));
+        assertEquals(new BigDecimal("6.09"), balance(accountDetails, "PLN"));
+
+        //and selling more than they hold, unknown accounts and invalid requests are rejected as on MVC
+        post("/accounts/" + accountId + "/sell-currency-commands", trade("USD", "5.00"))
+                .expectStatus().isForbidden();
+        client.get().uri("/accounts/" + UUID.randomUUID()).exchange()
+                .expectStatus().isNotFound();
+        post("/accounts", objectMapper.createObjectNode().put("firstName", "Jane"))
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenBuyQuote_whenUserBuysWithItTwice_thenOnlyTheFirstBuyIsAccepted() throws Exception {
+        //given user has open account and a quote for buying USD
+        String accountId = openAccount("Jane", "Doe", "10.00");
+        stubExchangeRateResponse("USD", "3.8421", "3.9112");
+        ObjectNode quoteData = objectMapper.createObjectNode();
+        quoteData.put("side", "BUY");
+        quoteData.put("currencyCode", "USD");
+        quoteData.put("amount", "1.00");
+        JsonNode quote = body(post("/accounts/" + accountId + "/quotes", quoteData).expectStatus().isOk());
+        assertEquals(new BigDecimal("3.9112"), new BigDecimal(quote.get("exchangeRate").toString()));
+
+        //when they buy with the quote twice
+        ObjectNode buyCurrencyData = trade("USD", "1.00").put("quoteId", quote.get("id").textValue());
+        post("/accounts/" + accountId + "/buy-currency-commands", buyCurrencyData)
+                .expectStatus().isOk();
+
+        //then the quote cannot be used again
+        post("/accounts/" + accountId + "/buy-currency-commands", buyCurrencyData)
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void givenAccounts_whenUpstreamSendsBatchOfCommands_thenEachCommandGetsItsResult() throws Exception {
+        //given two accounts and exchange rates
+        String buyerId = openAccount("Jane", "Doe", "10.00");
+        String sellerId = openAccount("John", "Doe", "10.00");
+        stubExchangeRateResponse("USD", "3.8421", "3.9112");
+
+        //when upstream sends a batch of commands expect success
+        ArrayNode commands = objectMapper.createArrayNode();
+        commands.add(command(buyerId, "BUY"));
+        commands.add(command(sellerId, "SELL"));
+        commands.add(command(UUID.randomUUID().toString(), "BUY"));
+        ObjectNode batch = objectMapper.createObjectNode();
+        batch.set("commands", commands);
+        JsonNode results = body(post("/accounts/batch-commands", batch).expectStatus().isOk());
+
+        //then each command has its own result
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).get("success").booleanValue());
+        assertEquals(HttpStatus.FORBIDDEN.value(), results.get(1).get("status").intValue());
+        assertEquals(HttpStatus.NOT_FOUND.value(), results.get(2).get("status").intValue());
+    }
+
+    @Test
+    void givenStreamSubscriber_whenRatesAreRefreshed_thenSnapshotIsPushed() {
+        //given user subscribes to the rate stream
+        Flux<ServerSentEvent<JsonNode>> events = client.get().uri("/rates/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<JsonNode>>() {
+                })
+                .getResponseBody();
+
+        //when a table with a new USD rate is published
+        eventPublisher.publishEvent(new ExchangeRateTableRefreshedEvent(
+                new ExchangeRateTable(LocalDate.parse("2021-03-10"), Map.of(
+                        Currency.getInstance("USD"), new ExchangeRate(new BigDecimal("3.8731"), new BigDecimal("3.7965"))
+                )),
+                Instant.now(),
+                Instant.now()
+        ));
+
+        //then the subscriber receives an event with it
+        ServerSentEvent<JsonNode> event = events
+                .filter(received -> received.data() != null && received.data().toString().contains("3.8731"))
+                .blockFirst(Duration.ofSeconds(5));
+        assertTrue(event != null && event.data().toString().contains("USD"), String.valueOf(event));
+    }
+
+    private WebTestClient.ResponseSpec post(String uri, Object body) {
+        return client.post().uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange();
+    }
+
+    private JsonNode body(WebTestClient.ResponseSpec response) throws Exception {
+        return objectMapper.readTree(response.expectBody(String.class).returnResult().getResponseBody());
+    }
+
+    private String openAccount(String firstName, String lastName, String plnBalance) throws Exception {
+        ObjectNode openAccountData = objectMapper.createObjectNode();
+        openAccountData.put("firstName", firstName);
+        openAccountData.put("lastName", lastName);
+        openAccountData.put("openingBalance", plnBalance);
+        return body(post("/accounts", openAccountData).expectStatus().isOk()).get("id").textValue();
+    }
+
+    private JsonNode getAccountDetails(String accountId) throws Exception {
+        return body(client.get().uri("/accounts/" + accountId).exchange().expectStatus().isOk());
+    }
+
+    private ObjectNode trade(String currencyCode, String amount) {
+        ObjectNode tradeData = objectMapper.createObjectNode();
+        tradeData.put("currencyCode", currencyCode);
+        tradeData.put("amount", amount);
+        return tradeData;
+    }
+
+    private ObjectNode command(String accountId, String side) {
+        return trade("USD", "1.00").put("accountId", accountId).put("side", side);
+    }
+
+    // currencies not held are left out of the balances
+    private static BigDecimal balance(JsonNode accountDetails, String currencyCode) {
+        JsonNode balance = accountDetails.path("balances").get(currencyCode);
+        return balance == null ? new BigDecimal("0.00") : new BigDecimal(balance.toString()).setScale(2);
+    }
+
+    private static void stubExchangeRateResponse(String currencyCode, String bidRate, String askRate) {
+        String rate = "\"bid\": " + bidRate + ", \"ask\": " + askRate;
+        stubFor(WireMock.get(urlEqualTo("/api/exchangerates/rates/c/" + currencyCode))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("{\"table\": \"C\", \"currency\": \"dolar amerykański\", \"code\": \"" + currencyCode
+                                + "\", \"rates\": [{\"no\": \"046/C/NBP/2021\", \"effectiveDate\": \"2021-03-09\", "
+                                + rate + "}]}")));
+        stubFor(WireMock.get(urlEqualTo("/api/exchangerates/tables/c/"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[{\"table\": \"C\", \"no\": \"046/C/NBP/2021\", \"tradingDate\": \"2021-03-08\", "
+                                + "\"effectiveDate\": \"2021-03-09\", \"rates\": [{\"currency\": \"dolar amerykański\", "
+                                + "\"code\": \"" + currencyCode + "\", " + rate + "}]}]")));
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.mszychiewicz.currencyexchange;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadConfigUnitTest {
+
+    @Test
+    void givenRuntimeWithoutVirtualThreads_whenVirtualThreadExecutorIsCreated_thenThrowIllegalStateException() {
+        assumeTrue(Runtime.version().feature() < 21);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                VirtualThreadConfig::newVirtualThreadPerTaskExecutor);
+        assertTrue(failure.getMessage().contains("needs Java 21"), failure.getMessage());
+    }
+}
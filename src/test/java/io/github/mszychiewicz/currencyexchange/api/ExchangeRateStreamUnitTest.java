@@ -0,0 +1,129 @@
+package io.github.mszychiewicz.currencyexchange.api;
+
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeRateStreamUnitTest {
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final LocalDate TUESDAY = LocalDate.of(2021, 3, 2);
+    private static final LocalDate WEDNESDAY = LocalDate.of(2021, 3, 3);
+
+    private final ExchangeRateStream stream = new ExchangeRateStream(Duration.ofMinutes(1), Duration.ofMillis(200), 2);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+        stream.close();
+    }
+
+    @Test
+    void givenClientsThatNeverTakeUpdates_whenTablesAreRefreshed_thenOtherClientsGetThemAndStuckOnesAreDropped()
+            throws Exception {
+        //given
+        List<StuckSink> stuck = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            StuckSink sink = new StuckSink();
+            stream.subscribe(sink);
+            stuck.add(sink);
+        }
+        RecordingSink healthy = new RecordingSink();
+        stream.subscribe(healthy);
+
+        //when
+        stream.onExchangeRateTableRefreshed(refreshed(TUESDAY, "3.9112"));
+        ExchangeRateStream.Update first = healthy.updates.poll(1, TimeUnit.SECONDS);
+        stream.onExchangeRateTableRefreshed(refreshed(WEDNESDAY, "3.9200"));
+        ExchangeRateStream.Update second = healthy.updates.poll(1, TimeUnit.SECONDS);
+
+        //then
+        assertEquals(TUESDAY, first.effectiveDate);
+        assertEquals(WEDNESDAY, second.effectiveDate);
+        for (StuckSink sink : stuck) {
+            assertTrue(sink.dropped.get(2, TimeUnit.SECONDS) instanceof TimeoutException);
+            // the second refresh waited behind the stuck write instead of queueing another one
+            assertEquals(1, sink.sends.get());
+        }
+    }
+
+    private static ExchangeRateTableRefreshedEvent refreshed(LocalDate effectiveDate, String ask) {
+        ExchangeRateTable table = new ExchangeRateTable(
+                effectiveDate,
+                Map.of(USD, new ExchangeRate(new BigDecimal(ask), new BigDecimal("3.8340")))
+        );
+        return new ExchangeRateTableRefreshedEvent(table, Instant.EPOCH, Instant.EPOCH);
+    }
+
+    private class StuckSink implements ExchangeRateStream.Sink {
+        final AtomicInteger sends = new AtomicInteger();
+        final CompletableFuture<Throwable> dropped = new CompletableFuture<>();
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void send(ExchangeRateStream.Update update) {
+            sends.incrementAndGet();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable failure) {
+            dropped.complete(failure);
+        }
+
+        @Override
+        public void complete() {
+        }
+    }
+
+    private static class RecordingSink implements ExchangeRateStream.Sink {
+        final BlockingQueue<ExchangeRateStream.Update> updates = new LinkedBlockingQueue<>();
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void send(ExchangeRateStream.Update update) {
+            updates.add(update);
+        }
+
+        @Override
+        public void completeWithError(Throwable failure) {
+        }
+
+        @Override
+        public void complete() {
+        }
+    }
+}
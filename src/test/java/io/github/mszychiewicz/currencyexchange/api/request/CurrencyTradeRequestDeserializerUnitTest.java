@@ -0,0 +1,96 @@
+package io.github.mszychiewicz.currencyexchange.api.request;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import org.junit.jupiter.api.Test;
+
+import java.util.Currency;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CurrencyTradeRequestDeserializerUnitTest {
+    private static final Currency USD = Currency.getInstance("USD");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void givenTextOrNumericAmount_whenDecoded_thenAmountIsInMinorUnitsOfTheCurrency() throws Exception {
+        //given
+        UUID quoteId = UUID.randomUUID();
+        //when
+        BuyCurrencyRequest text = objectMapper.readValue(
+                "{\"amount\": \"12.5\", \"currencyCode\": \"USD\", \"quoteId\": \"" + quoteId + "\"}", BuyCurrencyRequest.class);
+        SellCurrencyRequest number = objectMapper.readValue(
+                "{\"currencyCode\": \"USD\", \"amount\": 1.25E1, \"ignored\": {\"amount\": -1}}", SellCurrencyRequest.class);
+        //then
+        assertSame(USD, text.getCurrency());
+        assertEquals(1250, text.getAmount());
+        assertEquals(quoteId, text.getQuoteId());
+        assertEquals(1250, number.getAmount());
+        assertNull(number.getQuoteId());
+    }
+
+    @Test
+    void givenValidCodeOfUnsupportedCurrency_whenDecoded_thenItIsLeftToTheDomain() throws Exception {
+        //when
+        BuyCurrencyRequest request = objectMapper.readValue("{\"currencyCode\": \"JPY\", \"amount\": 100}", BuyCurrencyRequest.class);
+        //then
+        assertEquals(Currency.getInstance("JPY"), request.getCurrency());
+        assertEquals(100, request.getAmount());
+    }
+
+    @Test
+    void givenInvalidRequests_whenDecoded_thenThrowJsonMappingException() {
+        String[] invalid = {
+                "{\"currencyCode\": \"ABC\", \"amount\": \"1.00\"}",
+                "{\"currencyCode\": \"usd\", \"amount\": \"1.00\"}",
+                "{\"amount\": \"1.00\"}",
+                "{\"currencyCode\": \"USD\"}",
+                "{\"currencyCode\": \"USD\", \"amount\": \"0.00\"}",
+                "{\"currencyCode\": \"USD\", \"amount\": \"-1.00\"}",
+                "{\"currencyCode\": \"USD\", \"amount\": \"1.001\"}",
+                "{\"currencyCode\": \"USD\", \"amount\": \"1,00\"}",
+                "{\"currencyCode\": \"USD\", \"amount\": \"1e\"}",
+                "{\"currencyCode\": \"USD\", \"amount\": \"99999999999999999999\"}",
+                "{\"currencyCode\": \"USD\", \"amount\": \"1.00\", \"quoteId\": \"not-a-quote-id\"}",
+                "[\"USD\", \"1.00\"]"
+        };
+        for (String json : invalid) {
+            assertThrows(JsonMappingException.class, () -> objectMapper.readValue(json, BuyCurrencyRequest.class), json);
+        }
+    }
+
+    @Test
+    void givenBatchOfCommands_whenDecoded_thenAccountAndSideAreReadAndRequired() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        String batch = "{\"commands\": [{\"accountId\": \"" + accountId + "\", \"side\": \"SELL\", "
+                + "\"currencyCode\": \"USD\", \"amount\": \"1.25\"}]}";
+        String[] invalid = {
+                "{\"commands\": [{\"side\": \"SELL\", \"currencyCode\": \"USD\", \"amount\": \"1.25\"}]}",
+                "{\"commands\": [{\"accountId\": \"" + accountId + "\", \"currencyCode\": \"USD\", \"amount\": 1}]}",
+                "{\"commands\": [{\"accountId\": \"" + accountId + "\", \"side\": \"sell\", \"currencyCode\": \"USD\", "
+                        + "\"amount\": 1}]}",
+                "{\"commands\": [{\"accountId\": \"not-an-account-id\", \"side\": \"BUY\", \"currencyCode\": \"USD\", "
+                        + "\"amount\": 1}]}"
+        };
+
+        //when
+        CurrencyCommandRequest command = objectMapper.readValue(batch, BatchCommandRequest.class).getCommands().get(0);
+
+        //then
+        assertEquals(accountId, command.getAccountId());
+        assertSame(QuoteSide.SELL, command.getSide());
+        assertSame(USD, command.getCurrency());
+        assertEquals(125, command.getAmount());
+        assertNull(command.getQuoteId());
+        for (String json : invalid) {
+            assertThrows(JsonMappingException.class, () -> objectMapper.readValue(json, BatchCommandRequest.class), json);
+        }
+    }
+}
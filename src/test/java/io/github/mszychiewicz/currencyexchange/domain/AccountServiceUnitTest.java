@@ -1,13 +1,18 @@
 package io.github.mszychiewicz.currencyexchange.domain;
 
 import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.CurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.ExchangeCurrencyCommand;
 import io.github.mszychiewicz.currencyexchange.domain.command.OpenAccountCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.RequestQuoteCommand;
 import io.github.mszychiewicz.currencyexchange.domain.command.SellCurrencyCommand;
 import io.github.mszychiewicz.currencyexchange.domain.exception.AccountNotFoundException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.CurrencyNotSupportedException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.InsufficientFundsException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidAmountException;
 import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidNameException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidQuoteException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,15 +22,37 @@ import org.mockito.stubbing.Answer;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Currency;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 @ExtendWith(SpringExtension.class)
 class AccountServiceUnitTest {
@@ -33,23 +60,48 @@ class AccountServiceUnitTest {
     AccountService accountService;
     AccountRepository accountRepository;
     ExchangeRateProvider exchangeRateProvider;
+    QuoteRepository quoteRepository;
+    AccountJournal accountJournal;
+    CrossRateService crossRateService;
+    TradingMetrics tradingMetrics;
     @Captor
     private ArgumentCaptor<Account> arg;
 
-    private static final Currency PLN = Currency.getInstance("PLN");
     private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final SupportedCurrencies SUPPORTED_CURRENCIES = new SupportedCurrencies();
+    private static final SupportedCurrency SUPPORTED_USD = SUPPORTED_CURRENCIES.register(USD);
+    private static final SupportedCurrency SUPPORTED_EUR = SUPPORTED_CURRENCIES.register(EUR);
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2021-03-09T10:00:00Z"), ZoneOffset.UTC);
+    private static final Duration QUOTE_TTL = Duration.ofSeconds(30);
 
     @BeforeEach
     void setup() {
-        accountRepository = mock(AccountRepository.class);
-        exchangeRateProvider = mock(ExchangeRateProvider.class);
-        accountService = new AccountService(accountRepository, exchangeRateProvider);
+        // default methods such as saveAsync delegate to the stubbed abstract ones
+        accountRepository = mock(AccountRepository.class, withSettings().defaultAnswer(invocation -> invocation.getMethod().isDefault()
+                ? invocation.callRealMethod()
+                : RETURNS_DEFAULTS.answer(invocation)));
+        exchangeRateProvider = mock(ExchangeRateProvider.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+        quoteRepository = mock(QuoteRepository.class);
+        QuoteService quoteService = new QuoteService(quoteRepository, exchangeRateProvider, CLOCK, QUOTE_TTL);
+        AccountCommandExecutor callerRunsExecutor = new AccountCommandExecutor() {
+            @Override
+            public <T> CompletableFuture<T> execute(UUID accountId, Supplier<T> command) {
+                return CompletableFuture.supplyAsync(command, Runnable::run);
+            }
+        };
+        accountJournal = mock(AccountJournal.class);
+        when(accountJournal.append(any())).thenReturn(CompletableFuture.completedFuture(null));
+        crossRateService = new CrossRateService(exchangeRateProvider, SUPPORTED_CURRENCIES, CLOCK, Duration.ofHours(6));
+        tradingMetrics = mock(TradingMetrics.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+        accountService = new AccountService(accountRepository, exchangeRateProvider, quoteService, callerRunsExecutor, accountJournal,
+                crossRateService, tradingMetrics, SUPPORTED_CURRENCIES);
     }
 
     @Test
     void givenCommand_whenOpenAccount_thenSaveAccountAndReturnId() {
         //given
-        OpenAccountCommand command = new OpenAccountCommand("Jane", "Doe", BigDecimal.TEN);
+        OpenAccountCommand command = new OpenAccountCommand("Jane", "Doe", 1000);
 
         when(accountRepository.save(arg.capture())).thenAnswer((Answer<UUID>) invocation -> {
             Object[] args = invocation.getArguments();
@@ -67,14 +119,14 @@ class AccountServiceUnitTest {
         assertEquals(command.getLastName(), savedAccount.getLastName());
         assertEquals(
                 command.getOpeningBalance(),
-                savedAccount.getBalances().get(PLN)
+                savedAccount.getBalance(SupportedCurrencies.PLN)
         );
     }
 
     @Test
     void givenBlankFirstName_whenOpenAccount_thenThrowInvalidNameException() {
         //given
-        OpenAccountCommand command = new OpenAccountCommand("", "Doe", BigDecimal.TEN);
+        OpenAccountCommand command = new OpenAccountCommand("", "Doe", 1000);
 
         //when then
         assertThrows(InvalidNameException.class, () -> accountService.openAccount(command));
@@ -83,7 +135,7 @@ class AccountServiceUnitTest {
     @Test
     void givenBlankLastName_whenOpenAccount_thenThrowInvalidNameException() {
         //given
-        OpenAccountCommand command = new OpenAccountCommand("Jane", "", BigDecimal.TEN);
+        OpenAccountCommand command = new OpenAccountCommand("Jane", "", 1000);
 
         //when then
         assertThrows(InvalidNameException.class, () -> accountService.openAccount(command));
@@ -92,7 +144,7 @@ class AccountServiceUnitTest {
     @Test
     void givenNegativeOpeningBalance_whenOpenAccount_thenThrowInvalidAmountException() {
         //given
-        OpenAccountCommand command = new OpenAccountCommand("Jane", "Doe", BigDecimal.TEN.negate());
+        OpenAccountCommand command = new OpenAccountCommand("Jane", "Doe", -1000);
 
         //when then
         assertThrows(InvalidAmountException.class, () -> accountService.openAccount(command));
@@ -101,7 +153,7 @@ class AccountServiceUnitTest {
     @Test
     void givenExistingAccountId_whenGetById_thenReturnAccount() {
         //given
-        Account existingAccount = new Account("Jane", "Doe", BigDecimal.TEN);
+        Account existingAccount = new Account("Jane", "Doe", 1000);
         when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
 
         //when
@@ -124,10 +176,9 @@ class AccountServiceUnitTest {
     @Test
     void givenCommandAndExchangeRateAndAccountWithSufficientFunds_whenBuyUsd_thenSaveCorrectBalance() {
         //given
-        Account existingAccount = new Account("Jane", "Doe", BigDecimal.TEN);
-        BigDecimal existingPlnBalance = existingAccount.getBalances().get(PLN);
+        Account existingAccount = new Account("Jane", "Doe", 1000);
         when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
-        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, BigDecimal.ONE);
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
         BigDecimal askExchangeRate = new BigDecimal("3.9123");
         when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(askExchangeRate);
 
@@ -136,24 +187,228 @@ class AccountServiceUnitTest {
         //when
         accountService.buyCurrency(command);
 
-        //then
+        //then 1.00 USD costs 3.9123 PLN, rounded half up to 3.91 PLN
         verify(accountRepository).save(arg.capture());
         Account savedAccount = arg.getValue();
-        assertEquals(
-                savedAccount.getBalances().get(PLN),
-                existingPlnBalance.subtract(command.getAmount().multiply(askExchangeRate))
-        );
-        assertEquals(
-                savedAccount.getBalances().get(command.getCurrency()),
-                command.getAmount()
-        );
+        assertEquals(1000 - 391, savedAccount.getBalance(SupportedCurrencies.PLN));
+        assertEquals(command.getAmount(), savedAccount.getBalance(SUPPORTED_USD));
+    }
+
+    @Test
+    void givenCommandAndExchangeRate_whenBuyUsd_thenJournalPaidAmount() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        when(accountRepository.save(any())).thenReturn(existingAccount.getId());
+
+        //when
+        accountService.buyCurrency(command);
+
+        //then
+        verify(accountJournal).append(new CurrencyBoughtEvent(existingAccount.getId(), 1, USD, 100, 391));
+    }
+
+    @Test
+    void givenPendingExchangeRate_whenBuyCurrencyAsync_thenReturnBeforeRateArrivesAndSaveOnceItDoes() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+        CompletableFuture<BigDecimal> askExchangeRate = new CompletableFuture<>();
+        when(exchangeRateProvider.getAskExchangeRateAsync(USD)).thenReturn(askExchangeRate);
+        when(accountRepository.save(arg.capture())).thenReturn(existingAccount.getId());
+
+        //when
+        CompletableFuture<Void> bought = accountService.buyCurrencyAsync(command);
+
+        //then nothing is saved until the rate arrives
+        assertFalse(bought.isDone());
+        verify(accountRepository, never()).save(any());
+
+        //and when the rate arrives the purchase completes
+        askExchangeRate.complete(new BigDecimal("3.9123"));
+        bought.join();
+        assertEquals(1000 - 391, arg.getValue().getBalance(SupportedCurrencies.PLN));
+    }
+
+    @Test
+    void givenPendingAccountLookup_whenSellCurrencyAsync_thenRateIsFetchedMeanwhile() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        existingAccount.depositFunds(SUPPORTED_USD, 100);
+        CompletableFuture<Optional<Account>> lookup = new CompletableFuture<>();
+        when(accountRepository.findByIdAsync(existingAccount.getId().getMostSignificantBits(),
+                existingAccount.getId().getLeastSignificantBits())).thenReturn(lookup);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        doReturn(CompletableFuture.completedFuture(new BigDecimal("3.8421")))
+                .when(exchangeRateProvider).getBidExchangeRateAsync(USD);
+        when(accountRepository.save(arg.capture())).thenReturn(existingAccount.getId());
+        SellCurrencyCommand command = new SellCurrencyCommand(existingAccount.getId(), USD, 100);
+
+        //when
+        CompletableFuture<Void> sold = accountService.sellCurrencyAsync(command);
+
+        //then the rate is requested before the account is found
+        verify(exchangeRateProvider).getBidExchangeRateAsync(USD);
+        assertFalse(sold.isDone());
+
+        //and when the account is found the sale completes
+        lookup.complete(Optional.of(existingAccount.copy()));
+        sold.join();
+        assertEquals(1000 + 384, arg.getValue().getBalance(SupportedCurrencies.PLN));
+    }
+
+    @Test
+    void givenJournalNotDurableYet_whenBuyCurrencyAsyncTwice_thenSecondBuildsOnFirstAndEachIsSavedOnceDurable() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenAnswer(invocation -> Optional.of(existingAccount.copy()));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        CompletableFuture<Void> firstDurable = new CompletableFuture<>();
+        CompletableFuture<Void> secondDurable = new CompletableFuture<>();
+        when(accountJournal.append(any())).thenReturn(firstDurable, secondDurable);
+        when(accountRepository.save(arg.capture())).thenReturn(existingAccount.getId());
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+
+        //when
+        CompletableFuture<Void> first = accountService.buyCurrencyAsync(command);
+        CompletableFuture<Void> second = accountService.buyCurrencyAsync(command);
+
+        //then both purchases are journaled, the second on top of the first, and nothing is saved before it is durable
+        verify(accountJournal).append(new CurrencyBoughtEvent(existingAccount.getId(), 1, USD, 100, 391));
+        verify(accountJournal).append(new CurrencyBoughtEvent(existingAccount.getId(), 2, USD, 100, 391));
+        assertFalse(first.isDone());
+        verify(accountRepository, never()).save(any());
+
+        //and when the events become durable each state is saved in the order it was applied
+        firstDurable.complete(null);
+        first.join();
+        secondDurable.complete(null);
+        second.join();
+        List<Account> saved = arg.getAllValues();
+        assertEquals(2, saved.size());
+        assertEquals(0, saved.get(0).getVersion());
+        assertEquals(1000 - 391, saved.get(0).getBalance(SupportedCurrencies.PLN));
+        assertEquals(1, saved.get(1).getVersion());
+        assertEquals(1000 - 2 * 391, saved.get(1).getBalance(SupportedCurrencies.PLN));
+    }
+
+    @Test
+    void givenPendingStateRead_whenBuyCurrencyAsyncTwice_thenSecondBuildsOnFirstWithoutReadingAgain() {
+        //given the lookups of both purchases complete right away, reading the state the first one changes does not
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        long mostSignificantBits = existingAccount.getId().getMostSignificantBits();
+        long leastSignificantBits = existingAccount.getId().getLeastSignificantBits();
+        CompletableFuture<Optional<Account>> read = new CompletableFuture<>();
+        when(accountRepository.findByIdAsync(mostSignificantBits, leastSignificantBits))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(existingAccount.copy())), read,
+                        CompletableFuture.completedFuture(Optional.of(existingAccount.copy())));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        when(accountRepository.save(arg.capture())).thenReturn(existingAccount.getId());
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+
+        //when
+        CompletableFuture<Void> first = accountService.buyCurrencyAsync(command);
+        CompletableFuture<Void> second = accountService.buyCurrencyAsync(command);
+
+        //then nothing is applied before the state is read
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        verify(accountJournal, never()).append(any());
+
+        //and when it is read both purchases are applied in order, the second on top of the first
+        read.complete(Optional.of(existingAccount.copy()));
+        first.join();
+        second.join();
+        verify(accountJournal).append(new CurrencyBoughtEvent(existingAccount.getId(), 1, USD, 100, 391));
+        verify(accountJournal).append(new CurrencyBoughtEvent(existingAccount.getId(), 2, USD, 100, 391));
+        assertEquals(1000 - 2 * 391, arg.getValue().getBalance(SupportedCurrencies.PLN));
+        verify(accountRepository, times(3)).findByIdAsync(mostSignificantBits, leastSignificantBits);
+    }
+
+    @Test
+    void givenPendingStateRead_whenJournalRefusesFirstOfTwoQueuedBuys_thenSecondBuildsOnStateBeforeFirst() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        long mostSignificantBits = existingAccount.getId().getMostSignificantBits();
+        long leastSignificantBits = existingAccount.getId().getLeastSignificantBits();
+        CompletableFuture<Optional<Account>> read = new CompletableFuture<>();
+        when(accountRepository.findByIdAsync(mostSignificantBits, leastSignificantBits))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(existingAccount.copy())), read,
+                        CompletableFuture.completedFuture(Optional.of(existingAccount.copy())));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        when(accountJournal.append(any()))
+                .thenThrow(new IllegalStateException("Journal is closed"))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(accountRepository.save(arg.capture())).thenReturn(existingAccount.getId());
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+        CompletableFuture<Void> first = accountService.buyCurrencyAsync(command);
+        CompletableFuture<Void> second = accountService.buyCurrencyAsync(command);
+
+        //when
+        read.complete(Optional.of(existingAccount.copy()));
+
+        //then the refused purchase leaves no trace in the state the queued one builds on
+        assertThrows(CompletionException.class, first::join);
+        second.join();
+        verify(accountJournal, times(2)).append(new CurrencyBoughtEvent(existingAccount.getId(), 1, USD, 100, 391));
+        verify(accountRepository, times(1)).save(any());
+        assertEquals(1000 - 391, arg.getValue().getBalance(SupportedCurrencies.PLN));
+        assertEquals(100, arg.getValue().getBalance(SUPPORTED_USD));
+    }
+
+    @Test
+    void givenJournalFailure_whenBuyCurrency_thenThrowAndDoNotRecordTrade() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenAnswer(invocation -> Optional.of(existingAccount.copy()));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        when(accountJournal.append(any())).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("Could not force journal")));
+        when(accountRepository.save(any())).thenReturn(existingAccount.getId());
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+
+        //when then
+        assertThrows(IllegalStateException.class, () -> accountService.buyCurrency(command));
+        verify(accountJournal).append(new CurrencyBoughtEvent(existingAccount.getId(), 1, USD, 100, 391));
+        verify(accountRepository, never()).save(any());
+        verify(tradingMetrics, never()).recordTraded(any(), anyLong());
+    }
+
+    @Test
+    void givenFailedForce_whenBuyCurrencyWithQuote_thenThrowAndLeaveBalanceAndQuoteUnchanged() {
+        //given the force covering the first purchase fails, so the journal refuses every later append as it does on disk
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenAnswer(invocation -> Optional.of(existingAccount.copy()));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        IllegalStateException forceFailure = new IllegalStateException("Could not force journal");
+        when(accountJournal.append(any()))
+                .thenReturn(CompletableFuture.failedFuture(forceFailure))
+                .thenThrow(new IllegalStateException("Account journal could not be forced to disk, restart to replay it", forceFailure));
+        Quote quote = new Quote(UUID.randomUUID(), existingAccount.getId(), QuoteSide.BUY, USD, 100,
+                new BigDecimal("3.9000"), CLOCK.instant().plus(QUOTE_TTL));
+        when(quoteRepository.find(quote.getId())).thenReturn(Optional.of(quote));
+        when(quoteRepository.take(quote.getId())).thenReturn(Optional.of(quote));
+
+        //when then
+        assertThrows(IllegalStateException.class, () -> accountService.buyCurrency(
+                new BuyCurrencyCommand(existingAccount.getId(), USD, 100)));
+        assertThrows(IllegalStateException.class, () -> accountService.buyCurrency(
+                new BuyCurrencyCommand(existingAccount.getId(), USD, 100, quote.getId())));
+
+        //then neither purchase is saved, readers keep seeing the balance before them, and the quote is usable again
+        verify(accountRepository, never()).save(any());
+        verify(quoteRepository).restore(quote);
+        verify(tradingMetrics, never()).recordTraded(any(), anyLong());
     }
 
     @Test
     void givenNotSupportedCurrencyCommand_whenBuyCurrency_thenThrowCurrencyNotSupportedException() {
         //given
         Currency notSupportedCurrency = Currency.getInstance("JPY");
-        BuyCurrencyCommand command = new BuyCurrencyCommand(UUID.randomUUID(), notSupportedCurrency, BigDecimal.ONE);
+        BuyCurrencyCommand command = new BuyCurrencyCommand(UUID.randomUUID(), notSupportedCurrency, 100);
 
         //when then
         assertThrows(CurrencyNotSupportedException.class, () -> accountService.buyCurrency(command));
@@ -162,26 +417,59 @@ class AccountServiceUnitTest {
     @Test
     void givenAccountWithInsufficientFunds_whenBuyCurrency_thenThrowInsufficientFundsException() {
         //given
-        Account existingAccount = new Account("Jane", "Doe", BigDecimal.TEN);
+        Account existingAccount = new Account("Jane", "Doe", 1000);
         when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
         BigDecimal askExchangeRate = new BigDecimal("3.9123");
         when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(askExchangeRate);
-        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, BigDecimal.TEN);
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 1000);
 
         //when then
         assertThrows(InsufficientFundsException.class, () -> accountService.buyCurrency(command));
     }
 
+    @Test
+    void givenAccountWithInsufficientFunds_whenBuyCurrency_thenRecordBuyFailedForInsufficientFunds() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 1000);
+
+        //when
+        assertThrows(InsufficientFundsException.class, () -> accountService.buyCurrency(command));
+
+        //then the failure is recorded unwrapped and nothing was traded
+        verify(tradingMetrics).recordOperation(eq(TradingOperation.BUY), anyLong(), any(InsufficientFundsException.class));
+        verify(tradingMetrics, never()).recordTraded(any(), anyLong());
+    }
+
+    @Test
+    void givenCommandAndExchangeRate_whenBuyCurrency_thenRecordBothLegsAsTraded() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+
+        //when
+        accountService.buyCurrency(command);
+
+        //then
+        verify(tradingMetrics).recordOperation(eq(TradingOperation.BUY), anyLong(), isNull());
+        verify(tradingMetrics).recordTraded(SUPPORTED_USD, 100);
+        verify(tradingMetrics).recordTraded(SupportedCurrencies.PLN, 391);
+    }
+
     @Test
     void givenCommandAndExchangeRateAndAccountWithSufficientFunds_whenSellCurrency_thenSaveCorrectBalance() {
         //given
-        BigDecimal existingPlnBalance = BigDecimal.TEN;
-        BigDecimal existingCurrencyBalance = BigDecimal.TEN;
+        long existingPlnBalance = 1000;
+        long existingCurrencyBalance = 1000;
         Account existingAccount = new Account("Jane", "Doe", existingPlnBalance);
         when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
-        SellCurrencyCommand command = new SellCurrencyCommand(existingAccount.getId(), USD, BigDecimal.ONE);
-        existingAccount.depositFunds(command.getCurrency(), existingCurrencyBalance);
-        BigDecimal bidExchangeRate = new BigDecimal("3.9123");
+        SellCurrencyCommand command = new SellCurrencyCommand(existingAccount.getId(), USD, 100);
+        existingAccount.depositFunds(SUPPORTED_USD, existingCurrencyBalance);
+        BigDecimal bidExchangeRate = new BigDecimal("3.9173");
         when(exchangeRateProvider.getBidExchangeRate(command.getCurrency())).thenReturn(bidExchangeRate);
 
         when(accountRepository.save(arg.capture())).thenReturn(existingAccount.getId());
@@ -189,24 +477,18 @@ class AccountServiceUnitTest {
         //when
         accountService.sellCurrency(command);
 
-        //then
+        //then 1.00 USD is worth 3.9173 PLN, rounded half up to 3.92 PLN
         verify(accountRepository).save(arg.capture());
         Account savedAccount = arg.getValue();
-        assertEquals(
-                savedAccount.getBalances().get(PLN),
-                existingPlnBalance.add(command.getAmount().multiply(bidExchangeRate))
-        );
-        assertEquals(
-                savedAccount.getBalances().get(command.getCurrency()),
-                existingCurrencyBalance.subtract(command.getAmount())
-        );
+        assertEquals(existingPlnBalance + 392, savedAccount.getBalance(SupportedCurrencies.PLN));
+        assertEquals(existingCurrencyBalance - command.getAmount(), savedAccount.getBalance(SUPPORTED_USD));
     }
 
     @Test
     void givenNotSupportedCurrencyCommand_whenSellCurrency_thenThrowCurrencyNotSupportedException() {
         //given
         Currency notSupportedCurrency = Currency.getInstance("JPY");
-        SellCurrencyCommand command = new SellCurrencyCommand(UUID.randomUUID(), notSupportedCurrency, BigDecimal.ONE);
+        SellCurrencyCommand command = new SellCurrencyCommand(UUID.randomUUID(), notSupportedCurrency, 100);
 
         //when then
         assertThrows(CurrencyNotSupportedException.class, () -> accountService.sellCurrency(command));
@@ -215,11 +497,275 @@ class AccountServiceUnitTest {
     @Test
     void givenAccountWithInsufficientFunds_whenSellCurrency_thenThrowInsufficientFundsException() {
         //given
-        Account existingAccount = new Account("Jane", "Doe", BigDecimal.ONE);
+        Account existingAccount = new Account("Jane", "Doe", 100);
         when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
-        SellCurrencyCommand command = new SellCurrencyCommand(existingAccount.getId(), USD, BigDecimal.TEN);
+        SellCurrencyCommand command = new SellCurrencyCommand(existingAccount.getId(), USD, 1000);
 
         //when then
         assertThrows(InsufficientFundsException.class, () -> accountService.sellCurrency(command));
     }
+
+    @Test
+    void givenExchangeRates_whenExchangeUsdToEur_thenBothLegsAreSavedAtCrossRate() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        existingAccount.depositFunds(SUPPORTED_USD, 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9112"));
+        when(exchangeRateProvider.getBidExchangeRate(USD)).thenReturn(new BigDecimal("3.8421"));
+        when(exchangeRateProvider.getAskExchangeRate(EUR)).thenReturn(new BigDecimal("4.6110"));
+        when(exchangeRateProvider.getBidExchangeRate(EUR)).thenReturn(new BigDecimal("4.5198"));
+        when(accountRepository.save(arg.capture())).thenReturn(existingAccount.getId());
+
+        //when
+        accountService.exchangeCurrency(new ExchangeCurrencyCommand(existingAccount.getId(), USD, EUR, 100));
+
+        //then 1.00 USD is worth 3.8421 PLN, which buys 0.83324658 EUR, rounded half up to 0.83 EUR
+        Account savedAccount = arg.getValue();
+        assertEquals(1000, savedAccount.getBalance(SupportedCurrencies.PLN));
+        assertEquals(900, savedAccount.getBalance(SUPPORTED_USD));
+        assertEquals(83, savedAccount.getBalance(SUPPORTED_EUR));
+        verify(accountJournal).append(new CurrencyExchangedEvent(existingAccount.getId(), 1, USD, 100, EUR, 83));
+    }
+
+    @Test
+    void givenRefreshedRateTable_whenExchangeCurrency_thenItsCrossRateIsUsedWithoutFetchingRates() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        crossRateService.onExchangeRateTableRefreshed(new ExchangeRateTableRefreshedEvent(
+                new ExchangeRateTable(LocalDate.parse("2021-03-09"), Map.of(
+                        USD, new ExchangeRate(new BigDecimal("3.9112"), new BigDecimal("3.8421")),
+                        EUR, new ExchangeRate(new BigDecimal("4.6110"), new BigDecimal("4.5198")))),
+                CLOCK.instant(),
+                CLOCK.instant()));
+
+        //when
+        accountService.exchangeCurrency(new ExchangeCurrencyCommand(existingAccount.getId(), Currency.getInstance("PLN"), EUR, 1000));
+
+        //then 10.00 PLN buys 2.1687269 EUR at the cross rate rounded down to 8 places, rounded half up to 2.17 EUR
+        verify(exchangeRateProvider, never()).getAskExchangeRate(any());
+        assertEquals(0, existingAccount.getBalance(SupportedCurrencies.PLN));
+        assertEquals(217, existingAccount.getBalance(SUPPORTED_EUR));
+    }
+
+    @Test
+    void givenAccountWithInsufficientFunds_whenExchangeCurrency_thenThrowInsufficientFundsException() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        ExchangeCurrencyCommand command = new ExchangeCurrencyCommand(existingAccount.getId(), USD, EUR, 100);
+
+        //when then
+        assertThrows(InsufficientFundsException.class, () -> accountService.exchangeCurrency(command));
+        verify(accountRepository, never()).save(any());
+    }
+
+    @Test
+    void givenMixedCommands_whenExecuteCommands_thenRateIsFetchedOnceAndFailuresAreReportedPerCommand() {
+        //given
+        Account buyer = new Account("Jane", "Doe", 1000);
+        Account seller = new Account("John", "Doe", 1000);
+        when(accountRepository.findById(buyer.getId())).thenReturn(Optional.of(buyer));
+        when(accountRepository.findById(seller.getId())).thenReturn(Optional.of(seller));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+        when(exchangeRateProvider.getBidExchangeRate(USD)).thenReturn(new BigDecimal("3.9173"));
+        List<CurrencyCommand> commands = List.of(
+                new BuyCurrencyCommand(buyer.getId(), USD, 100),
+                new SellCurrencyCommand(seller.getId(), USD, 100),
+                new BuyCurrencyCommand(buyer.getId(), USD, 100),
+                new BuyCurrencyCommand(buyer.getId(), Currency.getInstance("JPY"), 100));
+
+        //when
+        List<CommandResult> results = accountService.executeCommands(commands);
+
+        //then both buys cost 3.91 PLN, the seller holds no USD and JPY is not supported
+        verify(exchangeRateProvider, times(1)).getAskExchangeRate(USD);
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).getError() instanceof InsufficientFundsException);
+        assertTrue(results.get(2).isSuccess());
+        assertTrue(results.get(3).getError() instanceof CurrencyNotSupportedException);
+        assertEquals(1000 - 2 * 391, buyer.getBalance(SupportedCurrencies.PLN));
+        assertEquals(200, buyer.getBalance(SUPPORTED_USD));
+        assertEquals(1000, seller.getBalance(SupportedCurrencies.PLN));
+    }
+
+    @Test
+    void givenCommandOfUnknownAccount_whenExecuteCommands_thenOnlyThatCommandFails() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        UUID nonexistentId = UUID.randomUUID();
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        when(accountRepository.findById(nonexistentId)).thenReturn(Optional.empty());
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9123"));
+
+        //when
+        List<CommandResult> results = accountService.executeCommands(List.of(
+                new BuyCurrencyCommand(nonexistentId, USD, 100),
+                new BuyCurrencyCommand(existingAccount.getId(), USD, 100)));
+
+        //then
+        assertTrue(results.get(0).getError() instanceof AccountNotFoundException);
+        assertTrue(results.get(1).isSuccess());
+        verify(accountJournal).append(new CurrencyBoughtEvent(existingAccount.getId(), 1, USD, 100, 391));
+    }
+
+    @Test
+    void givenAccount_whenRequestBuyQuote_thenSaveQuoteWithAskExchangeRate() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        BigDecimal askExchangeRate = new BigDecimal("3.9123");
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(askExchangeRate);
+        RequestQuoteCommand command = new RequestQuoteCommand(existingAccount.getId(), QuoteSide.BUY, USD, 100);
+
+        //when
+        Quote quote = accountService.requestQuote(command);
+
+        //then
+        verify(quoteRepository).restore(quote);
+        assertEquals(askExchangeRate, quote.getExchangeRate());
+        assertEquals(CLOCK.instant().plus(QUOTE_TTL), quote.getExpiresAt());
+    }
+
+    @Test
+    void givenPendingLookupOfMissingAccount_whenRequestQuoteAsync_thenRateIsFetchedMeanwhileAndNoQuoteIsSaved() {
+        //given
+        UUID nonexistentId = UUID.randomUUID();
+        CompletableFuture<Optional<Account>> lookup = new CompletableFuture<>();
+        when(accountRepository.findByIdAsync(nonexistentId.getMostSignificantBits(),
+                nonexistentId.getLeastSignificantBits())).thenReturn(lookup);
+        doReturn(CompletableFuture.completedFuture(new BigDecimal("3.9123")))
+                .when(exchangeRateProvider).getAskExchangeRateAsync(USD);
+        RequestQuoteCommand command = new RequestQuoteCommand(nonexistentId, QuoteSide.BUY, USD, 100);
+
+        //when
+        CompletableFuture<Quote> quote = accountService.requestQuoteAsync(command);
+
+        //then the rate is requested before the account lookup completes
+        verify(exchangeRateProvider).getAskExchangeRateAsync(USD);
+        assertFalse(quote.isDone());
+
+        //and when the account is missing no quote is saved
+        lookup.complete(Optional.empty());
+        CompletionException thrown = assertThrows(CompletionException.class, quote::join);
+        assertTrue(thrown.getCause() instanceof AccountNotFoundException);
+        verify(quoteRepository, never()).save(any());
+    }
+
+    @Test
+    void givenValidQuote_whenBuyCurrencyWithQuote_thenUseQuotedRateWithoutProviderCall() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        BigDecimal quotedExchangeRate = new BigDecimal("3.9000");
+        Quote quote = new Quote(UUID.randomUUID(), existingAccount.getId(), QuoteSide.BUY, USD, 100,
+                quotedExchangeRate, CLOCK.instant().plus(QUOTE_TTL));
+        when(quoteRepository.find(quote.getId())).thenReturn(Optional.of(quote));
+        when(quoteRepository.take(quote.getId())).thenReturn(Optional.of(quote));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100, quote.getId());
+
+        //when
+        accountService.buyCurrency(command);
+
+        //then
+        verify(accountRepository).save(arg.capture());
+        assertEquals(1000 - 390, arg.getValue().getBalance(SupportedCurrencies.PLN));
+        verify(quoteRepository).take(quote.getId());
+        verify(exchangeRateProvider, never()).getAskExchangeRateAsync(any());
+    }
+
+    @Test
+    void givenQuoteForMoreThanAccountHolds_whenBuyCurrencyWithQuote_thenThrowInsufficientFundsAndKeepQuote() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 100);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        Quote quote = new Quote(UUID.randomUUID(), existingAccount.getId(), QuoteSide.BUY, USD, 100,
+                new BigDecimal("3.9000"), CLOCK.instant().plus(QUOTE_TTL));
+        when(quoteRepository.find(quote.getId())).thenReturn(Optional.of(quote));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100, quote.getId());
+
+        //when then
+        assertThrows(InsufficientFundsException.class, () -> accountService.buyCurrency(command));
+        verify(quoteRepository, never()).take(any());
+        verify(accountJournal, never()).append(any());
+    }
+
+    @Test
+    void givenQuoteOfMissingAccount_whenBuyCurrencyWithQuote_thenThrowAccountNotFoundAndKeepQuote() {
+        //given
+        UUID missingAccountId = UUID.randomUUID();
+        Quote quote = new Quote(UUID.randomUUID(), missingAccountId, QuoteSide.BUY, USD, 100,
+                new BigDecimal("3.9000"), CLOCK.instant().plus(QUOTE_TTL));
+        when(quoteRepository.find(quote.getId())).thenReturn(Optional.of(quote));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(missingAccountId, USD, 100, quote.getId());
+
+        //when then
+        assertThrows(AccountNotFoundException.class, () -> accountService.buyCurrency(command));
+        verify(quoteRepository, never()).take(any());
+    }
+
+    @Test
+    void givenExpiredQuote_whenBuyCurrencyWithQuote_thenThrowInvalidQuoteException() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        Quote quote = new Quote(UUID.randomUUID(), existingAccount.getId(), QuoteSide.BUY, USD, 100,
+                new BigDecimal("3.9000"), CLOCK.instant());
+        when(quoteRepository.find(quote.getId())).thenReturn(Optional.of(quote));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100, quote.getId());
+
+        //when then
+        assertThrows(InvalidQuoteException.class, () -> accountService.buyCurrency(command));
+    }
+
+    @Test
+    void givenBuyQuote_whenSellCurrencyWithQuote_thenThrowInvalidQuoteException() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        existingAccount.depositFunds(SUPPORTED_USD, 100);
+        when(accountRepository.findById(existingAccount.getId())).thenReturn(Optional.of(existingAccount));
+        Quote quote = new Quote(UUID.randomUUID(), existingAccount.getId(), QuoteSide.BUY, USD, 100,
+                new BigDecimal("3.9000"), CLOCK.instant().plus(QUOTE_TTL));
+        when(quoteRepository.find(quote.getId())).thenReturn(Optional.of(quote));
+        SellCurrencyCommand command = new SellCurrencyCommand(existingAccount.getId(), USD, 100, quote.getId());
+
+        //when then
+        assertThrows(InvalidQuoteException.class, () -> accountService.sellCurrency(command));
+    }
+
+    @Test
+    void givenConcurrentUpdateOnFirstSave_whenBuyCurrency_thenRetryOnLatestSnapshot() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId()))
+                .thenReturn(Optional.of(existingAccount.copy()), Optional.of(existingAccount.copy()), Optional.of(existingAccount.copy()));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9000"));
+        when(accountRepository.save(any()))
+                .thenThrow(new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE))
+                .thenReturn(existingAccount.getId());
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+
+        //when
+        accountService.buyCurrency(command);
+
+        //then
+        verify(accountRepository, times(2)).save(arg.capture());
+        assertEquals(1000 - 390, arg.getValue().getBalance(SupportedCurrencies.PLN));
+    }
+
+    @Test
+    void givenPersistentConcurrentUpdates_whenBuyCurrency_thenThrowConcurrentAccountUpdateException() {
+        //given
+        Account existingAccount = new Account("Jane", "Doe", 1000);
+        when(accountRepository.findById(existingAccount.getId())).thenAnswer(invocation -> Optional.of(existingAccount.copy()));
+        when(exchangeRateProvider.getAskExchangeRate(USD)).thenReturn(new BigDecimal("3.9000"));
+        when(accountRepository.save(any()))
+                .thenThrow(new ConcurrentAccountUpdateException(AccountRepository.CONCURRENT_UPDATE_MESSAGE));
+        BuyCurrencyCommand command = new BuyCurrencyCommand(existingAccount.getId(), USD, 100);
+
+        //when then
+        assertThrows(ConcurrentAccountUpdateException.class, () -> accountService.buyCurrency(command));
+        verify(accountRepository, times(AccountService.MAX_UPDATE_ATTEMPTS)).save(any());
+    }
 }
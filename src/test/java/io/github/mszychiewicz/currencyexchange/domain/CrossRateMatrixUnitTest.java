@@ -0,0 +1,49 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.ExchangeRateUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CrossRateMatrixUnitTest {
+    private static final SupportedCurrencies SUPPORTED_CURRENCIES = new SupportedCurrencies();
+    private static final SupportedCurrency USD = SUPPORTED_CURRENCIES.register(Currency.getInstance("USD"));
+    private static final SupportedCurrency EUR = SUPPORTED_CURRENCIES.register(Currency.getInstance("EUR"));
+
+
+    @Test
+    void givenTableRates_whenCrossed_thenSoldCurrencyIsPricedAtBidAndBoughtAtAsk() {
+        //given
+        CrossRateMatrix matrix = CrossRateMatrix.of(SUPPORTED_CURRENCIES.values(), Map.of(
+                USD.getCurrency(), new ExchangeRate(new BigDecimal("3.9112"), new BigDecimal("3.8421")),
+                EUR.getCurrency(), new ExchangeRate(new BigDecimal("4.6110"), new BigDecimal("4.5198"))));
+
+        //when then selling USD yields its bid in PLN, buying USD costs its ask
+        assertEquals(384_210_000, matrix.getRate(USD, PLN));
+        assertEquals(25_567_600, matrix.getRate(PLN, USD));
+        //and USD for EUR crosses 3.8421 / 4.6110 rounded down
+        assertEquals(83_324_658, matrix.getRate(USD, EUR));
+        assertEquals(115_560_441, matrix.getRate(EUR, USD));
+        assertEquals(100_000_000, matrix.getRate(EUR, EUR));
+        //and 100.00 EUR buys 115.56 USD
+        assertEquals(11_556, matrix.exchange(10_000, EUR, USD));
+    }
+
+    @Test
+    void givenTableWithoutCurrency_whenExchangingIt_thenThrowExchangeRateUnavailableException() {
+        //given
+        CrossRateMatrix matrix = CrossRateMatrix.of(SUPPORTED_CURRENCIES.values(), Map.of(
+                USD.getCurrency(), new ExchangeRate(new BigDecimal("3.9112"), new BigDecimal("3.8421"))));
+
+        //when then
+        assertEquals(384_210_000, matrix.getRate(USD, PLN));
+        assertThrows(ExchangeRateUnavailableException.class, () -> matrix.getRate(USD, EUR));
+        assertThrows(ExchangeRateUnavailableException.class, () -> matrix.exchange(100, EUR, PLN));
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.ExchangeRateUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrossRateServiceUnitTest {
+    private static final SupportedCurrencies SUPPORTED_CURRENCIES = new SupportedCurrencies();
+    private static final SupportedCurrency USD = SUPPORTED_CURRENCIES.register(Currency.getInstance("USD"));
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2021-03-09T10:00:00Z"), ZoneOffset.UTC);
+    private static final Duration MAX_STALENESS = Duration.ofHours(6);
+
+    private ExchangeRateProvider exchangeRateProvider;
+    private CrossRateService crossRateService;
+
+    @BeforeEach
+    void setup() {
+        exchangeRateProvider = mock(ExchangeRateProvider.class);
+        when(exchangeRateProvider.getExchangeRatesAsync(any())).thenReturn(
+                CompletableFuture.failedFuture(new ExchangeRateUnavailableException(CrossRateMatrix.EXCHANGE_RATE_UNAVAILABLE_MESSAGE)));
+        crossRateService = new CrossRateService(exchangeRateProvider, SUPPORTED_CURRENCIES, CLOCK, MAX_STALENESS);
+    }
+
+    @Test
+    void givenTableDueWithinMaxStaleness_whenCurrentMatrix_thenItsRatesAreUsedWithoutFetching() {
+        //given
+        refreshTable("3.8421", CLOCK.instant().minus(MAX_STALENESS));
+
+        //when
+        CrossRateMatrix matrix = crossRateService.currentMatrix().join();
+
+        //then
+        assertEquals(384_210_000, matrix.getRate(USD, PLN));
+        verify(exchangeRateProvider, never()).getExchangeRatesAsync(any());
+    }
+
+    @Test
+    void givenTableStaleBeyondMaxStaleness_whenCurrentMatrix_thenRatesAreCrossedFromProvider() {
+        //given
+        refreshTable("3.8421", CLOCK.instant().minus(MAX_STALENESS).minusSeconds(1));
+        when(exchangeRateProvider.getExchangeRatesAsync(any())).thenReturn(CompletableFuture.completedFuture(Map.of(
+                USD.getCurrency(), new ExchangeRate(new BigDecimal("3.9500"), new BigDecimal("3.8800")))));
+
+        //when
+        CrossRateMatrix matrix = crossRateService.currentMatrix().join();
+
+        //then
+        assertEquals(388_000_000, matrix.getRate(USD, PLN));
+        verify(exchangeRateProvider).getExchangeRatesAsync(List.of(USD.getCurrency()));
+    }
+
+    @Test
+    void givenStaleTable_whenCurrentMatrixTwice_thenOneFetchedTableIsShared() {
+        //given
+        refreshTable("3.8421", CLOCK.instant().minus(Duration.ofDays(3)));
+        CompletableFuture<Map<Currency, ExchangeRate>> exchangeRates = new CompletableFuture<>();
+        when(exchangeRateProvider.getExchangeRatesAsync(any())).thenReturn(exchangeRates);
+
+        //when the second caller arrives while the table is being fetched
+        CompletableFuture<CrossRateMatrix> first = crossRateService.currentMatrix();
+        CompletableFuture<CrossRateMatrix> second = crossRateService.currentMatrix();
+        exchangeRates.complete(Map.of(USD.getCurrency(), new ExchangeRate(new BigDecimal("3.9500"), new BigDecimal("3.8800"))));
+
+        //then
+        assertSame(first.join(), second.join());
+        assertSame(first.join(), crossRateService.currentMatrix().join());
+        verify(exchangeRateProvider, times(1)).getExchangeRatesAsync(any());
+    }
+
+    @Test
+    void givenStaleTableAndProviderFailing_whenCurrentMatrix_thenStaleRatesAreNotUsed() {
+        //given
+        refreshTable("3.8421", CLOCK.instant().minus(Duration.ofDays(3)));
+
+        //when
+        CrossRateMatrix matrix = crossRateService.currentMatrix().join();
+
+        //then the failure is not kept, the next caller fetches again
+        assertThrows(ExchangeRateUnavailableException.class, () -> matrix.getRate(USD, PLN));
+        crossRateService.currentMatrix().join();
+        verify(exchangeRateProvider, times(2)).getExchangeRatesAsync(any());
+    }
+
+    private void refreshTable(String bid, Instant dueAt) {
+        crossRateService.onExchangeRateTableRefreshed(new ExchangeRateTableRefreshedEvent(
+                new ExchangeRateTable(LocalDate.parse("2021-03-09"), Map.of(
+                        USD.getCurrency(), new ExchangeRate(new BigDecimal("3.9112"), new BigDecimal(bid)))),
+                dueAt,
+                dueAt));
+    }
+}
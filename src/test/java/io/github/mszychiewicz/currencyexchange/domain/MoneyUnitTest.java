@@ -0,0 +1,52 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.InvalidAmountException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyUnitTest {
+    private static final SupportedCurrency USD = new SupportedCurrencies().register(Currency.getInstance("USD"));
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @Test
+    void givenAmountWithCurrencyScale_whenToMinorUnits_thenRoundTripsWithoutLoss() {
+        //when
+        long minorUnits = Money.toMinorUnits(new BigDecimal("12.3"), USD.getCurrency());
+
+        //then
+        assertEquals(1230, minorUnits);
+        assertEquals(new BigDecimal("12.30"), Money.toBigDecimal(minorUnits, USD.getCurrency()));
+        assertEquals(5, Money.toMinorUnits(new BigDecimal("5"), JPY));
+    }
+
+    @Test
+    void givenAmountFinerThanMinorUnit_whenToMinorUnits_thenThrowArithmeticException() {
+        //when then
+        assertThrows(ArithmeticException.class, () -> Money.toMinorUnits(new BigDecimal("0.005"), USD.getCurrency()));
+    }
+
+    @Test
+    void givenRate_whenExchange_thenResultIsRoundedWithTargetCurrencyPolicy() {
+        //when then 12.34 USD at 3.9112 is 48.264208 PLN
+        assertEquals(4826, Money.exchange(1234, USD, new BigDecimal("3.9112"), PLN));
+        //and 0.50 USD at 3.9110 is exactly 1.9555 PLN, a half rounded up
+        assertEquals(196, Money.exchange(50, USD, new BigDecimal("3.9110"), PLN));
+        //and rates with coarser scale than the target need no rounding
+        assertEquals(390, Money.exchange(100, USD, new BigDecimal("3.9"), PLN));
+    }
+
+    @Test
+    void givenAmountsPastLongRange_whenExchangedOrAdded_thenThrowInvalidAmountException() {
+        //when then
+        assertThrows(InvalidAmountException.class,
+                () -> Money.exchange(Long.MAX_VALUE / 2, USD, new BigDecimal("3.9112"), PLN));
+        assertThrows(InvalidAmountException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertEquals(Long.MAX_VALUE, Money.add(Long.MAX_VALUE - 1, 1));
+    }
+}
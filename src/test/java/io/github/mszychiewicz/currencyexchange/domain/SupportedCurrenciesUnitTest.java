@@ -0,0 +1,96 @@
+package io.github.mszychiewicz.currencyexchange.domain;
+
+import io.github.mszychiewicz.currencyexchange.domain.exception.CurrencyNotSupportedException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.List;
+
+import static io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies.PLN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SupportedCurrenciesUnitTest {
+    private final SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+
+    @Test
+    void givenTableCurrencies_whenRegistered_thenEachGetsTheNextOrdinalOnce() {
+        //given
+        Currency chf = Currency.getInstance("CHF");
+        Currency gbp = Currency.getInstance("GBP");
+        //when
+        supportedCurrencies.registerAll(List.of(gbp, chf));
+        SupportedCurrency registeredChf = supportedCurrencies.supported(chf);
+        SupportedCurrency registeredGbp = supportedCurrencies.supported(gbp);
+        //then
+        assertEquals(0, PLN.ordinal());
+        assertEquals(1, registeredChf.ordinal());
+        assertEquals(2, registeredGbp.ordinal());
+        assertSame(registeredChf, supportedCurrencies.register(chf));
+        assertSame(registeredGbp, supportedCurrencies.values().get(registeredGbp.ordinal()));
+        assertSame(registeredGbp, supportedCurrencies.tradable(gbp));
+    }
+
+    @Test
+    void givenUnregisteredOrBaseCurrency_whenTradable_thenThrowCurrencyNotSupportedException() {
+        assertThrows(CurrencyNotSupportedException.class, () -> supportedCurrencies.tradable(Currency.getInstance("XAU")));
+        assertThrows(CurrencyNotSupportedException.class, () -> supportedCurrencies.tradable(PLN.getCurrency()));
+        assertSame(PLN, supportedCurrencies.supported(PLN.getCurrency()));
+    }
+
+    @Test
+    void givenCodes_whenIsCurrencyCode_thenOnlyIsoCodesAreAccepted() {
+        assertTrue(SupportedCurrencies.isCurrencyCode("XAU"));
+        assertFalse(SupportedCurrencies.isCurrencyCode("usd"));
+        assertFalse(SupportedCurrencies.isCurrencyCode("ABC"));
+        assertFalse(SupportedCurrencies.isCurrencyCode("USDT"));
+        assertFalse(SupportedCurrencies.isCurrencyCode(""));
+    }
+
+    @Test
+    void givenCurrencyRegisteredWithRoundingMode_whenExchangedInto_thenItsOwnModeIsApplied() {
+        //given
+        Currency huf = Currency.getInstance("HUF");
+        SupportedCurrency registeredHuf = supportedCurrencies.register(huf, RoundingMode.DOWN);
+        //when 1.00 PLN at 84.995 HUF per PLN is 84.995 HUF
+        long exchanged = Money.exchange(100, PLN, new BigDecimal("84.995"), registeredHuf);
+        //then HUF rounds down while PLN keeps the default
+        assertEquals(8499, exchanged);
+        assertEquals(SupportedCurrencies.DEFAULT_ROUNDING_MODE, PLN.getRoundingMode());
+        assertSame(registeredHuf, supportedCurrencies.register(huf));
+        assertThrows(IllegalStateException.class, () -> supportedCurrencies.register(huf, RoundingMode.HALF_EVEN));
+    }
+
+    @Test
+    void givenRegistriesOfTwoContexts_whenRegisteringWithDifferentRoundingModes_thenEachKeepsItsOwn() {
+        //given
+        Currency jpy = Currency.getInstance("JPY");
+        SupportedCurrencies otherSupportedCurrencies = new SupportedCurrencies();
+        //when
+        SupportedCurrency roundedDown = supportedCurrencies.register(jpy, RoundingMode.DOWN);
+        SupportedCurrency roundedUp = otherSupportedCurrencies.register(jpy, RoundingMode.UP);
+        //then
+        assertEquals(RoundingMode.DOWN, supportedCurrencies.supported(jpy).getRoundingMode());
+        assertEquals(RoundingMode.UP, otherSupportedCurrencies.supported(jpy).getRoundingMode());
+        assertEquals(roundedDown.ordinal(), roundedUp.ordinal());
+        assertSame(PLN, otherSupportedCurrencies.supported(PLN.getCurrency()));
+    }
+
+    @Test
+    void givenAccountOpenedBeforeCurrencyWasRegistered_whenDepositingIt_thenBalanceIsKept() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        SupportedCurrency sek = supportedCurrencies.register(Currency.getInstance("SEK"));
+        //when
+        account.depositFunds(sek, 250);
+        //then
+        assertEquals(250, account.getBalance(sek));
+        assertEquals(250, account.copy().getBalance(sek));
+        assertEquals(1000, account.getBalance(PLN));
+    }
+}
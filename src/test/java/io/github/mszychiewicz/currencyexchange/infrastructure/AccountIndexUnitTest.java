@@ -0,0 +1,137 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountIndexUnitTest {
+
+    AccountIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new AccountIndex();
+    }
+
+    @Test
+    void givenIndexedIds_whenTableGrows_thenEverySlotIsFound() {
+        //given
+        List<UUID> ids = new ArrayList<>();
+        for (int slot = 0; slot < 100_000; slot++) {
+            UUID id = UUID.randomUUID();
+            assertTrue(index.putIfAbsent(id.getMostSignificantBits(), id.getLeastSignificantBits(), slot));
+            ids.add(id);
+        }
+        //when then
+        for (int slot = 0; slot < ids.size(); slot++) {
+            assertEquals(slot, index.get(ids.get(slot).getMostSignificantBits(), ids.get(slot).getLeastSignificantBits()));
+        }
+        assertEquals(-1, index.get(1, 2));
+        assertEquals(100_000, index.size());
+    }
+
+    @Test
+    void givenIdsIndexedInIndexAndMap_whenLookedUpByTheirHalves_thenSlotsAgree() {
+        //given
+        Map<UUID, Integer> map = new HashMap<>();
+        for (int slot = 0; slot < 10_000; slot++) {
+            UUID id = UUID.randomUUID();
+            index.putIfAbsent(id.getMostSignificantBits(), id.getLeastSignificantBits(), slot);
+            map.put(id, slot);
+        }
+        //when then
+        map.forEach((id, slot) -> assertEquals(slot, index.get(id.getMostSignificantBits(), id.getLeastSignificantBits())));
+        UUID missing = UUID.randomUUID();
+        assertEquals(-1, index.get(missing.getMostSignificantBits(), missing.getLeastSignificantBits()));
+    }
+
+    @Test
+    void givenIndexedId_whenPutAgain_thenFirstSlotIsKept() {
+        //given
+        index.putIfAbsent(1, 2, 7);
+        //when
+        boolean put = index.putIfAbsent(1, 2, 8);
+        //then
+        assertFalse(put);
+        assertEquals(7, index.get(1, 2));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void givenIndexedIds_whenIteratedAndCleared_thenSlotsAreVisitedOnceAndGone() {
+        //given
+        for (int slot = 0; slot < 2000; slot++) {
+            index.putIfAbsent(slot, -slot, slot);
+        }
+        //when
+        Set<Integer> slots = new HashSet<>();
+        PrimitiveIterator.OfInt iterator = index.slots();
+        while (iterator.hasNext()) {
+            assertTrue(slots.add(iterator.nextInt()));
+        }
+        index.clear();
+        //then
+        assertEquals(2000, slots.size());
+        assertEquals(-1, index.get(0, 0));
+        assertEquals(0, index.size());
+        assertFalse(index.slots().hasNext());
+    }
+
+    @Test
+    void givenConcurrentInserts_whenReadersLookUpPublishedIds_thenTheyAreAlwaysFound() throws Exception {
+        //given ids are published to readers only after they were indexed
+        int inserts = 200_000;
+        UUID[] ids = new UUID[inserts];
+        for (int i = 0; i < inserts; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        AtomicInteger published = new AtomicInteger(-1);
+        AtomicInteger nextId = new AtomicInteger();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+
+        //when
+        for (int t = 0; t < 2; t++) {
+            results.add(threads.submit(() -> {
+                for (int i = nextId.getAndIncrement(); i < inserts; i = nextId.getAndIncrement()) {
+                    index.putIfAbsent(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits(), i);
+                    published.accumulateAndGet(i, Math::max);
+                }
+            }));
+            results.add(threads.submit(() -> {
+                while (published.get() < inserts - 1) {
+                    int i = published.get();
+                    if (i < 0) {
+                        continue;
+                    }
+                    int slot = index.get(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits());
+                    assertEquals(i, slot);
+                }
+            }));
+        }
+
+        //then
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+        assertEquals(inserts, index.size());
+    }
+}
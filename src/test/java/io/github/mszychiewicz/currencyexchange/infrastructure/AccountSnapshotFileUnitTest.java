@@ -0,0 +1,57 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountSnapshotFileUnitTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenCurrencyRegisteredWhileWriting_whenRead_thenBalancesInItAreKept() throws Exception {
+        //given accounts whose first pass registers NOK and hands out an account already holding it
+        SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+        UUID accountId = UUID.randomUUID();
+        AtomicInteger passes = new AtomicInteger();
+        Iterable<Account> accounts = () -> {
+            passes.incrementAndGet();
+            SupportedCurrency nok = supportedCurrencies.register(Currency.getInstance("NOK"));
+            long[] balances = new long[supportedCurrencies.size()];
+            balances[SupportedCurrencies.PLN.ordinal()] = 1000;
+            balances[nok.ordinal()] = 250;
+            return List.of(new Account(accountId, "Jane", "Doe", balances, 3)).iterator();
+        };
+        Path snapshot = directory.resolve("accounts.snapshot");
+
+        //when
+        AccountSnapshotFile.write(snapshot, 7, supportedCurrencies, accounts);
+        SupportedCurrencies restoredCurrencies = new SupportedCurrencies();
+        List<Account> restored = new ArrayList<>();
+        long checkpoint = AccountSnapshotFile.read(snapshot, restoredCurrencies, restored::add);
+
+        //then the write saw NOK only after it started, so it was written again with it
+        assertEquals(2, passes.get());
+        assertEquals(7, checkpoint);
+        assertEquals(1, restored.size());
+        assertEquals(250, restored.get(0).getBalance(restoredCurrencies.supported(Currency.getInstance("NOK"))));
+        assertEquals(1000, restored.get(0).getBalance(SupportedCurrencies.PLN));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingExchangeRateProviderUnitTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final LocalDate TUESDAY = LocalDate.of(2021, 3, 9);
+    private static final LocalDate WEDNESDAY = TUESDAY.plusDays(1);
+
+    NpbExchangeRateProvider delegate;
+    MutableClock clock;
+
+    @BeforeEach
+    void setup() {
+        delegate = mock(NpbExchangeRateProvider.class);
+        clock = new MutableClock(warsawTime(TUESDAY, LocalTime.of(10, 0)));
+    }
+
+    @Test
+    void givenCachedTable_whenGetAskAndBidExchangeRates_thenTableIsFetchedOnce() {
+        //given
+        CachingExchangeRateProvider provider = provider();
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(completedRate("3.8340", "3.9112", TUESDAY));
+
+        //when
+        BigDecimal ask = provider.getAskExchangeRate(USD);
+        BigDecimal bid = provider.getBidExchangeRate(USD);
+
+        //then
+        assertEquals(new BigDecimal("3.9112"), ask);
+        assertEquals(new BigDecimal("3.8340"), bid);
+        verify(delegate, times(1)).fetchExchangeRateTableAsync();
+        assertEquals(new CacheStatistics(1, 1, 1), provider.getStatistics());
+    }
+
+    @Test
+    void givenFailingListener_whenTableIsFetched_thenWaitingCallersStillGetTheRate() throws Exception {
+        //given
+        List<Object> published = new ArrayList<>();
+        CachingExchangeRateProvider provider = provider(event -> {
+            published.add(event);
+            throw new IllegalStateException("Listener failed");
+        });
+        CompletableFuture<ExchangeRateTable> table = new CompletableFuture<>();
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(table);
+        CompletableFuture<BigDecimal> ask = provider.getAskExchangeRateAsync(USD);
+
+        //when
+        table.complete(rate("3.8340", "3.9112", TUESDAY));
+
+        //then
+        assertEquals(new BigDecimal("3.9112"), ask.get(1, TimeUnit.SECONDS));
+        assertEquals(1, published.size());
+        assertEquals(new BigDecimal("3.9112"), provider.getAskExchangeRate(USD));
+    }
+
+    @Test
+    void givenNextTablePublished_whenGetAskExchangeRate_thenStaleRateIsServedAndRefreshed() {
+        //given
+        CachingExchangeRateProvider provider = provider();
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(completedRate("3.8340", "3.9112", TUESDAY));
+        provider.getAskExchangeRate(USD);
+        clock.set(warsawTime(WEDNESDAY, LocalTime.of(9, 0)));
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(completedRate("3.8421", "3.9200", WEDNESDAY));
+
+        //when
+        BigDecimal staleAsk = provider.getAskExchangeRate(USD);
+        BigDecimal refreshedAsk = provider.getAskExchangeRate(USD);
+
+        //then
+        assertEquals(new BigDecimal("3.9112"), staleAsk);
+        assertEquals(new BigDecimal("3.9200"), refreshedAsk);
+        assertEquals(new CacheStatistics(2, 1, 2), provider.getStatistics());
+    }
+
+    @Test
+    void givenConcurrentMisses_whenGetAskExchangeRate_thenTableIsFetchedOnce() throws Exception {
+        //given
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CachingExchangeRateProvider provider = provider();
+        CompletableFuture<ExchangeRateTable> pendingTable = new CompletableFuture<>();
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(pendingTable);
+
+        //when
+        Future<?>[] results = new Future<?>[8];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = callers.submit(() -> provider.getAskExchangeRate(USD));
+        }
+        Thread.sleep(100);
+        pendingTable.complete(rate("3.8340", "3.9112", TUESDAY));
+
+        //then
+        for (Future<?> result : results) {
+            assertEquals(new BigDecimal("3.9112"), result.get(5, TimeUnit.SECONDS));
+        }
+        verify(delegate, times(1)).fetchExchangeRateTableAsync();
+        callers.shutdown();
+    }
+
+    @Test
+    void givenUpstreamDownWithinMaxStaleness_whenGetAskExchangeRate_thenLastGoodRateIsServed() {
+        //given
+        CachingExchangeRateProvider provider = provider();
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(completedRate("3.8340", "3.9112", TUESDAY));
+        provider.getAskExchangeRate(USD);
+        clock.set(warsawTime(WEDNESDAY, LocalTime.of(9, 0)));
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(unavailable());
+
+        //when
+        BigDecimal ask = provider.getAskExchangeRate(USD);
+
+        //then
+        assertEquals(new BigDecimal("3.9112"), ask);
+    }
+
+    @Test
+    void givenUpstreamDownBeyondMaxStaleness_whenGetAskExchangeRate_thenThrowServiceUnavailableStatus() {
+        //given
+        CachingExchangeRateProvider provider = provider();
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(completedRate("3.8340", "3.9112", TUESDAY));
+        provider.getAskExchangeRate(USD);
+        clock.set(warsawTime(WEDNESDAY, LocalTime.of(15, 0)));
+        when(delegate.fetchExchangeRateTableAsync()).thenReturn(unavailable());
+
+        //when
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class,
+                () -> provider.getAskExchangeRate(USD)
+        );
+
+        //then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
+
+    private CachingExchangeRateProvider provider() {
+        return provider(event -> {
+        });
+    }
+
+    private CachingExchangeRateProvider provider(ApplicationEventPublisher eventPublisher) {
+        return new CachingExchangeRateProvider(
+                delegate,
+                eventPublisher,
+                clock,
+                new NbpPublicationSchedule(LocalTime.of(8, 15)),
+                Duration.ofMinutes(5),
+                Duration.ofHours(6)
+        );
+    }
+
+    private static CompletableFuture<ExchangeRateTable> completedRate(String bid, String ask, LocalDate effectiveDate) {
+        return CompletableFuture.completedFuture(rate(bid, ask, effectiveDate));
+    }
+
+    private static CompletableFuture<ExchangeRateTable> unavailable() {
+        return CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    private static ExchangeRateTable rate(String bid, String ask, LocalDate effectiveDate) {
+        return new ExchangeRateTable(
+                effectiveDate,
+                Map.of(USD, new ExchangeRate(new BigDecimal(ask), new BigDecimal(bid)))
+        );
+    }
+
+    private static Instant warsawTime(LocalDate date, LocalTime time) {
+        return date.atTime(time).atZone(ZoneId.of("Europe/Warsaw")).toInstant();
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerUnitTest {
+    private static final Instant NOW = Instant.parse("2021-03-09T10:00:00Z");
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    AtomicInteger calls;
+    MutableClock clock;
+
+    @BeforeEach
+    void setup() {
+        calls = new AtomicInteger();
+        clock = new MutableClock(NOW);
+    }
+
+    @Test
+    void givenConsecutiveFailuresReachingThreshold_whenExecute_thenFailFastWithoutCallingUpstream() {
+        //given
+        CircuitBreaker circuitBreaker = new CircuitBreaker(clock, 2, OPEN_DURATION);
+        execute(circuitBreaker, false);
+        execute(circuitBreaker, false);
+
+        //when
+        CompletableFuture<Boolean> result = execute(circuitBreaker, true);
+
+        //then
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(2, calls.get());
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertTrue(exception.getCause() instanceof ResponseStatusException);
+    }
+
+    @Test
+    void givenOpenDurationElapsed_whenTrialCallSucceeds_thenCircuitCloses() {
+        //given
+        CircuitBreaker circuitBreaker = new CircuitBreaker(clock, 1, OPEN_DURATION);
+        execute(circuitBreaker, false);
+        clock.advance(OPEN_DURATION);
+
+        //when
+        CompletableFuture<Boolean> result = execute(circuitBreaker, true);
+
+        //then
+        assertEquals(true, result.join());
+        assertEquals(2, calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    private CompletableFuture<Boolean> execute(CircuitBreaker circuitBreaker, boolean success) {
+        return circuitBreaker.execute(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(success);
+        }, result -> !result);
+    }
+}
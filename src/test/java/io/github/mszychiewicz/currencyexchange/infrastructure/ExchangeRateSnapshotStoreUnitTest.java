@@ -0,0 +1,68 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTableRefreshedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ExchangeRateSnapshotStoreUnitTest {
+    private static final Currency USD = Currency.getInstance("USD");
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new ParameterNamesModule())
+            .build();
+
+    @Test
+    void givenWrittenSnapshot_whenWarmUp_thenProviderIsSeededWithSnapshotTable(@TempDir Path directory) {
+        //given
+        Path path = directory.resolve("exchange-rates.json");
+        ExchangeRateTable table = new ExchangeRateTable(
+                LocalDate.parse("2021-03-09"),
+                Map.of(USD, new ExchangeRate(new BigDecimal("3.9112"), new BigDecimal("3.8340")))
+        );
+        Instant fetchedAt = Instant.parse("2021-03-09T08:30:00Z");
+        new ExchangeRateSnapshotStore(objectMapper, mock(CachingExchangeRateProvider.class), path.toString())
+                .onExchangeRateTableRefreshed(new ExchangeRateTableRefreshedEvent(table, fetchedAt, fetchedAt));
+        CachingExchangeRateProvider exchangeRateProvider = mock(CachingExchangeRateProvider.class);
+
+        //when
+        new ExchangeRateSnapshotStore(objectMapper, exchangeRateProvider, path.toString()).warmUp();
+
+        //then
+        ArgumentCaptor<ExchangeRateTable> restoredTable = ArgumentCaptor.forClass(ExchangeRateTable.class);
+        verify(exchangeRateProvider).warmUp(restoredTable.capture(), eq(fetchedAt));
+        assertEquals(table, restoredTable.getValue());
+    }
+
+    @Test
+    void givenNoSnapshot_whenWarmUp_thenProviderIsNotSeeded(@TempDir Path directory) {
+        //given
+        CachingExchangeRateProvider exchangeRateProvider = mock(CachingExchangeRateProvider.class);
+        String path = directory.resolve("missing.json").toString();
+
+        //when
+        new ExchangeRateSnapshotStore(objectMapper, exchangeRateProvider, path).warmUp();
+
+        //then
+        verify(exchangeRateProvider, never()).warmUp(any(), any());
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InMemoryAccountRepositoryUnitTest {
+
+    InMemoryAccountRepository accountRepository;
+
+    @BeforeEach
+    void setup() {
+        accountRepository = new InMemoryAccountRepository(new SupportedCurrencies());
+    }
+
+    @Test
+    void givenTwoReadersOfSameSnapshot_whenBothSave_thenSecondSaveIsRejected() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        Account first = accountRepository.findById(account.getId()).orElseThrow();
+        Account second = accountRepository.findById(account.getId()).orElseThrow();
+
+        //when
+        accountRepository.save(first);
+
+        //then
+        assertThrows(ConcurrentAccountUpdateException.class, () -> accountRepository.save(second));
+        assertEquals(2, accountRepository.findById(account.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void givenSavedAccount_whenSaveSameNewAccountAgain_thenRejectIt() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+
+        //when then
+        assertThrows(ConcurrentAccountUpdateException.class, () -> accountRepository.save(account));
+        assertNotSame(accountRepository.findById(account.getId()).orElseThrow(), accountRepository.findById(account.getId()).orElseThrow());
+    }
+
+    @Test
+    void givenSavedAccount_whenSaveSameNewAccountAgain_thenNoSlotIsClaimed() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+
+        //when
+        assertThrows(ConcurrentAccountUpdateException.class, () -> accountRepository.save(account));
+        accountRepository.save(new Account("John", "Doe", 1000));
+
+        //then
+        assertEquals(2, accountRepository.claimedSlots());
+        assertEquals(2, accountRepository.size());
+    }
+}
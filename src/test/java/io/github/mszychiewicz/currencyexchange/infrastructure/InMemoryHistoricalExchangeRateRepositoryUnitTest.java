@@ -0,0 +1,82 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
+import io.github.mszychiewicz.currencyexchange.domain.HistoricalExchangeRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryHistoricalExchangeRateRepositoryUnitTest {
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final LocalDate FRIDAY = LocalDate.of(2021, 3, 5);
+    private static final LocalDate MONDAY = LocalDate.of(2021, 3, 8);
+    private static final LocalDate TUESDAY = LocalDate.of(2021, 3, 9);
+
+    InMemoryHistoricalExchangeRateRepository repository;
+
+    @BeforeEach
+    void setup() {
+        repository = new InMemoryHistoricalExchangeRateRepository();
+    }
+
+    @Test
+    void givenWeekendWithoutTable_whenFindOn_thenFridayRateIsReturned() {
+        //given
+        repository.saveAll(List.of(table(FRIDAY, "3.8803", "3.8035"), table(MONDAY, "3.8894", "3.8124")));
+
+        //when
+        Optional<HistoricalExchangeRate> rate = repository.findOn(USD, FRIDAY.plusDays(2));
+
+        //then
+        assertEquals(Optional.of(rate(FRIDAY, "3.8803", "3.8035")), rate);
+        assertEquals(Optional.empty(), repository.findOn(USD, FRIDAY.minusDays(1)));
+        assertEquals(Optional.empty(), repository.findOn(EUR, MONDAY));
+    }
+
+    @Test
+    void givenTablesSavedOutOfOrder_whenFindBetween_thenRatesWithinRangeAreReturnedInDateOrder() {
+        //given
+        repository.save(table(TUESDAY, "3.8731", "3.7965"));
+        repository.saveAll(List.of(table(MONDAY, "3.8894", "3.8124"), table(FRIDAY, "3.8803", "3.8035")));
+
+        //when
+        List<HistoricalExchangeRate> rates = repository.findBetween(USD, FRIDAY.plusDays(1), TUESDAY);
+
+        //then
+        assertEquals(List.of(rate(MONDAY, "3.8894", "3.8124"), rate(TUESDAY, "3.8731", "3.7965")), rates);
+        assertEquals(List.of(), repository.findBetween(USD, FRIDAY.plusDays(1), FRIDAY.plusDays(2)));
+    }
+
+    @Test
+    void givenRepublishedTable_whenSave_thenRateOfThatDayIsReplaced() {
+        //given
+        repository.saveAll(List.of(table(MONDAY, "3.8894", "3.8124"), table(TUESDAY, "3.8731", "3.7965")));
+
+        //when
+        repository.save(table(MONDAY, "3.9000", "3.8200"));
+
+        //then
+        assertEquals(
+                List.of(rate(MONDAY, "3.9000", "3.8200"), rate(TUESDAY, "3.8731", "3.7965")),
+                repository.findBetween(USD, MONDAY, TUESDAY)
+        );
+    }
+
+    private static ExchangeRateTable table(LocalDate effectiveDate, String ask, String bid) {
+        return new ExchangeRateTable(effectiveDate, Map.of(USD, new ExchangeRate(new BigDecimal(ask), new BigDecimal(bid))));
+    }
+
+    private static HistoricalExchangeRate rate(LocalDate effectiveDate, String ask, String bid) {
+        return new HistoricalExchangeRate(effectiveDate, new BigDecimal(ask), new BigDecimal(bid));
+    }
+}
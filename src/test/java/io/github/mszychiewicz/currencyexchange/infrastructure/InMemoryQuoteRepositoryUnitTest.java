@@ -0,0 +1,126 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Quote;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteSide;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryQuoteRepositoryUnitTest {
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Duration QUOTE_TTL = Duration.ofSeconds(30);
+    private static final int MAX_SIZE = 100;
+
+    MutableClock clock;
+    InMemoryQuoteRepository repository;
+
+    @BeforeEach
+    void setup() {
+        clock = new MutableClock(Instant.parse("2021-03-09T10:00:00Z"));
+        repository = new InMemoryQuoteRepository(clock, MAX_SIZE);
+    }
+
+    @Test
+    void givenSavedQuote_whenFind_thenQuoteIsKeptUntilTaken() {
+        //given
+        Quote quote = quote();
+        repository.save(quote);
+
+        //when
+        Optional<Quote> found = repository.find(quote.getId());
+
+        //then
+        assertEquals(Optional.of(quote), found);
+        assertEquals(Optional.of(quote), repository.take(quote.getId()));
+        assertEquals(Optional.empty(), repository.find(quote.getId()));
+        assertEquals(Optional.empty(), repository.take(quote.getId()));
+    }
+
+    @Test
+    void givenExpiredQuote_whenFind_thenNothingIsFound() {
+        //given
+        Quote quote = quote();
+        repository.save(quote);
+
+        //when
+        clock.advance(QUOTE_TTL);
+
+        //then
+        assertEquals(Optional.empty(), repository.find(quote.getId()));
+    }
+
+    @Test
+    void givenQuotesTakenRightAfterSave_whenManyAreSaved_thenExpiryQueueStaysBounded() {
+        //when every quote is taken long before it expires
+        for (int i = 0; i < 100 * MAX_SIZE; i++) {
+            Quote quote = quote();
+            repository.save(quote);
+            repository.take(quote.getId());
+        }
+
+        //then
+        assertTrue(repository.queuedQuotes() <= 2 * MAX_SIZE, () -> repository.queuedQuotes() + " quotes queued");
+        assertEquals(100 * MAX_SIZE, repository.getStatistics().getConsumed());
+    }
+
+    @Test
+    void givenTakenQuoteRestoredAfterNewerSaves_whenItExpires_thenItIsRemovedFirstAndNotCountedAsCreated() {
+        //given
+        Quote restored = quote();
+        repository.save(restored);
+        repository.take(restored.getId());
+        clock.advance(Duration.ofSeconds(10));
+        Quote newer = quote();
+        repository.save(newer);
+
+        //when
+        repository.restore(restored);
+        clock.advance(Duration.ofSeconds(20));
+        repository.save(quote());
+
+        //then
+        assertEquals(Optional.empty(), repository.take(restored.getId()));
+        assertEquals(Optional.of(newer), repository.find(newer.getId()));
+        QuoteStoreStatistics statistics = repository.getStatistics();
+        assertEquals(3, statistics.getCreated());
+        assertEquals(0, statistics.getConsumed());
+        assertEquals(1, statistics.getExpired());
+        assertEquals(2, statistics.getSize());
+    }
+
+    @Test
+    void givenRestoredQuoteOlderThanSavedOnes_whenStoreIsFull_thenRestoredQuoteIsEvictedFirst() {
+        //given
+        Quote restored = quote();
+        repository.save(restored);
+        repository.take(restored.getId());
+        clock.advance(Duration.ofSeconds(1));
+        for (int i = 0; i < MAX_SIZE; i++) {
+            repository.save(quote());
+        }
+        repository.restore(restored);
+
+        //when
+        Quote newest = quote();
+        repository.save(newest);
+
+        //then
+        assertEquals(Optional.empty(), repository.find(restored.getId()));
+        assertEquals(Optional.of(newest), repository.find(newest.getId()));
+        assertEquals(MAX_SIZE, repository.getStatistics().getSize());
+    }
+
+    private Quote quote() {
+        return new Quote(UUID.randomUUID(), UUID.randomUUID(), QuoteSide.BUY, USD, 100,
+                new BigDecimal("3.9000"), clock.instant().plus(QUOTE_TTL));
+    }
+}
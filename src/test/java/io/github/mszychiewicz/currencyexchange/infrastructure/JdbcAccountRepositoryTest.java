@@ -0,0 +1,172 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountJournal;
+import io.github.mszychiewicz.currencyexchange.domain.AccountRepository;
+import io.github.mszychiewicz.currencyexchange.domain.CurrencyBoughtEvent;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("jdbc")
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(properties = {
+        "clients.nbp.baseUrl=http://localhost:${wiremock.server.port}",
+        "clients.nbp.snapshot.path=",
+        "clients.nbp.history.backfillDays=0",
+        "spring.datasource.url=jdbc:h2:mem:accounts;DB_CLOSE_DELAY=-1"
+})
+class JdbcAccountRepositoryTest {
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountJournal accountJournal;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SupportedCurrencies supportedCurrencies;
+
+    private SupportedCurrency usd;
+
+    @BeforeEach
+    void setup() {
+        usd = supportedCurrencies.register(Currency.getInstance("USD"));
+    }
+
+    @Test
+    void givenJdbcProfile_whenContextStarts_thenJdbcRepositoryIsUsedWithoutJournal() {
+        assertTrue(accountRepository instanceof JdbcAccountRepository);
+        assertTrue(accountJournal instanceof NoOpAccountJournal);
+    }
+
+    @Test
+    void givenSavedAccount_whenFindById_thenBalancesAndVersionAreRead() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        Account saved = accountRepository.findById(account.getId()).orElseThrow();
+        accountRepository.save(new Account(account.getId(), "Jane", "Doe", balances(609, 100), saved.getVersion()));
+        //when
+        Account found = accountRepository.findById(account.getId()).orElseThrow();
+        //then
+        assertEquals("Jane", found.getFirstName());
+        assertEquals(609, found.getBalance(SupportedCurrencies.PLN));
+        assertEquals(100, found.getBalance(usd));
+        assertEquals(2, found.getVersion());
+    }
+
+    @Test
+    void givenReadAccount_whenTradeIsSaved_thenOnlyChangedBalancesAreWritten() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        Account read = accountRepository.findById(account.getId()).orElseThrow();
+        //when
+        accountRepository.save(new CurrencyBoughtEvent(account.getId(), 2, usd.getCurrency(), 100, 391).replay(read, supportedCurrencies));
+        //then no rows are written for the currencies the account does not hold
+        assertEquals(List.of("PLN", "USD"), jdbcTemplate.queryForList(
+                "SELECT currency FROM account_balance WHERE account_id = ? ORDER BY currency", String.class, account.getId()));
+        assertEquals(609, accountRepository.findById(account.getId()).orElseThrow().getBalance(SupportedCurrencies.PLN));
+    }
+
+    @Test
+    void givenTwoReadersOfSameSnapshot_whenBothSave_thenSecondSaveIsRejected() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        Account first = accountRepository.findById(account.getId()).orElseThrow();
+        Account second = accountRepository.findById(account.getId()).orElseThrow();
+        //when
+        accountRepository.save(first);
+        //then
+        assertThrows(ConcurrentAccountUpdateException.class, () -> accountRepository.save(second));
+        assertEquals(2, accountRepository.findById(account.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void givenConcurrentSavesOfSameSnapshot_whenBatchedTogether_thenExactlyOneWins() throws Exception {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        List<Account> copies = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            copies.add(accountRepository.findById(account.getId()).orElseThrow());
+        }
+        ExecutorService threads = Executors.newFixedThreadPool(copies.size());
+        List<CompletableFuture<Boolean>> saves = new ArrayList<>();
+        //when
+        for (Account copy : copies) {
+            saves.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    accountRepository.save(copy);
+                    return true;
+                } catch (ConcurrentAccountUpdateException e) {
+                    return false;
+                }
+            }, threads));
+        }
+        //then
+        long won = 0;
+        for (CompletableFuture<Boolean> save : saves) {
+            won += save.get() ? 1 : 0;
+        }
+        threads.shutdown();
+        assertEquals(1, won);
+        assertEquals(2, accountRepository.findById(account.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void givenStoredAccount_whenSavedAsNewAgainWithOtherNewAccounts_thenOnlyDuplicateIsRejected() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        Account other = new Account("John", "Doe", 500);
+        int size = accountRepository.size();
+        //when the duplicate is queued within the batch window of another new account
+        CompletableFuture<UUID> duplicate = accountRepository.saveAsync(account);
+        CompletableFuture<UUID> saved = accountRepository.saveAsync(other);
+        //then
+        assertEquals(other.getId(), saved.join());
+        CompletionException rejected = assertThrows(CompletionException.class, duplicate::join);
+        assertTrue(rejected.getCause() instanceof ConcurrentAccountUpdateException);
+        assertEquals(500, accountRepository.findById(other.getId()).orElseThrow().getBalance(SupportedCurrencies.PLN));
+        assertEquals(size + 1, accountRepository.size());
+    }
+
+    @Test
+    void givenUnknownId_whenFindById_thenReturnEmpty() {
+        assertTrue(accountRepository.findById(UUID.randomUUID()).isEmpty());
+    }
+
+    private long[] balances(long pln, long usdBalance) {
+        long[] balances = new long[supportedCurrencies.size()];
+        balances[SupportedCurrencies.PLN.ordinal()] = pln;
+        balances[usd.ordinal()] = usdBalance;
+        return balances;
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountOpenedEvent;
+import io.github.mszychiewicz.currencyexchange.domain.CurrencyBoughtEvent;
+import io.github.mszychiewicz.currencyexchange.domain.CurrencyExchangedEvent;
+import io.github.mszychiewicz.currencyexchange.domain.CurrencySoldEvent;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedAccountJournalUnitTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final SupportedCurrencies SUPPORTED_CURRENCIES = new SupportedCurrencies();
+    private static final SupportedCurrency SUPPORTED_USD = SUPPORTED_CURRENCIES.register(USD);
+    private static final SupportedCurrency SUPPORTED_EUR = SUPPORTED_CURRENCIES.register(EUR);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenJournaledEvents_whenReopen_thenRepositoryIsRebuilt() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        MappedAccountJournal journal = open(new InMemoryAccountRepository(SUPPORTED_CURRENCIES), DataSize.ofMegabytes(1));
+        CompletableFuture.allOf(
+                journal.append(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 10_000)),
+                journal.append(new CurrencyBoughtEvent(accountId, 2, USD, 1_000, 3_912)),
+                journal.append(new CurrencySoldEvent(accountId, 3, USD, 400, 1_520))
+        ).join();
+        journal.close();
+        //when
+        InMemoryAccountRepository repository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        open(repository, DataSize.ofMegabytes(1)).close();
+        //then
+        Account account = repository.findById(accountId).orElseThrow();
+        assertEquals("Jane", account.getFirstName());
+        assertEquals(10_000 - 3_912 + 1_520, account.getBalance(SupportedCurrencies.PLN));
+        assertEquals(600, account.getBalance(SUPPORTED_USD));
+        assertEquals(3, account.getVersion());
+    }
+
+    @Test
+    void givenJournaledCrossExchange_whenReopen_thenBothLegsAreReplayed() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        MappedAccountJournal journal = open(new InMemoryAccountRepository(SUPPORTED_CURRENCIES), DataSize.ofMegabytes(1));
+        CompletableFuture.allOf(
+                journal.append(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 10_000)),
+                journal.append(new CurrencyBoughtEvent(accountId, 2, USD, 1_000, 3_912)),
+                journal.append(new CurrencyExchangedEvent(accountId, 3, USD, 400, EUR, 333))
+        ).join();
+        journal.close();
+        //when
+        InMemoryAccountRepository repository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        open(repository, DataSize.ofMegabytes(1)).close();
+        //then
+        Account account = repository.findById(accountId).orElseThrow();
+        assertEquals(10_000 - 3_912, account.getBalance(SupportedCurrencies.PLN));
+        assertEquals(600, account.getBalance(SUPPORTED_USD));
+        assertEquals(333, account.getBalance(SUPPORTED_EUR));
+        assertEquals(3, account.getVersion());
+    }
+
+    @Test
+    void givenMoreEventsThanFitOneSegment_whenReopen_thenAllSegmentsAreReplayed() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        MappedAccountJournal journal = open(new InMemoryAccountRepository(SUPPORTED_CURRENCIES), DataSize.ofBytes(256));
+        List<CompletableFuture<Void>> appends = new ArrayList<>();
+        appends.add(journal.append(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 1_000_000)));
+        for (int i = 0; i < 50; i++) {
+            appends.add(journal.append(new CurrencyBoughtEvent(accountId, i + 2, USD, 100, 400)));
+        }
+        CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])).join();
+        journal.close();
+        //when
+        InMemoryAccountRepository repository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        open(repository, DataSize.ofBytes(256)).close();
+        //then
+        assertTrue(fileNames().size() > 1);
+        Account account = repository.findById(accountId).orElseThrow();
+        assertEquals(1_000_000 - 50 * 400, account.getBalance(SupportedCurrencies.PLN));
+        assertEquals(50 * 100, account.getBalance(SUPPORTED_USD));
+    }
+
+    @Test
+    void givenTornRecordAtTail_whenReopen_thenItIsDiscardedAndAppendsContinue() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        MappedAccountJournal journal = open(new InMemoryAccountRepository(SUPPORTED_CURRENCIES), DataSize.ofKilobytes(4));
+        journal.append(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 10_000)).join();
+        journal.append(new CurrencyBoughtEvent(accountId, 2, USD, 1_000, 3_912)).join();
+        journal.close();
+        Path segment = directory.resolve("0000000000000000.journal");
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // corrupt the last byte of the second record's checksum
+            int firstRecord = 4 + AccountEventCodec.encode(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 10_000)).length + 4;
+            int secondRecord = 4 + AccountEventCodec.encode(new CurrencyBoughtEvent(accountId, 2, USD, 1_000, 3_912)).length + 4;
+            file.seek(firstRecord + secondRecord - 1);
+            int checksumByte = file.read();
+            file.seek(firstRecord + secondRecord - 1);
+            file.write(checksumByte ^ 0xFF);
+        }
+        //when
+        InMemoryAccountRepository repository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        MappedAccountJournal reopened = open(repository, DataSize.ofKilobytes(4));
+        reopened.append(new CurrencySoldEvent(accountId, 2, USD, 0, 0)).join();
+        reopened.close();
+        InMemoryAccountRepository replayed = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        open(replayed, DataSize.ofKilobytes(4)).close();
+        //then
+        assertEquals(10_000, repository.findById(accountId).orElseThrow().getBalance(SupportedCurrencies.PLN));
+        assertEquals(2, replayed.findById(accountId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void givenSnapshotAndLaterEvents_whenReopen_thenSnapshotIsRestoredAndOnlyLaterEventsApplied() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        InMemoryAccountRepository repository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        MappedAccountJournal journal = open(repository, DataSize.ofKilobytes(4));
+        repository.save(new Account(accountId, "Jane", "Doe", 10_000));
+        journal.append(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 10_000)).join();
+        repository.save(new Account(accountId, "Jane", "Doe", balances(6_088, 1_000), 1));
+        journal.append(new CurrencyBoughtEvent(accountId, 2, USD, 1_000, 3_912)).join();
+        journal.snapshot();
+        repository.save(new Account(accountId, "Jane", "Doe", balances(7_608, 600), 2));
+        journal.append(new CurrencySoldEvent(accountId, 3, USD, 400, 1_520)).join();
+        journal.close();
+        //when
+        InMemoryAccountRepository restored = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        open(restored, DataSize.ofKilobytes(4)).close();
+        //then
+        assertEquals(List.of("0000000000000000.journal", "0000000000000001.journal", "0000000000000001.snapshot"),
+                fileNames());
+        Account account = restored.findById(accountId).orElseThrow();
+        assertEquals(7_608, account.getBalance(SupportedCurrencies.PLN));
+        assertEquals(600, account.getBalance(SUPPORTED_USD));
+        assertEquals(3, account.getVersion());
+    }
+
+    @Test
+    void givenMoreSnapshotsThanRetained_whenSnapshot_thenObsoleteSnapshotsAndSegmentsAreDeleted() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        InMemoryAccountRepository repository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        MappedAccountJournal journal = open(repository, DataSize.ofKilobytes(4));
+        repository.save(new Account(accountId, "Jane", "Doe", 10_000));
+        journal.append(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 10_000)).join();
+        //when
+        journal.snapshot();
+        journal.snapshot();
+        journal.snapshot();
+        journal.close();
+        //then
+        assertEquals(List.of("0000000000000002.journal", "0000000000000002.snapshot",
+                "0000000000000003.journal", "0000000000000003.snapshot"), fileNames());
+    }
+
+    @Test
+    void givenCorruptNewestSnapshot_whenReopen_thenPreviousSnapshotIsRestored() throws Exception {
+        //given
+        UUID accountId = UUID.randomUUID();
+        InMemoryAccountRepository repository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        MappedAccountJournal journal = open(repository, DataSize.ofKilobytes(4));
+        repository.save(new Account(accountId, "Jane", "Doe", 10_000));
+        journal.append(new AccountOpenedEvent(accountId, 1, "Jane", "Doe", 10_000)).join();
+        journal.snapshot();
+        repository.save(new Account(accountId, "Jane", "Doe", balances(6_088, 1_000), 1));
+        journal.append(new CurrencyBoughtEvent(accountId, 2, USD, 1_000, 3_912)).join();
+        journal.snapshot();
+        journal.close();
+        Path newest = directory.resolve("0000000000000002.snapshot");
+        try (RandomAccessFile file = new RandomAccessFile(newest.toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            int middleByte = file.read();
+            file.seek(file.length() / 2);
+            file.write(middleByte ^ 0xFF);
+        }
+        //when
+        InMemoryAccountRepository restored = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        open(restored, DataSize.ofKilobytes(4)).close();
+        //then
+        Account account = restored.findById(accountId).orElseThrow();
+        assertEquals(6_088, account.getBalance(SupportedCurrencies.PLN));
+        assertEquals(2, account.getVersion());
+    }
+
+    private MappedAccountJournal open(InMemoryAccountRepository repository, DataSize segmentSize) throws Exception {
+        MappedAccountJournal journal = new MappedAccountJournal(
+                repository, SUPPORTED_CURRENCIES, directory.toString(), segmentSize, Duration.ofMillis(1), Duration.ZERO);
+        journal.open();
+        return journal;
+    }
+
+    private List<String> fileNames() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long[] balances(long pln, long usd) {
+        long[] balances = new long[SUPPORTED_CURRENCIES.size()];
+        balances[SupportedCurrencies.PLN.ordinal()] = pln;
+        balances[SUPPORTED_USD.ordinal()] = usd;
+        return balances;
+    }
+}
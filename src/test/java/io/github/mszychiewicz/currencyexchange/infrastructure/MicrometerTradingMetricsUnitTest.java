@@ -0,0 +1,108 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import io.github.mszychiewicz.currencyexchange.domain.TradingOperation;
+import io.github.mszychiewicz.currencyexchange.domain.exception.CurrencyNotSupportedException;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InsufficientFundsException;
+import io.github.mszychiewicz.currencyexchange.infrastructure.NbpClientMetrics.RateFetch;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicrometerTradingMetricsUnitTest {
+    private static final SupportedCurrency USD = new SupportedCurrencies().register(Currency.getInstance("USD"));
+
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    MicrometerTradingMetrics tradingMetrics = new MicrometerTradingMetrics(registry);
+
+    @Test
+    void givenOperationLatencies_whenScraped_thenBucketsAreCumulativeAndSumIsInSeconds() {
+        //given
+        tradingMetrics.recordOperation(TradingOperation.BUY, TimeUnit.MICROSECONDS.toNanos(300), null);
+        tradingMetrics.recordOperation(TradingOperation.BUY, TimeUnit.MILLISECONDS.toNanos(5), null);
+        tradingMetrics.recordOperation(TradingOperation.BUY, TimeUnit.SECONDS.toNanos(20), null);
+
+        //when
+        List<String> lines = scrape();
+
+        //then a latency equal to a bound falls into its bucket, one above the last bound only into +Inf
+        assertContains(lines, "currency_exchange_operation_seconds_bucket{operation=\"buy\",le=\"2.5E-4\",} 0.0");
+        assertContains(lines, "currency_exchange_operation_seconds_bucket{operation=\"buy\",le=\"5.0E-4\",} 1.0");
+        assertContains(lines, "currency_exchange_operation_seconds_bucket{operation=\"buy\",le=\"0.005\",} 2.0");
+        assertContains(lines, "currency_exchange_operation_seconds_bucket{operation=\"buy\",le=\"10.0\",} 2.0");
+        assertContains(lines, "currency_exchange_operation_seconds_bucket{operation=\"buy\",le=\"+Inf\",} 3.0");
+        assertContains(lines, "currency_exchange_operation_seconds_count{operation=\"buy\",} 3.0");
+        assertContains(lines, "currency_exchange_operation_seconds_sum{operation=\"buy\",} 20.0053");
+        assertContains(lines, "currency_exchange_operation_seconds_count{operation=\"sell\",} 0.0");
+    }
+
+    @Test
+    void givenFailedOperations_whenScraped_thenRejectionsAreCountedByReason() {
+        //given
+        tradingMetrics.recordOperation(TradingOperation.SELL, 1, new InsufficientFundsException("Insufficient funds."));
+        tradingMetrics.recordOperation(TradingOperation.SELL, 1, new InsufficientFundsException("Insufficient funds."));
+        tradingMetrics.recordOperation(TradingOperation.BUY, 1, new CurrencyNotSupportedException("Currency not supported."));
+        tradingMetrics.recordOperation(TradingOperation.BUY, 1, new IllegalStateException());
+
+        //when
+        List<String> lines = scrape();
+
+        //then
+        assertContains(lines, "currency_exchange_operation_failures_total{operation=\"sell\",reason=\"insufficient_funds\",} 2.0");
+        assertContains(lines, "currency_exchange_operation_failures_total{operation=\"buy\",reason=\"currency_not_supported\",} 1.0");
+        assertContains(lines, "currency_exchange_operation_failures_total{operation=\"buy\",reason=\"other\",} 1.0");
+        assertContains(lines, "currency_exchange_operation_failures_total{operation=\"buy\",reason=\"insufficient_funds\",} 0.0");
+    }
+
+    @Test
+    void givenTradedAmountsAndRateFetches_whenScraped_thenAmountsAreInMajorUnitsAndFetchesAreCounted() {
+        //given
+        tradingMetrics.recordTraded(USD, 150);
+        tradingMetrics.recordTraded(USD, 5);
+        tradingMetrics.recordTraded(SupportedCurrencies.PLN, 391);
+        tradingMetrics.recordRateFetch(RateFetch.TABLE, TimeUnit.MILLISECONDS.toNanos(40), null);
+        tradingMetrics.recordRateFetch(RateFetch.TABLE, TimeUnit.MILLISECONDS.toNanos(40), new IllegalStateException());
+
+        //when
+        List<String> lines = scrape();
+
+        //then
+        assertContains(lines, "currency_exchange_traded_amount_total{currency=\"USD\",} 1.55");
+        assertContains(lines, "currency_exchange_traded_total{currency=\"USD\",} 2.0");
+        assertContains(lines, "currency_exchange_traded_amount_total{currency=\"PLN\",} 3.91");
+        assertContains(lines, "currency_exchange_nbp_request_seconds_count{endpoint=\"table\",} 2.0");
+        assertContains(lines, "currency_exchange_nbp_request_failures_total{endpoint=\"table\",} 1.0");
+        assertContains(lines, "currency_exchange_nbp_request_failures_total{endpoint=\"rate\",} 0.0");
+    }
+
+    @Test
+    void givenCurrenciesSharingAnOrdinalInDifferentRegistries_whenTraded_thenVolumesAreKeptApart() {
+        //given
+        SupportedCurrency eur = new SupportedCurrencies().register(Currency.getInstance("EUR"));
+        SupportedCurrency jpy = new SupportedCurrencies().register(Currency.getInstance("JPY"));
+
+        //when
+        tradingMetrics.recordTraded(eur, 250);
+        tradingMetrics.recordTraded(jpy, 250);
+
+        //then
+        assertContains(scrape(), "currency_exchange_traded_amount_total{currency=\"EUR\",} 2.5");
+        assertContains(scrape(), "currency_exchange_traded_amount_total{currency=\"JPY\",} 250.0");
+    }
+
+    private List<String> scrape() {
+        return Arrays.asList(registry.scrape().split("\n"));
+    }
+
+    private static void assertContains(List<String> lines, String line) {
+        assertTrue(lines.contains(line), () -> "missing " + line + " in\n" + String.join("\n", lines));
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(properties = {
+        "clients.nbp.baseUrl=http://localhost:${wiremock.server.port}",
+        "clients.nbp.snapshot.path=",
+        "accounts.journal.path=",
+        "clients.nbp.history.backfillDays=0"
+})
+class NbpExchangeRateProviderLatencyTest {
+    private static final int CONCURRENT_REQUESTS = 6;
+    private static final int WORKER_THREADS = 2;
+    private static final int UPSTREAM_DELAY_MILLIS = 300;
+
+    @Autowired
+    private NpbExchangeRateProvider exchangeRateProvider;
+
+    @Test
+    void givenSlowUpstream_whenFetchingConcurrently_thenAsyncFetchIsNotBoundByWorkerThreads() throws Exception {
+        //given
+        Currency USD = Currency.getInstance("USD");
+        BigDecimal askExchangeRate = new BigDecimal("3.9112");
+        stubDelayedExchangeRateResponse(USD.getCurrencyCode(), askExchangeRate.toString());
+        exchangeRateProvider.getAskExchangeRate(USD);
+
+        //when blocking calls share a bounded pool of worker threads
+        ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS);
+        long blockingStart = System.nanoTime();
+        List<Future<BigDecimal>> blockingResults = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            blockingResults.add(workers.submit(() -> exchangeRateProvider.getAskExchangeRate(USD)));
+        }
+        for (Future<BigDecimal> result : blockingResults) {
+            assertEquals(askExchangeRate, result.get());
+        }
+        long blockingMillis = (System.nanoTime() - blockingStart) / 1_000_000;
+        workers.shutdown();
+
+        //and when async calls are started from a single thread
+        long asyncStart = System.nanoTime();
+        List<CompletableFuture<BigDecimal>> asyncResults = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            asyncResults.add(exchangeRateProvider.getAskExchangeRateAsync(USD));
+        }
+        for (CompletableFuture<BigDecimal> result : asyncResults) {
+            assertEquals(askExchangeRate, result.get());
+        }
+        long asyncMillis = (System.nanoTime() - asyncStart) / 1_000_000;
+
+        //then blocking calls queue behind the worker threads while async calls overlap
+        assertTrue(blockingMillis >= (long) UPSTREAM_DELAY_MILLIS * CONCURRENT_REQUESTS / WORKER_THREADS);
+        assertTrue(asyncMillis * 2 < blockingMillis,
+                "async: " + asyncMillis + "ms, blocking: " + blockingMillis + "ms");
+    }
+
+    void stubDelayedExchangeRateResponse(String currencyCode, String askRate) {
+        String responseBody = "{\n" +
+                "  \"table\": \"C\",\n" +
+                "  \"currency\": \"dolar amerykański\",\n" +
+                "  \"code\": \"" + currencyCode + "\",\n" +
+                "  \"rates\": [\n" +
+                "    {\n" +
+                "      \"no\": \"046/C/NBP/2021\",\n" +
+                "      \"effectiveDate\": \"2021-03-09\",\n" +
+                "      \"bid\": 3.8340,\n" +
+                "      \"ask\": " + askRate + "\n" +
+                "    }\n" +
+                "  ]\n" +
+                "}";
+
+        stubFor(WireMock.get(urlEqualTo("/api/exchangerates/rates/c/" + currencyCode))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withFixedDelay(UPSTREAM_DELAY_MILLIS)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(responseBody)
+                ));
+    }
+}
@@ -1,6 +1,8 @@
 package io.github.mszychiewicz.currencyexchange.infrastructure;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRate;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateTable;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,7 +14,9 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Currency;
+import java.util.List;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
@@ -22,7 +26,12 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 @AutoConfigureWireMock(port = 0)
-@TestPropertySource(properties = "clients.nbp.baseUrl=http://localhost:${wiremock.server.port}")
+@TestPropertySource(properties = {
+        "clients.nbp.baseUrl=http://localhost:${wiremock.server.port}",
+        "clients.nbp.snapshot.path=",
+        "accounts.journal.path=",
+        "clients.nbp.history.backfillDays=0"
+})
 class NbpExchangeRateProviderTest {
 
     @Autowired
@@ -80,6 +89,85 @@ class NbpExchangeRateProviderTest {
         assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
     }
 
+    @Test
+    void givenOkTableResponse_whenFetchExchangeRateTable_thenAllCurrenciesAreReturned() {
+        //given
+        Currency USD = Currency.getInstance("USD");
+        Currency EUR = Currency.getInstance("EUR");
+        stubExchangeRateTableResponse();
+        //when
+        ExchangeRateTable table = exchangeRateProvider.fetchExchangeRateTable();
+        //then
+        assertEquals(LocalDate.parse("2021-03-09"), table.getEffectiveDate());
+        assertEquals(new ExchangeRate(new BigDecimal("3.8731"), new BigDecimal("3.7965")), table.getRates().get(USD));
+        assertEquals(new ExchangeRate(new BigDecimal("4.6110"), new BigDecimal("4.5198")), table.getRates().get(EUR));
+    }
+
+    @Test
+    void givenNotFoundTableResponse_whenFetchExchangeRateTable_thenThrowServiceUnavailableStatus() {
+        //given
+        stubFor(WireMock.get(urlEqualTo("/api/exchangerates/tables/c/"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                ));
+        //when
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class,
+                () -> exchangeRateProvider.fetchExchangeRateTable()
+        );
+        //then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
+
+    @Test
+    void givenOkTableRangeResponse_whenFetchExchangeRateTables_thenTableOfEveryDayIsReturned() {
+        //given
+        Currency USD = Currency.getInstance("USD");
+        String responseBody = "[\n" +
+                "  {\"table\": \"C\", \"no\": \"045/C/NBP/2021\", \"tradingDate\": \"2021-03-05\", \"effectiveDate\": \"2021-03-08\",\n" +
+                "   \"rates\": [{\"currency\": \"dolar amerykański\", \"code\": \"USD\", \"bid\": 3.8124, \"ask\": 3.8894}]},\n" +
+                "  {\"table\": \"C\", \"no\": \"046/C/NBP/2021\", \"tradingDate\": \"2021-03-08\", \"effectiveDate\": \"2021-03-09\",\n" +
+                "   \"rates\": [{\"currency\": \"dolar amerykański\", \"code\": \"USD\", \"bid\": 3.7965, \"ask\": 3.8731}]}\n" +
+                "]";
+        stubFor(WireMock.get(urlEqualTo("/api/exchangerates/tables/c/2021-03-06/2021-03-09/"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(responseBody)
+                ));
+        //when
+        List<ExchangeRateTable> tables = exchangeRateProvider
+                .fetchExchangeRateTablesAsync(LocalDate.parse("2021-03-06"), LocalDate.parse("2021-03-09"))
+                .join();
+        //then
+        assertEquals(2, tables.size());
+        assertEquals(LocalDate.parse("2021-03-08"), tables.get(0).getEffectiveDate());
+        assertEquals(new ExchangeRate(new BigDecimal("3.8894"), new BigDecimal("3.8124")), tables.get(0).getRates().get(USD));
+        assertEquals(LocalDate.parse("2021-03-09"), tables.get(1).getEffectiveDate());
+    }
+
+    void stubExchangeRateTableResponse() {
+        String responseBody = "[\n" +
+                "  {\n" +
+                "    \"table\": \"C\",\n" +
+                "    \"no\": \"046/C/NBP/2021\",\n" +
+                "    \"tradingDate\": \"2021-03-08\",\n" +
+                "    \"effectiveDate\": \"2021-03-09\",\n" +
+                "    \"rates\": [\n" +
+                "      {\"currency\": \"dolar amerykański\", \"code\": \"USD\", \"bid\": 3.7965, \"ask\": 3.8731},\n" +
+                "      {\"currency\": \"euro\", \"code\": \"EUR\", \"bid\": 4.5198, \"ask\": 4.6110}\n" +
+                "    ]\n" +
+                "  }\n" +
+                "]";
+
+        stubFor(WireMock.get(urlEqualTo("/api/exchangerates/tables/c/"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(responseBody)
+                ));
+    }
+
     void stubExchangeRateResponse(String currencyCode, String bidRate, String askRate) {
         String responseBody = "{\n" +
                 "  \"table\": \"C\",\n" +
@@ -0,0 +1,192 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import io.github.mszychiewicz.currencyexchange.domain.exception.ConcurrentAccountUpdateException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapAccountRepositoryUnitTest {
+    private static final SupportedCurrencies SUPPORTED_CURRENCIES = new SupportedCurrencies();
+    private static final SupportedCurrency USD = SUPPORTED_CURRENCIES.register(Currency.getInstance("USD"));
+    private static final int CURRENCY_SLOTS = 4;
+
+    OffHeapAccountRepository accountRepository;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setup() {
+        // small slabs so the tests cross slab boundaries
+        accountRepository = new OffHeapAccountRepository(SUPPORTED_CURRENCIES, DataSize.ofKilobytes(1), CURRENCY_SLOTS);
+    }
+
+    @Test
+    void givenSavedAccounts_whenFindById_thenAccountViewIsRebuilt() {
+        //given
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Account account = new Account("Jane" + i % 3, "Doe", i);
+            accountRepository.save(account);
+            accounts.add(account);
+        }
+        //when then
+        for (Account account : accounts) {
+            Account found = accountRepository.findById(account.getId()).orElseThrow();
+            assertEquals(account.getFirstName(), found.getFirstName());
+            assertEquals("Doe", found.getLastName());
+            assertEquals(account.getBalance(SupportedCurrencies.PLN), found.getBalance(SupportedCurrencies.PLN));
+            assertEquals(1, found.getVersion());
+        }
+        assertTrue(accountRepository.findById(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void givenTwoReadersOfSameSnapshot_whenBothSave_thenSecondSaveIsRejected() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        Account first = accountRepository.findById(account.getId()).orElseThrow();
+        Account second = accountRepository.findById(account.getId()).orElseThrow();
+
+        //when
+        accountRepository.save(first);
+
+        //then
+        assertThrows(ConcurrentAccountUpdateException.class, () -> accountRepository.save(second));
+        assertEquals(2, accountRepository.findById(account.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void givenSavedAccount_whenSaveSameNewAccountAgain_thenRejectIt() {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+
+        //when then
+        assertThrows(ConcurrentAccountUpdateException.class, () -> accountRepository.save(account));
+    }
+
+    @Test
+    void givenConcurrentWritersAndReaders_whenUpdating_thenReadersSeeConsistentRecords() throws Exception {
+        //given balances always sum up to the opening balance
+        Account account = new Account("Jane", "Doe", 1_000_000);
+        accountRepository.save(account);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        //when
+        for (int t = 0; t < 2; t++) {
+            results.add(threads.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    while (true) {
+                        Account current = accountRepository.findById(account.getId()).orElseThrow();
+                        long pln = current.getBalance(SupportedCurrencies.PLN);
+                        long[] balances = balances(pln - 1, 1_000_000 - pln + 1);
+                        try {
+                            accountRepository.save(new Account(account.getId(), "Jane", "Doe", balances, current.getVersion()));
+                            break;
+                        } catch (ConcurrentAccountUpdateException e) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }
+            }));
+            results.add(threads.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    Account current = accountRepository.findById(account.getId()).orElseThrow();
+                    assertEquals(1_000_000, current.getBalance(SupportedCurrencies.PLN) + current.getBalance(USD));
+                }
+            }));
+        }
+        //then
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+        Account updated = accountRepository.findById(account.getId()).orElseThrow();
+        assertEquals(1_000_000 - 20_000, updated.getBalance(SupportedCurrencies.PLN));
+        assertEquals(20_001, updated.getVersion());
+    }
+
+    @Test
+    void givenSnapshot_whenRestoredIntoNewRepository_thenAccountsAreEqual() throws Exception {
+        //given
+        Account account = new Account("Jane", "Doe", 1000);
+        accountRepository.save(account);
+        Path snapshot = directory.resolve("accounts.snapshot");
+        accountRepository.writeSnapshot(snapshot, 7);
+        //when
+        OffHeapAccountRepository restored = new OffHeapAccountRepository(SUPPORTED_CURRENCIES, DataSize.ofKilobytes(1), CURRENCY_SLOTS);
+        long checkpoint = restored.restoreSnapshot(snapshot);
+        //then
+        assertEquals(7, checkpoint);
+        assertEquals(1, restored.size());
+        assertEquals(1000, restored.findById(account.getId()).orElseThrow().getBalance(SupportedCurrencies.PLN));
+    }
+
+    @Test
+    void givenMoreDistinctNamesThanInitialInternTable_whenSaved_thenEachIsReadBack() {
+        //given
+        List<Account> accounts = new ArrayList<>();
+        //when names repeat after growing the intern table
+        for (int i = 0; i < 5_000; i++) {
+            Account account = new Account("Jane" + i % 2_000, "Doe" + i % 2_000, i);
+            accountRepository.save(account);
+            accounts.add(account);
+        }
+        //then
+        for (Account account : accounts) {
+            Account found = accountRepository.findById(account.getId()).orElseThrow();
+            assertEquals(account.getFirstName(), found.getFirstName());
+            assertEquals(account.getLastName(), found.getLastName());
+        }
+    }
+
+    @Test
+    void givenRegistryAtCurrencySlots_whenRegisteringAnotherCurrency_thenRegistrationIsRejected() {
+        //given
+        SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+        new OffHeapAccountRepository(supportedCurrencies, DataSize.ofKilobytes(1), 2);
+        supportedCurrencies.register(Currency.getInstance("USD"));
+        //when then
+        assertThrows(IllegalStateException.class, () -> supportedCurrencies.register(Currency.getInstance("EUR")));
+        assertEquals(List.of(Currency.getInstance("EUR")),
+                supportedCurrencies.registerAllWithinLimit(List.of(Currency.getInstance("EUR"), Currency.getInstance("USD"))));
+        assertEquals(2, supportedCurrencies.size());
+    }
+
+    @Test
+    void givenMoreCurrenciesThanSlots_whenRepositoryIsCreated_thenCreationFails() {
+        //given
+        SupportedCurrencies supportedCurrencies = new SupportedCurrencies();
+        supportedCurrencies.registerAll(List.of(Currency.getInstance("USD"), Currency.getInstance("EUR")));
+        //when then
+        assertThrows(IllegalStateException.class,
+                () -> new OffHeapAccountRepository(supportedCurrencies, DataSize.ofKilobytes(1), 2));
+    }
+
+    private static long[] balances(long pln, long usd) {
+        long[] balances = new long[SUPPORTED_CURRENCIES.size()];
+        balances[SupportedCurrencies.PLN.ordinal()] = pln;
+        balances[USD.ordinal()] = usd;
+        return balances;
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.mszychiewicz.currencyexchange.infrastructure;
+
+import io.github.mszychiewicz.currencyexchange.domain.Account;
+import io.github.mszychiewicz.currencyexchange.domain.AccountService;
+import io.github.mszychiewicz.currencyexchange.domain.CrossRateService;
+import io.github.mszychiewicz.currencyexchange.domain.ExchangeRateProvider;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteRepository;
+import io.github.mszychiewicz.currencyexchange.domain.QuoteService;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrencies;
+import io.github.mszychiewicz.currencyexchange.domain.SupportedCurrency;
+import io.github.mszychiewicz.currencyexchange.domain.command.BuyCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.OpenAccountCommand;
+import io.github.mszychiewicz.currencyexchange.domain.command.SellCurrencyCommand;
+import io.github.mszychiewicz.currencyexchange.domain.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class PartitionedAccountCommandExecutorStressTest {
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final SupportedCurrencies SUPPORTED_CURRENCIES = new SupportedCurrencies();
+    private static final SupportedCurrency SUPPORTED_USD = SUPPORTED_CURRENCIES.register(USD);
+    // equal ask and bid with a whole-grosz price per cent, so every trade converts without rounding
+    private static final BigDecimal RATE = new BigDecimal("4.0000");
+    private static final long RATE_PER_CENT = 4;
+    private static final int ACCOUNTS = 8;
+    private static final int CALLERS = 16;
+    private static final int TRADES_PER_CALLER = 5_000;
+    private static final long OPENING_BALANCE = 100_000;
+
+    PartitionedAccountCommandExecutor executor;
+
+    @BeforeEach
+    void setup() {
+        executor = new PartitionedAccountCommandExecutor(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void givenCommandsForOneAccount_whenExecute_thenTheyRunInSubmissionOrder() {
+        //given
+        UUID accountId = UUID.randomUUID();
+        List<Integer> applied = new ArrayList<>();
+
+        //when
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            int sequence = i;
+            results.add(executor.execute(accountId, () -> applied.add(sequence)));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+        //then
+        for (int i = 0; i < applied.size(); i++) {
+            assertEquals(i, applied.get(i));
+        }
+        assertEquals(10_000, applied.size());
+    }
+
+    @Test
+    void givenConcurrentTradesOnSharedAccounts_whenExecute_thenTotalValueIsConserved() throws Exception {
+        //given
+        InMemoryAccountRepository accountRepository = new InMemoryAccountRepository(SUPPORTED_CURRENCIES);
+        ExchangeRateProvider exchangeRateProvider = new ExchangeRateProvider() {
+            @Override
+            public BigDecimal getAskExchangeRate(Currency currency) {
+                return RATE;
+            }
+
+            @Override
+            public BigDecimal getBidExchangeRate(Currency currency) {
+                return RATE;
+            }
+        };
+        QuoteService quoteService = new QuoteService(
+                mock(QuoteRepository.class), exchangeRateProvider, Clock.systemUTC(), Duration.ofSeconds(30));
+        AccountService accountService = new AccountService(accountRepository, exchangeRateProvider, quoteService, executor,
+                event -> CompletableFuture.completedFuture(null), new CrossRateService(exchangeRateProvider, SUPPORTED_CURRENCIES, Clock.systemUTC(), Duration.ofHours(6)),
+                new MicrometerTradingMetrics(new SimpleMeterRegistry()), SUPPORTED_CURRENCIES);
+        List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds.add(accountService.openAccount(new OpenAccountCommand("Jane", "Doe", OPENING_BALANCE)));
+        }
+
+        //when callers trade random amounts on random accounts at the same time
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int c = 0; c < CALLERS; c++) {
+            results.add(callers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRADES_PER_CALLER; i++) {
+                    UUID accountId = accountIds.get(random.nextInt(ACCOUNTS));
+                    long amount = 1 + random.nextInt(5_000);
+                    try {
+                        if (random.nextBoolean()) {
+                            accountService.buyCurrency(new BuyCurrencyCommand(accountId, USD, amount));
+                        } else {
+                            accountService.sellCurrency(new SellCurrencyCommand(accountId, USD, amount));
+                        }
+                    } catch (InsufficientFundsException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+
+        //then no value was created or destroyed and no balance went negative
+        long totalValue = 0;
+        for (UUID accountId : accountIds) {
+            Account account = executor.execute(accountId, () -> accountService.getById(accountId)).join();
+            long pln = account.getBalance(SupportedCurrencies.PLN);
+            long usd = account.getBalance(SUPPORTED_USD);
+            assertTrue(pln >= 0 && usd >= 0, "negative balance on " + accountId);
+            totalValue += pln + usd * RATE_PER_CENT;
+        }
+        assertEquals(ACCOUNTS * OPENING_BALANCE, totalValue);
+        assertTrue(rejected.get() < CALLERS * TRADES_PER_CALLER, "every trade was rejected");
+    }
+}